@@ -0,0 +1,135 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+
+/**
+ * A read-only Map that stores its entries in one flat array.
+ * 
+ * <p>Keys and values alternate in a single {@code Object[]}, and lookups are a
+ * linear scan. For a handful of entries this is smaller than a HashMap, which
+ * needs a table plus one node per entry, and about as fast. Null keys and
+ * values are allowed, and iteration follows the order of the source map.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class CompactMap<K,V> extends AbstractMap<K,V> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final Object[] table;
+	private transient Set<Map.Entry<K,V>> entrySet;
+	
+	CompactMap(Map<? extends K,? extends V> source)
+	{
+		table = new Object[source.size() * 2];
+		int i = 0;
+		for (Map.Entry<? extends K,? extends V> entry : source.entrySet()) {
+			table[i++] = entry.getKey();
+			table[i++] = entry.getValue();
+		}
+	}
+	
+	@Override
+	public int size()
+	{
+		return table.length >> 1;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) > -1;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key)
+	{
+		int i = indexOf(key);
+		return i < 0 ? null : (V) table[i + 1];
+	}
+	
+	@Override
+	public Set<Map.Entry<K,V>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<K,V>>()
+			{
+				@Override
+				public Iterator<Map.Entry<K,V>> iterator()
+				{
+					return new Iterator<Map.Entry<K,V>>()
+					{
+						private int next = 0;
+						
+						public boolean hasNext()
+						{
+							return next < table.length;
+						}
+						
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K,V> next()
+						{
+							if (next >= table.length) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<K,V> entry = new AbstractMap.SimpleImmutableEntry<K,V>((K) table[next], (V) table[next + 1]);
+							next += 2;
+							return entry;
+						}
+						
+						public void remove()
+						{
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				
+				@Override
+				public int size()
+				{
+					return CompactMap.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+	
+	private int indexOf(Object key)
+	{
+		for (int i = 0; i < table.length; i += 2) {
+			if (Objects.equal(key, table[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
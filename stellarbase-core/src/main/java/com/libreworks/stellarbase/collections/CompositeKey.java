@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import com.google.common.base.Objects;
+
+/**
+ * An immutable key made up of two or three group keys, any of which may be null.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+final class CompositeKey
+{
+	final Object a;
+	final Object b;
+	final Object c;
+	private final int hash;
+	
+	CompositeKey(Object a, Object b)
+	{
+		this(a, b, null);
+	}
+	
+	CompositeKey(Object a, Object b, Object c)
+	{
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		int h = a == null ? 0 : a.hashCode();
+		h = 31 * h + (b == null ? 0 : b.hashCode());
+		this.hash = 31 * h + (c == null ? 0 : c.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj) {
+			return true;
+		} else if (obj instanceof CompositeKey) {
+			CompositeKey other = (CompositeKey) obj;
+			return hash == other.hash && Objects.equal(a, other.a) &&
+				Objects.equal(b, other.b) && Objects.equal(c, other.c);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.libreworks.stellarbase.math.SafeMath;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A thread-safe running total for two groups.
+ * 
+ * <p>This is the concurrent counterpart of {@link DoubleGroupTotal}: each outer
+ * group holds a {@link ConcurrentGroupTotal}, and {@link #snapshot()} copies
+ * the totals into a regular DoubleGroupTotal. The same consistency rules as
+ * ConcurrentGroupTotal apply.
+ * 
+ * <p>Null keys aren't allowed.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class ConcurrentDoubleGroupTotal
+{
+	private final ConcurrentMap<String,ConcurrentGroupTotal> groups = new ConcurrentHashMap<String,ConcurrentGroupTotal>();
+	
+	/**
+	 * Adds a value into the groups
+	 * 
+	 * @param key1 The first group
+	 * @param key2 The second group
+	 * @param value The value to add
+	 * @throws IllegalArgumentException if either key is null
+	 */
+	public void add(String key1, Comparable<?> key2, double value)
+	{
+		ConcurrentGroupTotal group = groups.get(Arguments.checkNull(key1));
+		if (group == null) {
+			ConcurrentGroupTotal created = new ConcurrentGroupTotal();
+			group = groups.putIfAbsent(key1, created);
+			if (group == null) {
+				group = created;
+			}
+		}
+		group.add(key2, value);
+	}
+	
+	/**
+	 * Adds the values into the groups
+	 * 
+	 * @param key1 The first group
+	 * @param key2 The second group
+	 * @param values The values to add
+	 * @throws IllegalArgumentException if either key is null
+	 */
+	public void addAll(String key1, Comparable<?> key2, Collection<Double> values)
+	{
+		add(key1, key2, SafeMath.sum(values, Double.class).doubleValue());
+	}
+	
+	/**
+	 * Gets the current total for a pair of groups.
+	 * 
+	 * @param key1 The first group
+	 * @param key2 The second group
+	 * @return The total, or zero if the groups don't exist
+	 */
+	public double getTotal(String key1, Object key2)
+	{
+		ConcurrentGroupTotal group = key1 == null ? null : groups.get(key1);
+		return group == null ? 0.0 : group.getTotal(key2);
+	}
+	
+	/**
+	 * Gets a live view of the outer groups.
+	 * 
+	 * @return The outer group keys
+	 */
+	public Set<String> keySet()
+	{
+		return groups.keySet();
+	}
+	
+	/**
+	 * Removes all groups.
+	 */
+	public void clear()
+	{
+		groups.clear();
+	}
+	
+	/**
+	 * Copies the current totals into a new DoubleGroupTotal.
+	 * 
+	 * @return The totals
+	 */
+	public DoubleGroupTotal snapshot()
+	{
+		DoubleGroupTotal snapshot = new DoubleGroupTotal();
+		for (Map.Entry<String,ConcurrentGroupTotal> outer : groups.entrySet()) {
+			for (Map.Entry<Comparable<?>,Double> inner : outer.getValue().snapshot().entrySet()) {
+				snapshot.add(outer.getKey(), inner.getKey(), inner.getValue());
+			}
+		}
+		return snapshot;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return snapshot().toString();
+	}
+}
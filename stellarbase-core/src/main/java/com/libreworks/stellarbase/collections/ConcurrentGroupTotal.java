@@ -0,0 +1,177 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.libreworks.stellarbase.concurrent.StripedDouble;
+import com.libreworks.stellarbase.math.SafeMath;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A thread-safe running total for a group name.
+ * 
+ * <p>Many threads can call {@link #add(Comparable, double)} on the same
+ * instance without locking. Each group's total is a {@link StripedDouble}, so
+ * even threads hammering the same group mostly update different cells. When
+ * the work is done, call {@link #snapshot()} to get the totals as a regular
+ * {@link SingleGroupTotal}.
+ * 
+ * <p>The snapshot holds every addition that completed before it was taken. If
+ * threads are still adding while it's taken, each group may or may not include
+ * the additions in progress. Take it after the writers finish to get an exact
+ * result.
+ * 
+ * <p>Unlike SingleGroupTotal, null keys aren't allowed.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class ConcurrentGroupTotal
+{
+	private final ConcurrentMap<Comparable<?>,StripedDouble> totals;
+
+	/**
+	 * Creates a new ConcurrentGroupTotal.
+	 */
+	public ConcurrentGroupTotal()
+	{
+		this(16);
+	}
+	
+	/**
+	 * Creates a new ConcurrentGroupTotal sized for a number of groups.
+	 * 
+	 * @param expectedSize The expected number of groups
+	 */
+	public ConcurrentGroupTotal(int expectedSize)
+	{
+		totals = new ConcurrentHashMap<Comparable<?>,StripedDouble>(expectedSize);
+	}
+	
+	/**
+	 * Adds a value to a group
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 * @throws IllegalArgumentException if {@code key} is null
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		StripedDouble total = totals.get(Arguments.checkNull(key));
+		if (total == null) {
+			StripedDouble created = new StripedDouble();
+			total = totals.putIfAbsent(key, created);
+			if (total == null) {
+				total = created;
+			}
+		}
+		total.add(value);
+	}
+	
+	/**
+	 * Adds all the values to a group
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 * @throws IllegalArgumentException if {@code key} is null
+	 */
+	public void addAll(Comparable<?> key, Collection<Double> values)
+	{
+		add(key, SafeMath.sum(values, Double.class).doubleValue());
+	}
+	
+	/**
+	 * Gets the current total for a group.
+	 * 
+	 * @param key The group
+	 * @return The total, or zero if the group doesn't exist
+	 */
+	public double getTotal(Object key)
+	{
+		StripedDouble total = key == null ? null : totals.get(key);
+		return total == null ? 0.0 : total.sum();
+	}
+	
+	/**
+	 * Whether a value has been added to the group.
+	 * 
+	 * @param key The group
+	 * @return Whether the group exists
+	 */
+	public boolean containsKey(Object key)
+	{
+		return key != null && totals.containsKey(key);
+	}
+	
+	/**
+	 * Gets a live view of the groups.
+	 * 
+	 * @return The group keys
+	 */
+	public Set<Comparable<?>> keySet()
+	{
+		return totals.keySet();
+	}
+	
+	/**
+	 * Gets the number of groups.
+	 * 
+	 * @return The number of groups
+	 */
+	public int size()
+	{
+		return totals.size();
+	}
+	
+	/**
+	 * Removes all groups.
+	 */
+	public void clear()
+	{
+		totals.clear();
+	}
+	
+	/**
+	 * Copies the current totals into a new SingleGroupTotal.
+	 * 
+	 * @return The totals
+	 */
+	public SingleGroupTotal snapshot()
+	{
+		SingleGroupTotal snapshot = new SingleGroupTotal();
+		for (Map.Entry<Comparable<?>,StripedDouble> entry : totals.entrySet()) {
+			snapshot.add(entry.getKey(), entry.getValue().sum());
+		}
+		return snapshot;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return snapshot().toString();
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.libreworks.stellarbase.math.DecimalAccumulator;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A Map that stores an exact decimal running total for a group name.
+ * 
+ * <p>Where {@link SingleGroupTotal} adds doubles, this class keeps a
+ * {@link DecimalAccumulator} per group, so money and other decimal amounts
+ * total exactly. Adding to an existing group doesn't allocate as long as the
+ * total fits in a scaled long.
+ * 
+ * <p>Partial results can be combined with {@link #merge(DecimalGroupTotal)}.
+ * The accumulators returned by {@link #get(Object)} are live; use the
+ * {@code add} methods here to change them.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class DecimalGroupTotal extends AbstractMapDelegate<Comparable<?>,DecimalAccumulator>
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new DecimalGroupTotal backed by a HashMap
+	 */
+	public DecimalGroupTotal()
+	{
+		this(new HashMap<Comparable<?>,DecimalAccumulator>());
+	}
+
+	/**
+	 * Creates a new DecimalGroupTotal with a custom delegate
+	 * 
+	 * @param delegate
+	 *            The map to use to store the groups and totals
+	 */
+	public DecimalGroupTotal(Map<Comparable<?>,DecimalAccumulator> delegate)
+	{
+		super(delegate);
+	}
+
+	/**
+	 * Adds a value to a group
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added, which counts as zero if null
+	 */
+	public void add(Comparable<?> key, Number value)
+	{
+		getOrCreate(key).add(value);
+	}
+
+	/**
+	 * Adds a scaled value to a group, for example {@code add("USD", 1999, 2)}
+	 * adds 19.99.
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param unscaledValue
+	 *            The unscaled value
+	 * @param scale
+	 *            The scale of the value
+	 */
+	public void add(Comparable<?> key, long unscaledValue, int scale)
+	{
+		getOrCreate(key).add(unscaledValue, scale);
+	}
+
+	/**
+	 * Adds all the values to a group, skipping any nulls
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 */
+	public void addAll(Comparable<?> key, Collection<? extends Number> values)
+	{
+		DecimalAccumulator total = getOrCreate(key);
+		for (Number value : values) {
+			total.add(value);
+		}
+	}
+	
+	/**
+	 * Gets the total for a group.
+	 * 
+	 * @param key The group
+	 * @return The total, or zero if the group doesn't exist
+	 */
+	public BigDecimal getTotal(Object key)
+	{
+		DecimalAccumulator total = delegate.get(key);
+		return total == null ? BigDecimal.ZERO : total.get();
+	}
+	
+	/**
+	 * Merges the totals of another DecimalGroupTotal into this one.
+	 * 
+	 * @param other The other instance
+	 * @return This instance
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public DecimalGroupTotal merge(DecimalGroupTotal other)
+	{
+		Arguments.checkNull(other);
+		for (Map.Entry<Comparable<?>,DecimalAccumulator> entry : other.entrySet()) {
+			DecimalAccumulator total = delegate.get(entry.getKey());
+			if (total == null) {
+				delegate.put(entry.getKey(), entry.getValue().copy());
+			} else {
+				total.merge(entry.getValue());
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Gets the totals of every group.
+	 * 
+	 * @return A new map of groups to their totals
+	 */
+	public Map<Comparable<?>,BigDecimal> getTotals()
+	{
+		Map<Comparable<?>,BigDecimal> totals = new HashMap<Comparable<?>,BigDecimal>(delegate.size() * 2);
+		for (Map.Entry<Comparable<?>,DecimalAccumulator> entry : delegate.entrySet()) {
+			totals.put(entry.getKey(), entry.getValue().get());
+		}
+		return totals;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	public DecimalAccumulator put(Comparable<?> arg0, DecimalAccumulator arg1)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	public void putAll(Map<? extends Comparable<?>,? extends DecimalAccumulator> arg0)
+	{
+		throw new UnsupportedOperationException("Use the 'merge' method");
+	}
+	
+	private DecimalAccumulator getOrCreate(Comparable<?> key)
+	{
+		DecimalAccumulator total = delegate.get(key);
+		if (total == null) {
+			total = new DecimalAccumulator();
+			delegate.put(key, total);
+		}
+		return total;
+	}
+}
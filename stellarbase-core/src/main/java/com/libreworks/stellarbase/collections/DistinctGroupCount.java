@@ -0,0 +1,286 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A Map that stores an approximate count of distinct elements for a group name.
+ * 
+ * <p>Counting distinct elements with a {@link SingleGrouper} means keeping every
+ * element, which needs memory proportional to the input. This class instead
+ * keeps a {@link HyperLogLog} sketch per group, so each group uses a fixed
+ * 2<sup>precision</sup> bytes no matter how many elements it sees. The values
+ * of this map are the estimated counts; see HyperLogLog for the error bounds.
+ * 
+ * <p>Instances with the same precision can be merged with
+ * {@link #merge(DistinctGroupCount)}, so counts built on separate threads or
+ * machines can be combined. Groups are kept in insertion order. Groups can be
+ * removed, but values can't be put directly; use {@link #add(Comparable, Object)}.
+ * This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class DistinctGroupCount extends AbstractMap<Comparable<?>,Long> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int precision;
+	private final LinkedHashMap<Comparable<?>,HyperLogLog> sketches = new LinkedHashMap<Comparable<?>,HyperLogLog>();
+	private transient Set<Map.Entry<Comparable<?>,Long>> entrySet;
+	
+	/**
+	 * Creates a new DistinctGroupCount with the default precision.
+	 */
+	public DistinctGroupCount()
+	{
+		this(HyperLogLog.DEFAULT_PRECISION);
+	}
+	
+	/**
+	 * Creates a new DistinctGroupCount.
+	 * 
+	 * @param precision The precision of each group's sketch
+	 * @throws IllegalArgumentException if {@code precision} is out of range
+	 * @see HyperLogLog#HyperLogLog(int)
+	 */
+	public DistinctGroupCount(int precision)
+	{
+		this.precision = HyperLogLog.checkPrecision(precision);
+	}
+	
+	/**
+	 * Adds an element to a group
+	 * 
+	 * @param key
+	 *            The group into which the element will be added
+	 * @param element
+	 *            The element to be counted
+	 */
+	public void add(Comparable<?> key, Object element)
+	{
+		getOrCreate(key).offer(element);
+	}
+	
+	/**
+	 * Adds all the elements to a group
+	 * 
+	 * @param key
+	 *            The group into which the elements will be added
+	 * @param elements
+	 *            The elements to be counted
+	 */
+	public void addAll(Comparable<?> key, Collection<?> elements)
+	{
+		HyperLogLog sketch = getOrCreate(key);
+		for (Object element : elements) {
+			sketch.offer(element);
+		}
+	}
+	
+	/**
+	 * Gets the estimated number of distinct elements in a group.
+	 * 
+	 * @param key The group
+	 * @return The estimate, or zero if the group doesn't exist
+	 */
+	public long getCount(Object key)
+	{
+		HyperLogLog sketch = sketches.get(key);
+		return sketch == null ? 0L : sketch.cardinality();
+	}
+	
+	/**
+	 * Gets the sketch for a group.
+	 * 
+	 * @param key The group
+	 * @return A copy of the sketch, or null if the group doesn't exist
+	 */
+	public HyperLogLog getSketch(Object key)
+	{
+		HyperLogLog sketch = sketches.get(key);
+		return sketch == null ? null : sketch.copy();
+	}
+	
+	/**
+	 * Gets the estimated number of distinct elements across all groups.
+	 * 
+	 * @return The estimate
+	 */
+	public long getTotalCount()
+	{
+		HyperLogLog union = new HyperLogLog(precision);
+		for (HyperLogLog sketch : sketches.values()) {
+			union.merge(sketch);
+		}
+		return union.cardinality();
+	}
+	
+	/**
+	 * Merges the sketches of another DistinctGroupCount into this one.
+	 * 
+	 * @param other The other instance, which must have the same precision
+	 * @return This instance
+	 * @throws IllegalArgumentException if {@code other} is null or has a different precision
+	 */
+	public DistinctGroupCount merge(DistinctGroupCount other)
+	{
+		Arguments.checkNull(other);
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Sketches with different precisions can't be merged");
+		}
+		for (Map.Entry<Comparable<?>,HyperLogLog> entry : other.sketches.entrySet()) {
+			HyperLogLog sketch = sketches.get(entry.getKey());
+			if (sketch == null) {
+				sketches.put(entry.getKey(), entry.getValue().copy());
+			} else {
+				sketch.merge(entry.getValue());
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Gets the precision of each group's sketch.
+	 * 
+	 * @return The precision
+	 */
+	public int getPrecision()
+	{
+		return precision;
+	}
+	
+	@Override
+	public Long get(Object key)
+	{
+		HyperLogLog sketch = sketches.get(key);
+		return sketch == null ? null : Long.valueOf(sketch.cardinality());
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return sketches.containsKey(key);
+	}
+
+	@Override
+	public Set<Comparable<?>> keySet()
+	{
+		return Collections.unmodifiableSet(sketches.keySet());
+	}
+
+	@Override
+	public int size()
+	{
+		return sketches.size();
+	}
+
+	@Override
+	public void clear()
+	{
+		sketches.clear();
+	}
+
+	@Override
+	public Set<Map.Entry<Comparable<?>,Long>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<Comparable<?>,Long>>()
+			{
+				@Override
+				public Iterator<Map.Entry<Comparable<?>,Long>> iterator()
+				{
+					final Iterator<Map.Entry<Comparable<?>,HyperLogLog>> it = sketches.entrySet().iterator();
+					return new Iterator<Map.Entry<Comparable<?>,Long>>()
+					{
+						public boolean hasNext()
+						{
+							return it.hasNext();
+						}
+
+						public Map.Entry<Comparable<?>,Long> next()
+						{
+							Map.Entry<Comparable<?>,HyperLogLog> e = it.next();
+							return new AbstractMap.SimpleImmutableEntry<Comparable<?>,Long>(e.getKey(), e.getValue().cardinality());
+						}
+
+						public void remove()
+						{
+							it.remove();
+						}
+					};
+				}
+
+				@Override
+				public int size()
+				{
+					return sketches.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Long put(Comparable<?> key, Long value)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	@Override
+	public void putAll(Map<? extends Comparable<?>,? extends Long> m)
+	{
+		throw new UnsupportedOperationException("Use the 'addAll' method");
+	}
+	
+	@Override
+	public Long remove(Object key)
+	{
+		HyperLogLog sketch = sketches.remove(key);
+		return sketch == null ? null : Long.valueOf(sketch.cardinality());
+	}
+	
+	private HyperLogLog getOrCreate(Comparable<?> key)
+	{
+		HyperLogLog sketch = sketches.get(key);
+		if (sketch == null) {
+			sketch = new HyperLogLog(precision);
+			sketches.put(key, sketch);
+		}
+		return sketch;
+	}
+}
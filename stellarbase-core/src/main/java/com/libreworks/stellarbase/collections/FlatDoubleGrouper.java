@@ -0,0 +1,232 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A grouper for two key values that stores its groups in one flat index.
+ * 
+ * <p>{@link DoubleGrouper} keeps a map for every outer group, and adding an
+ * element looks up both levels. This class instead keys each collection of
+ * elements by the (outer, inner) pair in a single {@link LinkedHashMap}, so
+ * adding an element to an existing group takes one lookup and no per-group
+ * maps are allocated.
+ * 
+ * <p>Reading this object as a {@code Map<A,Map<B,Collection<V>>>} builds the
+ * nested maps from the index on first use, using the containers from the
+ * factory. The nested view is cached until a new group is added. The maps in
+ * the view are read-only, but the element collections are the same ones held
+ * in the index. Use {@link #get(Object, Object)} to read one group without
+ * building the view.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <A> The outer group type
+ * @param <B> The inner group type
+ * @param <V> The element type
+ */
+public class FlatDoubleGrouper<A,B,V> extends AbstractMap<A,Map<B,Collection<V>>>
+{
+	private final DoubleGrouperFactory<A,B,V> factory;
+	private final Map<CompositeKey,Collection<V>> index = new LinkedHashMap<CompositeKey,Collection<V>>();
+	private Map<A,Map<B,Collection<V>>> view;
+	
+	/**
+	 * Creates a new FlatDoubleGrouper using {@link LinkedHashMap}s for the nested view and {@link ArrayList}s for elements.
+	 */
+	public FlatDoubleGrouper()
+	{
+		this(new DoubleGrouperFactory<A,B,V>()
+		{
+			public Map<A,Map<B,Collection<V>>> getOuterGroupContainer()
+			{
+				return new LinkedHashMap<A,Map<B,Collection<V>>>();
+			}
+			public Collection<V> getContainer()
+			{
+				return new ArrayList<V>();
+			}
+			public Map<B,Collection<V>> getGroupContainer()
+			{
+				return new LinkedHashMap<B,Collection<V>>();
+			}
+		});
+	}
+	
+	/**
+	 * Creates a new FlatDoubleGrouper using a custom factory
+	 * 
+	 * @param factory The custom factory
+	 */
+	public FlatDoubleGrouper(DoubleGrouperFactory<A,B,V> factory)
+	{
+		this.factory = Arguments.checkNull(factory);
+	}
+	
+	/**
+	 * Adds an element to the group.
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param value The value to add
+	 */
+	public void add(A group1, B group2, V value)
+	{
+		container(group1, group2).add(value);
+	}
+	
+	/**
+	 * Adds a collection of elements to the group
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param values The value to add
+	 */
+	public void addAll(A group1, B group2, Collection<? extends V> values)
+	{
+		container(group1, group2).addAll(values);
+	}
+	
+	/**
+	 * Adds a map of collections to the group
+	 * 
+	 * <p>As with {@link DoubleGrouper#addAll(Object, Map)}, the collections
+	 * replace any existing ones for the same groups.
+	 * 
+	 * @param group1 First group key
+	 * @param groups Map of second group keys to collection of values
+	 */
+	@SuppressWarnings("unchecked")
+	public void addAll(A group1, Map<B,? extends Collection<V>> groups)
+	{
+		for (Map.Entry<B,? extends Collection<V>> entry : groups.entrySet()) {
+			index.put(new CompositeKey(group1, entry.getKey()), (Collection<V>) entry.getValue());
+		}
+		view = null;
+	}
+	
+	/**
+	 * Gets the elements in a group without building the nested view.
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @return The elements, or null if the group doesn't exist
+	 */
+	public Collection<V> get(Object group1, Object group2)
+	{
+		return index.get(new CompositeKey(group1, group2));
+	}
+	
+	@Override
+	public Set<Map.Entry<A,Map<B,Collection<V>>>> entrySet()
+	{
+		return view().entrySet();
+	}
+	
+	@Override
+	public Map<B,Collection<V>> get(Object key)
+	{
+		return view().get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return view().containsKey(key);
+	}
+
+	@Override
+	public int size()
+	{
+		return view().size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return index.isEmpty();
+	}
+
+	@Override
+	public void clear()
+	{
+		index.clear();
+		view = null;
+	}
+
+	@Override
+	public Map<B,Collection<V>> put(A key, Map<B,Collection<V>> value)
+	{
+		throw new UnsupportedOperationException("Use the add method");
+	}
+
+	@Override
+	public void putAll(Map<? extends A,? extends Map<B,Collection<V>>> m)
+	{
+		throw new UnsupportedOperationException("Use the add method");
+	}
+	
+	@Override
+	public Map<B,Collection<V>> remove(Object key)
+	{
+		throw new UnsupportedOperationException("This grouper can only be cleared");
+	}
+
+	private Collection<V> container(A group1, B group2)
+	{
+		CompositeKey key = new CompositeKey(group1, group2);
+		Collection<V> container = index.get(key);
+		if (container == null) {
+			container = factory.getContainer();
+			index.put(key, container);
+			view = null;
+		}
+		return container;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<A,Map<B,Collection<V>>> view()
+	{
+		if (view == null) {
+			Map<A,Map<B,Collection<V>>> outer = factory.getOuterGroupContainer();
+			for (Map.Entry<CompositeKey,Collection<V>> entry : index.entrySet()) {
+				A a = (A) entry.getKey().a;
+				Map<B,Collection<V>> inner = outer.get(a);
+				if (inner == null) {
+					inner = factory.getGroupContainer();
+					outer.put(a, inner);
+				}
+				inner.put((B) entry.getKey().b, entry.getValue());
+			}
+			for (Map.Entry<A,Map<B,Collection<V>>> entry : outer.entrySet()) {
+				entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+			}
+			view = Collections.unmodifiableMap(outer);
+		}
+		return view;
+	}
+}
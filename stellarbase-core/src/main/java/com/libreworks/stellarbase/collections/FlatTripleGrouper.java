@@ -0,0 +1,256 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A grouper for three key values that stores its groups in one flat index.
+ * 
+ * <p>This is the three-key counterpart of {@link FlatDoubleGrouper}: each
+ * collection of elements is keyed by the (far outer, outer, inner) triple in a
+ * single {@link LinkedHashMap}, so adding an element to an existing group takes
+ * one lookup. The nested {@code Map} view that {@link TripleGrouper} exposes is
+ * built from the factory's containers on first read and cached until a new
+ * group is added.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <A> The far outer group type
+ * @param <B> The outer group type
+ * @param <C> The inner group type
+ * @param <V> The element type
+ */
+public class FlatTripleGrouper<A,B,C,V> extends AbstractMap<A,Map<B,Map<C,Collection<V>>>>
+{
+	private final TripleGrouperFactory<A,B,C,V> factory;
+	private final Map<CompositeKey,Collection<V>> index = new LinkedHashMap<CompositeKey,Collection<V>>();
+	private Map<A,Map<B,Map<C,Collection<V>>>> view;
+	
+	/**
+	 * Creates a new FlatTripleGrouper using {@link LinkedHashMap}s for the nested view and {@link ArrayList}s for elements.
+	 */
+	public FlatTripleGrouper()
+	{
+		this(new TripleGrouperFactory<A,B,C,V>()
+		{
+			public Map<A,Map<B,Map<C,Collection<V>>>> getFarOuterGroupContainer()
+			{
+				return new LinkedHashMap<A,Map<B,Map<C,Collection<V>>>>();
+			}
+			public Map<B,Map<C,Collection<V>>> getOuterGroupContainer()
+			{
+				return new LinkedHashMap<B,Map<C,Collection<V>>>();
+			}
+			public Collection<V> getContainer()
+			{
+				return new ArrayList<V>();
+			}
+			public Map<C,Collection<V>> getGroupContainer()
+			{
+				return new LinkedHashMap<C,Collection<V>>();
+			}
+		});
+	}
+	
+	/**
+	 * Creates a new FlatTripleGrouper using a custom factory
+	 * 
+	 * @param factory The custom factory
+	 */
+	public FlatTripleGrouper(TripleGrouperFactory<A,B,C,V> factory)
+	{
+		this.factory = Arguments.checkNull(factory);
+	}
+	
+	/**
+	 * Adds an element to the group.
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param group3 Third group key
+	 * @param value The element to add
+	 */
+	public void add(A group1, B group2, C group3, V value)
+	{
+		container(group1, group2, group3).add(value);
+	}
+	
+	/**
+	 * Adds a collection of elements to the group
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param group3 Third group key
+	 * @param values The elements to add
+	 */
+	public void addAll(A group1, B group2, C group3, Collection<? extends V> values)
+	{
+		container(group1, group2, group3).addAll(values);
+	}
+	
+	/**
+	 * Adds a map of collections to the group
+	 * 
+	 * <p>As with {@link TripleGrouper#addAll(Object, Object, Map)}, the
+	 * collections replace any existing ones for the same groups.
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param groups Map of third group keys to collections of values
+	 */
+	@SuppressWarnings("unchecked")
+	public void addAll(A group1, B group2, Map<C,? extends Collection<V>> groups)
+	{
+		for (Map.Entry<C,? extends Collection<V>> entry : groups.entrySet()) {
+			index.put(new CompositeKey(group1, group2, entry.getKey()), (Collection<V>) entry.getValue());
+		}
+		view = null;
+	}
+	
+	/**
+	 * Adds a map of groups to the group
+	 *  
+	 * @param group1 First group key
+	 * @param groups Map of second group keys to maps of third group keys to values
+	 */
+	public void addAll(A group1, Map<B,Map<C,? extends Collection<V>>> groups)
+	{
+		for (Map.Entry<B,Map<C,? extends Collection<V>>> entry : groups.entrySet()) {
+			addAll(group1, entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Gets the elements in a group without building the nested view.
+	 * 
+	 * @param group1 First group key
+	 * @param group2 Second group key
+	 * @param group3 Third group key
+	 * @return The elements, or null if the group doesn't exist
+	 */
+	public Collection<V> get(Object group1, Object group2, Object group3)
+	{
+		return index.get(new CompositeKey(group1, group2, group3));
+	}
+	
+	@Override
+	public Set<Map.Entry<A,Map<B,Map<C,Collection<V>>>>> entrySet()
+	{
+		return view().entrySet();
+	}
+	
+	@Override
+	public Map<B,Map<C,Collection<V>>> get(Object key)
+	{
+		return view().get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return view().containsKey(key);
+	}
+
+	@Override
+	public int size()
+	{
+		return view().size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return index.isEmpty();
+	}
+
+	@Override
+	public void clear()
+	{
+		index.clear();
+		view = null;
+	}
+
+	@Override
+	public Map<B,Map<C,Collection<V>>> put(A key, Map<B,Map<C,Collection<V>>> value)
+	{
+		throw new UnsupportedOperationException("Use the add method");
+	}
+
+	@Override
+	public void putAll(Map<? extends A,? extends Map<B,Map<C,Collection<V>>>> m)
+	{
+		throw new UnsupportedOperationException("Use the add method");
+	}
+	
+	@Override
+	public Map<B,Map<C,Collection<V>>> remove(Object key)
+	{
+		throw new UnsupportedOperationException("This grouper can only be cleared");
+	}
+
+	private Collection<V> container(A group1, B group2, C group3)
+	{
+		CompositeKey key = new CompositeKey(group1, group2, group3);
+		Collection<V> container = index.get(key);
+		if (container == null) {
+			container = factory.getContainer();
+			index.put(key, container);
+			view = null;
+		}
+		return container;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<A,Map<B,Map<C,Collection<V>>>> view()
+	{
+		if (view == null) {
+			Map<A,Map<B,Map<C,Collection<V>>>> far = factory.getFarOuterGroupContainer();
+			for (Map.Entry<CompositeKey,Collection<V>> entry : index.entrySet()) {
+				CompositeKey key = entry.getKey();
+				Map<B,Map<C,Collection<V>>> outer = far.get(key.a);
+				if (outer == null) {
+					outer = factory.getOuterGroupContainer();
+					far.put((A) key.a, outer);
+				}
+				Map<C,Collection<V>> inner = outer.get(key.b);
+				if (inner == null) {
+					inner = factory.getGroupContainer();
+					outer.put((B) key.b, inner);
+				}
+				inner.put((C) key.c, entry.getValue());
+			}
+			for (Map.Entry<A,Map<B,Map<C,Collection<V>>>> farEntry : far.entrySet()) {
+				for (Map.Entry<B,Map<C,Collection<V>>> entry : farEntry.getValue().entrySet()) {
+					entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+				}
+				farEntry.setValue(Collections.unmodifiableMap(farEntry.getValue()));
+			}
+			view = Collections.unmodifiableMap(far);
+		}
+		return view;
+	}
+}
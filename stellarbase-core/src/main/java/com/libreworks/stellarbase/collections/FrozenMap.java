@@ -0,0 +1,172 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+
+/**
+ * A read-only Map backed by an open-addressing table sized for its contents.
+ * 
+ * <p>The entries are stored in dense parallel arrays in the order of the
+ * source map, along with each key's hash. A separate {@code int[]} table,
+ * kept at most half full, maps hash slots to entry positions, and collisions
+ * are resolved with linear probing. Since the map never changes, there are no
+ * per-entry nodes, no resizing, and a miss usually ends at the first empty
+ * slot. Null keys and values are allowed.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class FrozenMap<K,V> extends AbstractMap<K,V> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final Object[] keys;
+	private final Object[] values;
+	private final int[] hashes;
+	/**
+	 * Entry positions plus one, so zero means an empty slot
+	 */
+	private final int[] slots;
+	private transient Set<Map.Entry<K,V>> entrySet;
+	
+	FrozenMap(Map<? extends K,? extends V> source)
+	{
+		int size = source.size();
+		keys = new Object[size];
+		values = new Object[size];
+		hashes = new int[size];
+		int capacity = 2;
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+		slots = new int[capacity];
+		int mask = capacity - 1;
+		int i = 0;
+		for (Map.Entry<? extends K,? extends V> entry : source.entrySet()) {
+			keys[i] = entry.getKey();
+			values[i] = entry.getValue();
+			int h = hash(entry.getKey());
+			hashes[i] = h;
+			int slot = h & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = ++i;
+		}
+	}
+	
+	@Override
+	public int size()
+	{
+		return keys.length;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) > -1;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key)
+	{
+		int i = indexOf(key);
+		return i < 0 ? null : (V) values[i];
+	}
+	
+	@Override
+	public Set<Map.Entry<K,V>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<K,V>>()
+			{
+				@Override
+				public Iterator<Map.Entry<K,V>> iterator()
+				{
+					return new Iterator<Map.Entry<K,V>>()
+					{
+						private int next = 0;
+						
+						public boolean hasNext()
+						{
+							return next < keys.length;
+						}
+						
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K,V> next()
+						{
+							if (next >= keys.length) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<K,V> entry = new AbstractMap.SimpleImmutableEntry<K,V>((K) keys[next], (V) values[next]);
+							next++;
+							return entry;
+						}
+						
+						public void remove()
+						{
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				
+				@Override
+				public int size()
+				{
+					return keys.length;
+				}
+			};
+		}
+		return entrySet;
+	}
+	
+	private int indexOf(Object key)
+	{
+		int h = hash(key);
+		int mask = slots.length - 1;
+		int slot = h & mask;
+		int i;
+		while ((i = slots[slot]) != 0) {
+			i--;
+			if (hashes[i] == h && Objects.equal(key, keys[i])) {
+				return i;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	private static int hash(Object key)
+	{
+		// spread the bits, since the table is indexed by the low bits only
+		int h = (key == null ? 0 : key.hashCode()) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+/**
+ * Builds a result container from a series of elements.
+ * 
+ * <p>A GroupCollector can be used to fill a container in one pass, or in
+ * several independent passes over parts of the input whose containers are then
+ * combined. {@link Groupers} provides implementations for the groupers and
+ * group totals in this package, as well as methods to run them in parallel.
+ * 
+ * <p>Implementations must be safe to use from several threads at once; the
+ * containers they create need not be.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <T> The element type
+ * @param <R> The result container type
+ */
+public interface GroupCollector<T,R>
+{
+	/**
+	 * Creates a new, empty result container.
+	 * 
+	 * @return The new container
+	 */
+	public R create();
+	
+	/**
+	 * Adds an element into a result container.
+	 * 
+	 * @param container The container
+	 * @param element The element to add
+	 */
+	public void accumulate(R container, T element);
+	
+	/**
+	 * Combines two result containers.
+	 * 
+	 * <p>The elements in {@code right} came after those in {@code left}.
+	 * Implementations may add {@code right} into {@code left} and return it.
+	 * 
+	 * @param left The first container
+	 * @param right The second container
+	 * @return The combined container
+	 */
+	public R combine(R left, R right);
+}
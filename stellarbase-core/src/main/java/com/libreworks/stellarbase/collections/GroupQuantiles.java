@@ -0,0 +1,210 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A Map that stores a quantile sketch for a group name.
+ * 
+ * <p>Reporting percentiles per group with a {@link SingleGrouper} means keeping
+ * and sorting every value. This class keeps a {@link TDigest} per group
+ * instead, so each group uses bounded memory and percentiles can be read at
+ * any time. For example, to report p99 latency per endpoint:
+ * <pre>
+ * GroupQuantiles latencies = new GroupQuantiles();
+ * latencies.add("/login", 12.5);
+ * SingleGroupTotal p99 = latencies.getQuantiles(0.99);
+ * </pre>
+ * 
+ * <p>Partial results can be combined with {@link #merge(GroupQuantiles)}. The
+ * digests returned by {@link #get(Object)} are live; use the {@code add}
+ * methods here to change them. This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class GroupQuantiles extends AbstractMapDelegate<Comparable<?>,TDigest>
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final double compression;
+
+	/**
+	 * Creates a new GroupQuantiles backed by a HashMap with the default compression
+	 */
+	public GroupQuantiles()
+	{
+		this(TDigest.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Creates a new GroupQuantiles backed by a HashMap
+	 * 
+	 * @param compression
+	 *            The compression of each group's digest
+	 * @throws IllegalArgumentException if {@code compression} is less than 10
+	 */
+	public GroupQuantiles(double compression)
+	{
+		this(new HashMap<Comparable<?>,TDigest>(), compression);
+	}
+
+	/**
+	 * Creates a new GroupQuantiles with a custom delegate
+	 * 
+	 * @param delegate
+	 *            The map to use to store the groups and digests
+	 * @param compression
+	 *            The compression of each group's digest
+	 * @throws IllegalArgumentException if {@code compression} is less than 10
+	 */
+	public GroupQuantiles(Map<Comparable<?>,TDigest> delegate, double compression)
+	{
+		super(delegate);
+		this.compression = TDigest.checkCompression(compression);
+	}
+	
+	/**
+	 * Adds a value to a group
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 * @throws IllegalArgumentException if {@code value} is NaN
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		getOrCreate(key).add(value);
+	}
+
+	/**
+	 * Adds all the values to a group, skipping any nulls
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 * @throws IllegalArgumentException if any value is NaN
+	 */
+	public void addAll(Comparable<?> key, Collection<? extends Number> values)
+	{
+		TDigest digest = getOrCreate(key);
+		for (Number value : values) {
+			if (value != null) {
+				digest.add(value.doubleValue());
+			}
+		}
+	}
+	
+	/**
+	 * Estimates the value at a quantile for a group.
+	 * 
+	 * @param key The group
+	 * @param q The quantile, from 0 to 1
+	 * @return The estimated value, or NaN if the group doesn't exist
+	 * @throws IllegalArgumentException if {@code q} is out of range
+	 */
+	public double getQuantile(Object key, double q)
+	{
+		TDigest digest = delegate.get(key);
+		return digest == null ? Double.NaN : digest.quantile(q);
+	}
+	
+	/**
+	 * Estimates the value at a quantile for every group.
+	 * 
+	 * @param q The quantile, from 0 to 1
+	 * @return A new map of groups to their estimated values
+	 * @throws IllegalArgumentException if {@code q} is out of range
+	 */
+	public SingleGroupTotal getQuantiles(double q)
+	{
+		SingleGroupTotal quantiles = new SingleGroupTotal();
+		for (Map.Entry<Comparable<?>,TDigest> entry : delegate.entrySet()) {
+			quantiles.add(entry.getKey(), entry.getValue().quantile(q));
+		}
+		return quantiles;
+	}
+	
+	/**
+	 * Merges the digests of another GroupQuantiles into this one.
+	 * 
+	 * @param other The other instance
+	 * @return This instance
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public GroupQuantiles merge(GroupQuantiles other)
+	{
+		Arguments.checkNull(other);
+		for (Map.Entry<Comparable<?>,TDigest> entry : other.entrySet()) {
+			TDigest digest = delegate.get(entry.getKey());
+			if (digest == null) {
+				delegate.put(entry.getKey(), new TDigest(compression).merge(entry.getValue()));
+			} else {
+				digest.merge(entry.getValue());
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Gets the compression of each group's digest.
+	 * 
+	 * @return The compression
+	 */
+	public double getCompression()
+	{
+		return compression;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	public TDigest put(Comparable<?> arg0, TDigest arg1)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	public void putAll(Map<? extends Comparable<?>,? extends TDigest> arg0)
+	{
+		throw new UnsupportedOperationException("Use the 'merge' method");
+	}
+	
+	private TDigest getOrCreate(Comparable<?> key)
+	{
+		TDigest digest = delegate.get(key);
+		if (digest == null) {
+			digest = new TDigest(compression);
+			delegate.put(key, digest);
+		}
+		return digest;
+	}
+}
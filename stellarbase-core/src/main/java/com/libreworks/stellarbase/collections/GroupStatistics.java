@@ -0,0 +1,175 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.libreworks.stellarbase.math.RunningStatistics;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A Map that stores running statistics for a group name.
+ * 
+ * <p>Where {@link SingleGroupTotal} keeps only a sum, this class keeps a
+ * {@link RunningStatistics} per group: the count, minimum, maximum,
+ * compensated sum, mean, and variance. Each group uses constant space, so the
+ * values no longer need to be kept in a {@link SingleGrouper} to compute an
+ * average or a spread.
+ * 
+ * <p>Partial results can be combined with {@link #merge(GroupStatistics)}.
+ * The statistics returned by {@link #get(Object)} are live; use the
+ * {@code add} methods here to change them.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class GroupStatistics extends AbstractMapDelegate<Comparable<?>,RunningStatistics>
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new GroupStatistics backed by a HashMap
+	 */
+	public GroupStatistics()
+	{
+		this(new HashMap<Comparable<?>,RunningStatistics>());
+	}
+
+	/**
+	 * Creates a new GroupStatistics with a custom delegate
+	 * 
+	 * @param delegate
+	 *            The map to use to store the groups and statistics
+	 */
+	public GroupStatistics(Map<Comparable<?>,RunningStatistics> delegate)
+	{
+		super(delegate);
+	}
+
+	/**
+	 * Adds a value to a group
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		getOrCreate(key).add(value);
+	}
+
+	/**
+	 * Adds all the values to a group, skipping any nulls
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 */
+	public void addAll(Comparable<?> key, Collection<? extends Number> values)
+	{
+		RunningStatistics stats = getOrCreate(key);
+		for (Number value : values) {
+			if (value != null) {
+				stats.add(value.doubleValue());
+			}
+		}
+	}
+	
+	/**
+	 * Merges the statistics of another GroupStatistics into this one.
+	 * 
+	 * @param other The other instance
+	 * @return This instance
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public GroupStatistics merge(GroupStatistics other)
+	{
+		Arguments.checkNull(other);
+		for (Map.Entry<Comparable<?>,RunningStatistics> entry : other.entrySet()) {
+			RunningStatistics stats = delegate.get(entry.getKey());
+			if (stats == null) {
+				delegate.put(entry.getKey(), entry.getValue().copy());
+			} else {
+				stats.merge(entry.getValue());
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Gets the means of every group.
+	 * 
+	 * @return A new map of groups to their means
+	 */
+	public SingleGroupTotal getMeans()
+	{
+		SingleGroupTotal means = new SingleGroupTotal();
+		for (Map.Entry<Comparable<?>,RunningStatistics> entry : delegate.entrySet()) {
+			means.add(entry.getKey(), entry.getValue().getMean());
+		}
+		return means;
+	}
+	
+	/**
+	 * Gets the sums of every group.
+	 * 
+	 * @return A new map of groups to their compensated sums
+	 */
+	public SingleGroupTotal getSums()
+	{
+		SingleGroupTotal sums = new SingleGroupTotal();
+		for (Map.Entry<Comparable<?>,RunningStatistics> entry : delegate.entrySet()) {
+			sums.add(entry.getKey(), entry.getValue().getSum());
+		}
+		return sums;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	public RunningStatistics put(Comparable<?> arg0, RunningStatistics arg1)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	public void putAll(Map<? extends Comparable<?>,? extends RunningStatistics> arg0)
+	{
+		throw new UnsupportedOperationException("Use the 'merge' method");
+	}
+	
+	private RunningStatistics getOrCreate(Comparable<?> key)
+	{
+		RunningStatistics stats = delegate.get(key);
+		if (stats == null) {
+			stats = new RunningStatistics();
+			delegate.put(key, stats);
+		}
+		return stats;
+	}
+}
@@ -0,0 +1,498 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Provides {@link GroupCollector}s for the groupers and group totals, and
+ * methods to run them sequentially or in parallel.
+ * 
+ * <p>For example, to group people by city using four threads:
+ * <pre>
+ * DoubleGrouper&lt;String,String,Person&gt; byCity = Groupers.collect(people,
+ *     Groupers.toDoubleGrouper(toState, toCity, factory), executor, 4);
+ * </pre>
+ * 
+ * <p>The parallel methods split the list into contiguous chunks, collect each
+ * chunk in its own container, then combine the containers in list order. The
+ * groupers' insertion order is the same as if the list was collected on one
+ * thread. Each chunk's containers come from the factory provided, so the
+ * factory must be safe to call from several threads at once.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class Groupers
+{
+	/**
+	 * Lists smaller than this many elements per chunk aren't worth splitting
+	 */
+	private static final int MIN_CHUNK_SIZE = 1024;
+	
+	private Groupers() {}
+	
+	/**
+	 * Collects the elements on the current thread.
+	 * 
+	 * @param elements The elements to collect
+	 * @param collector The collector
+	 * @return The result container
+	 */
+	public static <T,R> R collect(Iterable<? extends T> elements, GroupCollector<? super T,R> collector)
+	{
+		R container = collector.create();
+		for (T element : elements) {
+			collector.accumulate(container, element);
+		}
+		return container;
+	}
+	
+	/**
+	 * Collects the elements in parallel.
+	 * 
+	 * <p>The list is split into at most {@code parallelism} chunks, each of
+	 * which is collected by a task submitted to {@code executor}. The calling
+	 * thread waits for the tasks and combines their results. If any task
+	 * fails, the others are cancelled and its exception is rethrown.
+	 * 
+	 * @param elements The elements to collect
+	 * @param collector The collector
+	 * @param executor The executor to run the chunks
+	 * @param parallelism The maximum number of chunks
+	 * @return The result container
+	 * @throws IllegalArgumentException if {@code parallelism} is less than 1
+	 */
+	public static <T,R> R collect(List<? extends T> elements, final GroupCollector<? super T,R> collector, ExecutorService executor, int parallelism)
+	{
+		Arguments.checkNull(executor);
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		int size = elements.size();
+		int chunks = Math.min(parallelism, size / MIN_CHUNK_SIZE);
+		if (chunks < 2) {
+			return collect(elements, collector);
+		}
+		List<Future<R>> futures = new ArrayList<Future<R>>(chunks);
+		try {
+			for (int i = 0; i < chunks; i++) {
+				final List<? extends T> chunk = elements.subList(
+					(int) ((long) size * i / chunks), (int) ((long) size * (i + 1) / chunks));
+				futures.add(executor.submit(new Callable<R>() {
+					public R call()
+					{
+						return collect(chunk, collector);
+					}
+				}));
+			}
+			R result = null;
+			for (Future<R> future : futures) {
+				R part = Futures.getUnchecked(future);
+				result = result == null ? part : collector.combine(result, part);
+			}
+			return result;
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} finally {
+			for (Future<R> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link SingleGrouper} using its
+	 * default containers.
+	 * 
+	 * @param group Gets the group for an element
+	 * @return The collector
+	 */
+	@SuppressWarnings("deprecation")
+	public static <K,V> GroupCollector<V,SingleGrouper<K,V>> toSingleGrouper(Function<? super V,? extends K> group)
+	{
+		return toSingleGrouper(group, null);
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link SingleGrouper}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param factory The factory for the grouper's containers, or null for the default
+	 * @return The collector
+	 */
+	@SuppressWarnings("deprecation")
+	public static <K,V> GroupCollector<V,SingleGrouper<K,V>> toSingleGrouper(final Function<? super V,? extends K> group, final SingleGrouperFactory<K,V> factory)
+	{
+		Arguments.checkNull(group);
+		return new GroupCollector<V,SingleGrouper<K,V>>()
+		{
+			public SingleGrouper<K,V> create()
+			{
+				return factory == null ? new SingleGrouper<K,V>() : new SingleGrouper<K,V>(factory);
+			}
+			public void accumulate(SingleGrouper<K,V> container, V element)
+			{
+				container.add(group.apply(element), element);
+			}
+			public SingleGrouper<K,V> combine(SingleGrouper<K,V> left, SingleGrouper<K,V> right)
+			{
+				for (Map.Entry<K,Collection<V>> entry : right.entrySet()) {
+					left.addAll(entry.getKey(), entry.getValue());
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link DoubleGrouper} using its
+	 * default containers.
+	 * 
+	 * @param group1 Gets the outer group for an element
+	 * @param group2 Gets the inner group for an element
+	 * @return The collector
+	 */
+	public static <A,B,V> GroupCollector<V,DoubleGrouper<A,B,V>> toDoubleGrouper(Function<? super V,? extends A> group1, Function<? super V,? extends B> group2)
+	{
+		return toDoubleGrouper(group1, group2, null);
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link DoubleGrouper}.
+	 * 
+	 * @param group1 Gets the outer group for an element
+	 * @param group2 Gets the inner group for an element
+	 * @param factory The factory for the grouper's containers, or null for the default
+	 * @return The collector
+	 */
+	public static <A,B,V> GroupCollector<V,DoubleGrouper<A,B,V>> toDoubleGrouper(final Function<? super V,? extends A> group1, final Function<? super V,? extends B> group2, final DoubleGrouperFactory<A,B,V> factory)
+	{
+		Arguments.checkNull(group1);
+		Arguments.checkNull(group2);
+		return new GroupCollector<V,DoubleGrouper<A,B,V>>()
+		{
+			public DoubleGrouper<A,B,V> create()
+			{
+				return factory == null ? new DoubleGrouper<A,B,V>() : new DoubleGrouper<A,B,V>(factory);
+			}
+			public void accumulate(DoubleGrouper<A,B,V> container, V element)
+			{
+				container.add(group1.apply(element), group2.apply(element), element);
+			}
+			public DoubleGrouper<A,B,V> combine(DoubleGrouper<A,B,V> left, DoubleGrouper<A,B,V> right)
+			{
+				for (Map.Entry<A,Map<B,Collection<V>>> outer : right.entrySet()) {
+					for (Map.Entry<B,Collection<V>> inner : outer.getValue().entrySet()) {
+						left.addAll(outer.getKey(), inner.getKey(), inner.getValue());
+					}
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link TripleGrouper} using its
+	 * default containers.
+	 * 
+	 * @param group1 Gets the far outer group for an element
+	 * @param group2 Gets the outer group for an element
+	 * @param group3 Gets the inner group for an element
+	 * @return The collector
+	 */
+	public static <A,B,C,V> GroupCollector<V,TripleGrouper<A,B,C,V>> toTripleGrouper(Function<? super V,? extends A> group1, Function<? super V,? extends B> group2, Function<? super V,? extends C> group3)
+	{
+		return toTripleGrouper(group1, group2, group3, null);
+	}
+	
+	/**
+	 * Creates a collector that groups elements into a {@link TripleGrouper}.
+	 * 
+	 * @param group1 Gets the far outer group for an element
+	 * @param group2 Gets the outer group for an element
+	 * @param group3 Gets the inner group for an element
+	 * @param factory The factory for the grouper's containers, or null for the default
+	 * @return The collector
+	 */
+	public static <A,B,C,V> GroupCollector<V,TripleGrouper<A,B,C,V>> toTripleGrouper(final Function<? super V,? extends A> group1, final Function<? super V,? extends B> group2, final Function<? super V,? extends C> group3, final TripleGrouperFactory<A,B,C,V> factory)
+	{
+		Arguments.checkNull(group1);
+		Arguments.checkNull(group2);
+		Arguments.checkNull(group3);
+		return new GroupCollector<V,TripleGrouper<A,B,C,V>>()
+		{
+			public TripleGrouper<A,B,C,V> create()
+			{
+				return factory == null ? new TripleGrouper<A,B,C,V>() : new TripleGrouper<A,B,C,V>(factory);
+			}
+			public void accumulate(TripleGrouper<A,B,C,V> container, V element)
+			{
+				container.add(group1.apply(element), group2.apply(element), group3.apply(element), element);
+			}
+			public TripleGrouper<A,B,C,V> combine(TripleGrouper<A,B,C,V> left, TripleGrouper<A,B,C,V> right)
+			{
+				for (Map.Entry<A,Map<B,Map<C,Collection<V>>>> far : right.entrySet()) {
+					for (Map.Entry<B,Map<C,Collection<V>>> outer : far.getValue().entrySet()) {
+						for (Map.Entry<C,Collection<V>> inner : outer.getValue().entrySet()) {
+							left.addAll(far.getKey(), outer.getKey(), inner.getKey(), inner.getValue());
+						}
+					}
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that totals elements into a {@link SingleGroupTotal}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to add for an element (null counts as zero)
+	 * @return The collector
+	 */
+	public static <T> GroupCollector<T,SingleGroupTotal> toSingleGroupTotal(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,? extends Number> value)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		return new GroupCollector<T,SingleGroupTotal>()
+		{
+			public SingleGroupTotal create()
+			{
+				return new SingleGroupTotal();
+			}
+			public void accumulate(SingleGroupTotal container, T element)
+			{
+				Number n = value.apply(element);
+				container.add(group.apply(element), n == null ? null : n.doubleValue());
+			}
+			public SingleGroupTotal combine(SingleGroupTotal left, SingleGroupTotal right)
+			{
+				for (Map.Entry<Comparable<?>,Double> entry : right.entrySet()) {
+					left.add(entry.getKey(), entry.getValue());
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that totals elements into a {@link PrimitiveGroupTotal}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to add for an element (null counts as zero)
+	 * @return The collector
+	 */
+	public static <T> GroupCollector<T,PrimitiveGroupTotal> toPrimitiveGroupTotal(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,? extends Number> value)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		return new GroupCollector<T,PrimitiveGroupTotal>()
+		{
+			public PrimitiveGroupTotal create()
+			{
+				return new PrimitiveGroupTotal();
+			}
+			public void accumulate(PrimitiveGroupTotal container, T element)
+			{
+				Number n = value.apply(element);
+				container.add(group.apply(element), n == null ? 0.0 : n.doubleValue());
+			}
+			public PrimitiveGroupTotal combine(PrimitiveGroupTotal left, PrimitiveGroupTotal right)
+			{
+				for (Map.Entry<Comparable<?>,Double> entry : right.entrySet()) {
+					left.add(entry.getKey(), entry.getValue().doubleValue());
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that totals exact decimals into a {@link DecimalGroupTotal}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to add for an element (null counts as zero)
+	 * @return The collector
+	 */
+	public static <T> GroupCollector<T,DecimalGroupTotal> toDecimalGroupTotal(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,? extends Number> value)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		return new GroupCollector<T,DecimalGroupTotal>()
+		{
+			public DecimalGroupTotal create()
+			{
+				return new DecimalGroupTotal();
+			}
+			public void accumulate(DecimalGroupTotal container, T element)
+			{
+				container.add(group.apply(element), value.apply(element));
+			}
+			public DecimalGroupTotal combine(DecimalGroupTotal left, DecimalGroupTotal right)
+			{
+				return left.merge(right);
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that gathers running statistics into a {@link GroupStatistics}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to add for an element (null is skipped)
+	 * @return The collector
+	 */
+	public static <T> GroupCollector<T,GroupStatistics> toGroupStatistics(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,? extends Number> value)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		return new GroupCollector<T,GroupStatistics>()
+		{
+			public GroupStatistics create()
+			{
+				return new GroupStatistics();
+			}
+			public void accumulate(GroupStatistics container, T element)
+			{
+				Number n = value.apply(element);
+				if (n != null) {
+					container.add(group.apply(element), n.doubleValue());
+				}
+			}
+			public GroupStatistics combine(GroupStatistics left, GroupStatistics right)
+			{
+				return left.merge(right);
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that sketches quantiles into a {@link GroupQuantiles}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to add for an element (null is skipped)
+	 * @param compression The compression of each group's digest
+	 * @return The collector
+	 * @throws IllegalArgumentException if {@code compression} is less than 10
+	 */
+	public static <T> GroupCollector<T,GroupQuantiles> toGroupQuantiles(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,? extends Number> value, final double compression)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		TDigest.checkCompression(compression);
+		return new GroupCollector<T,GroupQuantiles>()
+		{
+			public GroupQuantiles create()
+			{
+				return new GroupQuantiles(compression);
+			}
+			public void accumulate(GroupQuantiles container, T element)
+			{
+				Number n = value.apply(element);
+				if (n != null) {
+					container.add(group.apply(element), n.doubleValue());
+				}
+			}
+			public GroupQuantiles combine(GroupQuantiles left, GroupQuantiles right)
+			{
+				return left.merge(right);
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that totals elements into a {@link DoubleGroupTotal}.
+	 * 
+	 * @param group1 Gets the first group for an element
+	 * @param group2 Gets the second group for an element
+	 * @param value Gets the value to add for an element (null counts as zero)
+	 * @return The collector
+	 */
+	public static <T> GroupCollector<T,DoubleGroupTotal> toDoubleGroupTotal(final Function<? super T,? extends String> group1, final Function<? super T,? extends Comparable<?>> group2, final Function<? super T,? extends Number> value)
+	{
+		Arguments.checkNull(group1);
+		Arguments.checkNull(group2);
+		Arguments.checkNull(value);
+		return new GroupCollector<T,DoubleGroupTotal>()
+		{
+			public DoubleGroupTotal create()
+			{
+				return new DoubleGroupTotal();
+			}
+			public void accumulate(DoubleGroupTotal container, T element)
+			{
+				Number n = value.apply(element);
+				container.add(group1.apply(element), group2.apply(element), n == null ? null : n.doubleValue());
+			}
+			public DoubleGroupTotal combine(DoubleGroupTotal left, DoubleGroupTotal right)
+			{
+				for (Map.Entry<String,SingleGroupTotal> outer : right.entrySet()) {
+					for (Map.Entry<Comparable<?>,Double> inner : outer.getValue().entrySet()) {
+						left.add(outer.getKey(), inner.getKey(), inner.getValue());
+					}
+				}
+				return left;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a collector that counts distinct elements per group into a
+	 * {@link DistinctGroupCount}.
+	 * 
+	 * @param group Gets the group for an element
+	 * @param value Gets the value to count for an element
+	 * @param precision The precision of each group's sketch
+	 * @return The collector
+	 * @throws IllegalArgumentException if {@code precision} is out of range
+	 */
+	public static <T> GroupCollector<T,DistinctGroupCount> toDistinctGroupCount(final Function<? super T,? extends Comparable<?>> group, final Function<? super T,?> value, final int precision)
+	{
+		Arguments.checkNull(group);
+		Arguments.checkNull(value);
+		HyperLogLog.checkPrecision(precision);
+		return new GroupCollector<T,DistinctGroupCount>()
+		{
+			public DistinctGroupCount create()
+			{
+				return new DistinctGroupCount(precision);
+			}
+			public void accumulate(DistinctGroupCount container, T element)
+			{
+				container.add(group.apply(element), value.apply(element));
+			}
+			public DistinctGroupCount combine(DistinctGroupCount left, DistinctGroupCount right)
+			{
+				return left.merge(right);
+			}
+		};
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A HyperLogLog sketch that estimates the number of distinct objects offered.
+ * 
+ * <p>The sketch keeps 2<sup>precision</sup> one-byte registers, regardless of
+ * how many objects are offered. The relative standard error of the estimate
+ * is about 1.04 / &radic;2<sup>precision</sup>, so the default precision of 12
+ * uses 4 KB and is typically within 1.6% of the true count. Small counts are
+ * estimated with linear counting, which is nearly exact.
+ * 
+ * <p>Two sketches with the same precision can be merged, and the result is the
+ * same as if one sketch had been offered every object. This means sketches can
+ * be built on separate threads or machines and combined afterward. Objects are
+ * hashed using their {@code hashCode}, except for {@link CharSequence}s and
+ * integral {@link Number}s, which are hashed by value. Objects that are equal
+ * must therefore have equal hash codes, and {@code null} counts as a value.
+ * 
+ * <p>This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class HyperLogLog implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The default precision
+	 */
+	public static final int DEFAULT_PRECISION = 12;
+	/**
+	 * The smallest precision allowed
+	 */
+	public static final int MIN_PRECISION = 4;
+	/**
+	 * The largest precision allowed
+	 */
+	public static final int MAX_PRECISION = 18;
+	
+	private static final HashFunction HASH = Hashing.murmur3_128();
+	
+	private final int precision;
+	private final byte[] registers;
+	
+	/**
+	 * Creates a new HyperLogLog with the default precision.
+	 */
+	public HyperLogLog()
+	{
+		this(DEFAULT_PRECISION);
+	}
+	
+	/**
+	 * Creates a new HyperLogLog.
+	 * 
+	 * @param precision The number of bits used to pick a register, from 4 to 18
+	 * @throws IllegalArgumentException if {@code precision} is out of range
+	 */
+	public HyperLogLog(int precision)
+	{
+		this.precision = checkPrecision(precision);
+		this.registers = new byte[1 << precision];
+	}
+	
+	/**
+	 * Makes sure a precision is valid.
+	 * 
+	 * @param precision The precision
+	 * @return {@code precision}
+	 * @throws IllegalArgumentException if {@code precision} is out of range
+	 */
+	static int checkPrecision(int precision)
+	{
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+		}
+		return precision;
+	}
+	
+	private HyperLogLog(HyperLogLog other)
+	{
+		this.precision = other.precision;
+		this.registers = other.registers.clone();
+	}
+	
+	/**
+	 * Offers an object to the sketch.
+	 * 
+	 * @param o The object, which may be null
+	 * @return Whether the sketch changed
+	 */
+	public boolean offer(Object o)
+	{
+		return offerHash(hash(o));
+	}
+	
+	/**
+	 * Offers a 64-bit hash to the sketch.
+	 * 
+	 * <p>The hash must be well distributed over all 64 bits.
+	 * 
+	 * @param hash The hash
+	 * @return Whether the sketch changed
+	 */
+	public boolean offerHash(long hash)
+	{
+		int index = (int) (hash >>> (64 - precision));
+		// the guard bit caps the run of zeros for the remaining bits
+		long rest = (hash << precision) | (1L << (precision - 1));
+		byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+		if (registers[index] < rank) {
+			registers[index] = rank;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets the estimated number of distinct objects offered.
+	 * 
+	 * @return The estimate
+	 */
+	public long cardinality()
+	{
+		int m = registers.length;
+		double sum = 0.0;
+		int zeros = 0;
+		for (byte r : registers) {
+			if (r == 0) {
+				zeros++;
+			}
+			sum += 1.0 / (1L << r);
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+	
+	/**
+	 * Merges another sketch into this one.
+	 * 
+	 * @param other The other sketch, which must have the same precision
+	 * @return This sketch
+	 * @throws IllegalArgumentException if {@code other} is null or has a different precision
+	 */
+	public HyperLogLog merge(HyperLogLog other)
+	{
+		Arguments.checkNull(other);
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Sketches with different precisions can't be merged");
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (registers[i] < other.registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Creates an independent copy of this sketch.
+	 * 
+	 * @return The copy
+	 */
+	public HyperLogLog copy()
+	{
+		return new HyperLogLog(this);
+	}
+	
+	/**
+	 * Resets the sketch to empty.
+	 */
+	public void clear()
+	{
+		Arrays.fill(registers, (byte) 0);
+	}
+	
+	/**
+	 * Gets the precision.
+	 * 
+	 * @return The number of bits used to pick a register
+	 */
+	public int getPrecision()
+	{
+		return precision;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof HyperLogLog)) {
+			return false;
+		}
+		HyperLogLog other = (HyperLogLog) obj;
+		return precision == other.precision && Arrays.equals(registers, other.registers);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * precision + Arrays.hashCode(registers);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "HyperLogLog[precision=" + precision + ", cardinality=" + cardinality() + "]";
+	}
+	
+	private static double alpha(int m)
+	{
+		switch (m) {
+			case 16:
+				return 0.673;
+			case 32:
+				return 0.697;
+			case 64:
+				return 0.709;
+			default:
+				return 0.7213 / (1.0 + 1.079 / m);
+		}
+	}
+	
+	private static long hash(Object o)
+	{
+		if (o instanceof CharSequence) {
+			return HASH.hashUnencodedChars((CharSequence) o).asLong();
+		} else if (o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte) {
+			return HASH.hashLong(((Number) o).longValue()).asLong();
+		}
+		return HASH.hashInt(o == null ? 0 : o.hashCode()).asLong();
+	}
+}
@@ -347,6 +347,38 @@ public class Maps
 		 * @return the built map
 		 */
 		public abstract Map<K,V> toImmutableMap();
+		
+		/**
+		 * Returns a read-only {@link Map} that stores the entries in one flat
+		 * array and finds keys with a linear scan.
+		 * 
+		 * <p>This is meant for tiny maps, up to about 8 entries, where it uses
+		 * far less memory than a hash table and is just as quick to read. Null
+		 * keys and values are allowed, and the entries iterate in the order
+		 * they were added.
+		 * 
+		 * @return the built map
+		 */
+		public Map<K,V> toCompactMap()
+		{
+			return new CompactMap<K,V>(delegate);
+		}
+		
+		/**
+		 * Returns a read-only {@link Map} backed by an open-addressing table
+		 * sized exactly for the entries added.
+		 * 
+		 * <p>This is meant for larger lookup tables that are built once and
+		 * read many times. Unlike {@link #toImmutableMap()}, null keys and
+		 * values are allowed, and the entries iterate in the order they were
+		 * added.
+		 * 
+		 * @return the built map
+		 */
+		public Map<K,V> toFrozenMap()
+		{
+			return new FrozenMap<K,V>(delegate);
+		}
 	}
 	
 	/**
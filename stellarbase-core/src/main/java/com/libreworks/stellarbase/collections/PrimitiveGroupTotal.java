@@ -0,0 +1,415 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.libreworks.stellarbase.math.SafeMath;
+
+/**
+ * A Map that stores a running total for a group name using primitive doubles.
+ *
+ * <p>This class behaves like {@link SingleGroupTotal}, but instead of storing
+ * boxed {@link Double} objects in a {@link java.util.HashMap}, the keys live in
+ * an open-addressing table with a parallel {@code double[]} for the totals.
+ * Calling {@link #add(Comparable, double)} for an existing group performs a
+ * single probe sequence and doesn't allocate anything. Unlike SingleGroupTotal,
+ * the value to add is a primitive, so a null {@link Double} can't be passed.
+ *
+ * <p>The {@link Map} methods are available so this class can be used anywhere a
+ * SingleGroupTotal was read; {@link #get(Object)} and the entry views box their
+ * values on demand. Use {@link #getTotal(Object)} to read a primitive total.
+ *
+ * <p>Like HashMap, this class is not thread-safe.
+ *
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class PrimitiveGroupTotal extends AbstractMap<Comparable<?>,Double> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final int MIN_CAPACITY = 8;
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final float LOAD_FACTOR = 0.75f;
+	/**
+	 * Stands in for the null key, since null marks an empty slot
+	 */
+	private static final Object NULL_KEY = new Object();
+	/**
+	 * Marks a slot whose entry was removed
+	 */
+	private static final Object REMOVED = new Object();
+
+	private transient Object[] keys;
+	private transient double[] values;
+	private transient int size;
+	private transient int used;
+	private transient int threshold;
+	private transient int modCount;
+	private transient Set<Map.Entry<Comparable<?>,Double>> entrySet;
+
+	/**
+	 * Creates a new PrimitiveGroupTotal with a default capacity.
+	 */
+	public PrimitiveGroupTotal()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a new PrimitiveGroupTotal sized to hold a number of groups without resizing.
+	 *
+	 * @param expectedSize The expected number of groups
+	 * @throws IllegalArgumentException if {@code expectedSize} is negative
+	 */
+	public PrimitiveGroupTotal(int expectedSize)
+	{
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize cannot be negative");
+		}
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Adds a value to a group
+	 *
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		Object k = maskNull(key);
+		int mask = keys.length - 1;
+		int i = hash(k) & mask;
+		int free = -1;
+		Object current;
+		while ((current = keys[i]) != null) {
+			if (current == REMOVED) {
+				if (free < 0) {
+					free = i;
+				}
+			} else if (current == k || current.equals(k)) {
+				values[i] += value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		if (free < 0) {
+			free = i;
+			used++;
+		}
+		keys[free] = k;
+		values[free] = value;
+		size++;
+		modCount++;
+		if (used > threshold) {
+			// only grow if the table is full of live entries, not tombstones
+			rehash(size >= (threshold >> 1) ? keys.length << 1 : keys.length);
+		}
+	}
+
+	/**
+	 * Adds all the values to a group
+	 *
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 */
+	public void addAll(Comparable<?> key, Collection<Double> values)
+	{
+		add(key, SafeMath.sum(values, Double.class).doubleValue());
+	}
+
+	/**
+	 * Gets the total for a group as a primitive.
+	 *
+	 * @param key The group
+	 * @return The total, or zero if the group doesn't exist
+	 */
+	public double getTotal(Object key)
+	{
+		int i = indexOf(maskNull(key));
+		return i < 0 ? 0.0 : values[i];
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(maskNull(key)) > -1;
+	}
+
+	@Override
+	public Double get(Object key)
+	{
+		int i = indexOf(maskNull(key));
+		return i < 0 ? null : Double.valueOf(values[i]);
+	}
+
+	@Override
+	public Double remove(Object key)
+	{
+		int i = indexOf(maskNull(key));
+		if (i < 0) {
+			return null;
+		}
+		Double old = Double.valueOf(values[i]);
+		removeAt(i);
+		return old;
+	}
+
+	@Override
+	public void clear()
+	{
+		if (size > 0 || used > 0) {
+			Arrays.fill(keys, null);
+			Arrays.fill(values, 0.0);
+			size = 0;
+			used = 0;
+			modCount++;
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<Comparable<?>,Double>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Double put(Comparable<?> arg0, Double arg1)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	@Override
+	public void putAll(Map<? extends Comparable<?>,? extends Double> arg0)
+	{
+		throw new UnsupportedOperationException("Use the 'addAll' method");
+	}
+
+	private int indexOf(Object k)
+	{
+		int mask = keys.length - 1;
+		int i = hash(k) & mask;
+		Object current;
+		while ((current = keys[i]) != null) {
+			if (current != REMOVED && (current == k || current.equals(k))) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void removeAt(int i)
+	{
+		keys[i] = REMOVED;
+		values[i] = 0.0;
+		size--;
+		modCount++;
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new Object[capacity];
+		values = new double[capacity];
+		threshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE : (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void rehash(int capacity)
+	{
+		Object[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(Math.min(capacity, MAX_CAPACITY));
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			Object k = oldKeys[j];
+			if (k != null && k != REMOVED) {
+				int i = hash(k) & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = k;
+				values[i] = oldValues[j];
+			}
+		}
+		used = size;
+	}
+
+	private static int tableSizeFor(int expectedSize)
+	{
+		long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+		int capacity = MIN_CAPACITY;
+		while (capacity < needed && capacity < MAX_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(Object k)
+	{
+		// spread the bits, since the table is indexed by the low bits only
+		int h = k.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static Object maskNull(Object key)
+	{
+		return key == null ? NULL_KEY : key;
+	}
+
+	private static Comparable<?> unmaskNull(Object key)
+	{
+		return key == NULL_KEY ? null : (Comparable<?>) key;
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException
+	{
+		s.defaultWriteObject();
+		s.writeInt(size);
+		for (int i = 0; i < keys.length; i++) {
+			Object k = keys[i];
+			if (k != null && k != REMOVED) {
+				s.writeObject(unmaskNull(k));
+				s.writeDouble(values[i]);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
+	{
+		s.defaultReadObject();
+		int count = s.readInt();
+		if (count < 0) {
+			throw new InvalidObjectException("Invalid size: " + count);
+		}
+		allocate(tableSizeFor(count));
+		for (int i = 0; i < count; i++) {
+			add((Comparable<?>) s.readObject(), s.readDouble());
+		}
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<Comparable<?>,Double>>
+	{
+		@Override
+		public Iterator<Map.Entry<Comparable<?>,Double>> iterator()
+		{
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public void clear()
+		{
+			PrimitiveGroupTotal.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Comparable<?>,Double>>
+	{
+		private int next = -1;
+		private int last = -1;
+		private int expectedModCount = modCount;
+
+		EntryIterator()
+		{
+			advance();
+		}
+
+		private void advance()
+		{
+			do {
+				next++;
+			} while (next < keys.length && (keys[next] == null || keys[next] == REMOVED));
+		}
+
+		public boolean hasNext()
+		{
+			return next < keys.length;
+		}
+
+		public Map.Entry<Comparable<?>,Double> next()
+		{
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= keys.length) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			advance();
+			return new AbstractMap.SimpleImmutableEntry<Comparable<?>,Double>(
+				unmaskNull(keys[last]), Double.valueOf(values[last]));
+		}
+
+		public void remove()
+		{
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			// leaving a tombstone means no entries move during iteration
+			removeAt(last);
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+}
@@ -0,0 +1,477 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Closeables;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Groups elements like {@link SingleGrouper}, but spills to temporary files
+ * once too many elements are held in memory.
+ * 
+ * <p>Elements are grouped in a sorted map until {@code maxInMemory} elements
+ * have been added. Then the groups are written to a temporary file as a
+ * sorted run, using a {@link java.nio.channels.FileChannel}, and memory is
+ * cleared. Iterating merges the runs and the groups still in memory, so each
+ * group comes back once, in key order, with its elements in the order they
+ * were added. Only one group per run is loaded at a time. At most
+ * 64 runs are merged at once; when there are more,
+ * iterating first merges them in batches into fewer, larger runs. So the
+ * heap holds at most {@code maxInMemory} buffered elements, plus one group
+ * and one 64 KB read buffer for each of up to 64 runs.
+ * 
+ * <p>A {@link SingleGrouperFactory} must return its groups as a {@link Map},
+ * which can't represent groups that live on disk without loading them, so
+ * this class is used directly instead of through a factory:
+ * <pre>
+ * SpillingGrouper&lt;String,Row&gt; grouper = new SpillingGrouper&lt;String,Row&gt;(1000000);
+ * try {
+ *     for (Row row : rows) {
+ *         grouper.add(row.getAccount(), row);
+ *     }
+ *     for (Map.Entry&lt;String,List&lt;Row&gt;&gt; group : grouper) {
+ *         ...
+ *     }
+ * } finally {
+ *     grouper.close();
+ * }
+ * </pre>
+ * 
+ * <p>Keys and elements must be {@link java.io.Serializable}, and keys can't be
+ * null. Adding elements while iterating isn't supported. Call
+ * {@link #close()} to delete the temporary files. I/O errors are rethrown
+ * unchecked. This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <K> The group type
+ * @param <V> The element type
+ */
+public class SpillingGrouper<K,V> implements Iterable<Map.Entry<K,List<V>>>, Closeable
+{
+	/**
+	 * The most runs read at once
+	 */
+	static final int MAX_FAN_IN = 64;
+	private static final int BUFFER_SIZE = 65536;
+	
+	private final Comparator<? super K> comparator;
+	private final int maxInMemory;
+	private final File directory;
+	private TreeMap<K,List<V>> groups;
+	private int buffered;
+	private long size;
+	private final List<File> runs = new ArrayList<File>();
+	private final List<Run> open = new ArrayList<Run>();
+
+	/**
+	 * Creates a new SpillingGrouper for Comparable keys that spills to the default temporary directory.
+	 * 
+	 * @param maxInMemory The number of elements to hold before spilling
+	 * @throws IllegalArgumentException if {@code maxInMemory} is less than 1
+	 */
+	@SuppressWarnings("unchecked")
+	public SpillingGrouper(int maxInMemory)
+	{
+		this((Comparator<? super K>) Ordering.natural(), maxInMemory, null);
+	}
+	
+	/**
+	 * Creates a new SpillingGrouper.
+	 * 
+	 * @param comparator The order of the keys
+	 * @param maxInMemory The number of elements to hold before spilling
+	 * @param directory The directory for the temporary files, or null for the default
+	 * @throws IllegalArgumentException if {@code comparator} is null or {@code maxInMemory} is less than 1
+	 */
+	public SpillingGrouper(Comparator<? super K> comparator, int maxInMemory, File directory)
+	{
+		this.comparator = Arguments.checkNull(comparator);
+		if (maxInMemory < 1) {
+			throw new IllegalArgumentException("maxInMemory must be at least 1");
+		}
+		this.maxInMemory = maxInMemory;
+		this.directory = directory;
+		this.groups = new TreeMap<K,List<V>>(comparator);
+	}
+	
+	/**
+	 * Adds an element to a group.
+	 * 
+	 * @param group The group
+	 * @param element The element
+	 * @throws IllegalArgumentException if {@code group} is null
+	 */
+	public void add(K group, V element)
+	{
+		Arguments.checkNull(group);
+		List<V> elements = groups.get(group);
+		if (elements == null) {
+			elements = new ArrayList<V>();
+			groups.put(group, elements);
+		}
+		elements.add(element);
+		size++;
+		if (++buffered >= maxInMemory) {
+			spill();
+		}
+	}
+	
+	/**
+	 * Adds the elements to a group.
+	 * 
+	 * @param group The group
+	 * @param elements The elements
+	 * @throws IllegalArgumentException if {@code group} is null
+	 */
+	public void addAll(K group, Collection<? extends V> elements)
+	{
+		for (V element : elements) {
+			add(group, element);
+		}
+	}
+	
+	/**
+	 * Gets the number of elements added.
+	 * 
+	 * @return The number of elements
+	 */
+	public long size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Gets the number of sorted runs on disk.
+	 * 
+	 * <p>Iterating may merge the runs into fewer.
+	 * 
+	 * @return The number of runs
+	 */
+	public int getSpillCount()
+	{
+		return runs.size();
+	}
+	
+	/**
+	 * Gets an iterator over the groups in key order.
+	 * 
+	 * <p>The open files are closed when the iterator is exhausted, or when
+	 * this grouper is closed.
+	 * 
+	 * @return The iterator
+	 */
+	public Iterator<Map.Entry<K,List<V>>> iterator()
+	{
+		while (runs.size() > MAX_FAN_IN) {
+			mergeRuns();
+		}
+		return new MergeIterator(runs, groups.entrySet().iterator());
+	}
+	
+	/**
+	 * Deletes the temporary files and clears all groups.
+	 */
+	public void close()
+	{
+		for (Run run : new ArrayList<Run>(open)) {
+			run.close();
+		}
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		groups = new TreeMap<K,List<V>>(comparator);
+		buffered = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Gets the number of run files open for reading.
+	 * 
+	 * @return The number of open runs
+	 */
+	int getOpenCount()
+	{
+		return open.size();
+	}
+	
+	private void spill()
+	{
+		runs.add(write(groups.entrySet().iterator()));
+		groups = new TreeMap<K,List<V>>(comparator);
+		buffered = 0;
+	}
+	
+	/**
+	 * Merges each batch of consecutive runs into one, keeping them in order.
+	 */
+	private void mergeRuns()
+	{
+		List<File> merged = new ArrayList<File>();
+		try {
+			for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+				List<File> batch = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+				if (batch.size() == 1) {
+					merged.add(batch.get(0));
+					continue;
+				}
+				MergeIterator it = new MergeIterator(batch, null);
+				try {
+					merged.add(write(it));
+				} finally {
+					it.close();
+				}
+			}
+		} catch (RuntimeException e) {
+			// keep the original runs and drop this pass's output
+			for (File file : merged) {
+				if (!runs.contains(file)) {
+					file.delete();
+				}
+			}
+			throw e;
+		}
+		for (File file : runs) {
+			if (!merged.contains(file)) {
+				file.delete();
+			}
+		}
+		runs.clear();
+		runs.addAll(merged);
+	}
+	
+	/**
+	 * Writes sorted groups to a new temporary file.
+	 * 
+	 * <p>Each group is preceded by {@code true}, and the last by {@code false}.
+	 */
+	private File write(Iterator<Map.Entry<K,List<V>>> sorted)
+	{
+		File file = null;
+		ObjectOutputStream out = null;
+		try {
+			file = File.createTempFile("stellarbase-group", ".run", directory);
+			out = new ObjectOutputStream(new BufferedOutputStream(
+				Channels.newOutputStream(new FileOutputStream(file).getChannel()), BUFFER_SIZE));
+			while (sorted.hasNext()) {
+				Map.Entry<K,List<V>> entry = sorted.next();
+				out.writeBoolean(true);
+				out.writeObject(entry.getKey());
+				out.writeInt(entry.getValue().size());
+				for (V element : entry.getValue()) {
+					out.writeObject(element);
+				}
+				// forget written objects so the stream doesn't hold the whole run
+				out.reset();
+			}
+			out.writeBoolean(false);
+			out.close();
+			out = null;
+			return file;
+		} catch (IOException e) {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ignored) {
+					// the original exception is more useful
+				}
+			}
+			if (file != null) {
+				file.delete();
+			}
+			throw Throwables.propagate(e);
+		}
+	}
+	
+	/**
+	 * A source of sorted groups: either a file or the groups in memory.
+	 */
+	private class Run
+	{
+		final int index;
+		private final ObjectInputStream in;
+		private final Iterator<Map.Entry<K,List<V>>> memory;
+		K key;
+		List<V> elements;
+		
+		Run(int index, File file) throws IOException
+		{
+			this.index = index;
+			FileInputStream raw = new FileInputStream(file);
+			try {
+				this.in = new ObjectInputStream(new BufferedInputStream(
+					Channels.newInputStream(raw.getChannel()), BUFFER_SIZE));
+			} catch (IOException e) {
+				Closeables.closeQuietly(raw);
+				throw e;
+			}
+			this.memory = null;
+			open.add(this);
+		}
+		
+		Run(int index, Iterator<Map.Entry<K,List<V>>> memory)
+		{
+			this.index = index;
+			this.in = null;
+			this.memory = memory;
+		}
+		
+		@SuppressWarnings("unchecked")
+		boolean advance()
+		{
+			if (memory != null) {
+				if (!memory.hasNext()) {
+					return false;
+				}
+				Map.Entry<K,List<V>> entry = memory.next();
+				key = entry.getKey();
+				elements = entry.getValue();
+				return true;
+			}
+			try {
+				if (!in.readBoolean()) {
+					close();
+					return false;
+				}
+				key = (K) in.readObject();
+				int count = in.readInt();
+				elements = new ArrayList<V>(count);
+				for (int i = 0; i < count; i++) {
+					elements.add((V) in.readObject());
+				}
+				return true;
+			} catch (IOException e) {
+				close();
+				throw Throwables.propagate(e);
+			} catch (ClassNotFoundException e) {
+				close();
+				throw Throwables.propagate(e);
+			}
+		}
+		
+		void close()
+		{
+			if (in != null) {
+				Closeables.closeQuietly(in);
+				open.remove(this);
+			}
+		}
+	}
+	
+	private class MergeIterator implements Iterator<Map.Entry<K,List<V>>>
+	{
+		private final PriorityQueue<Run> queue;
+		
+		/**
+		 * @param files The runs on disk, oldest first
+		 * @param memory The groups in memory, or null
+		 */
+		MergeIterator(List<File> files, Iterator<Map.Entry<K,List<V>>> memory)
+		{
+			queue = new PriorityQueue<Run>(files.size() + 1, new Comparator<Run>()
+			{
+				public int compare(Run o1, Run o2)
+				{
+					int c = comparator.compare(o1.key, o2.key);
+					// earlier runs hold earlier elements
+					return c != 0 ? c : (o1.index < o2.index ? -1 : (o1.index == o2.index ? 0 : 1));
+				}
+			});
+			try {
+				for (int i = 0; i < files.size(); i++) {
+					offer(new Run(i, files.get(i)));
+				}
+			} catch (IOException e) {
+				close();
+				throw Throwables.propagate(e);
+			} catch (RuntimeException e) {
+				// a corrupt run fails in advance(), after earlier runs were opened
+				close();
+				throw e;
+			}
+			if (memory != null) {
+				offer(new Run(files.size(), memory));
+			}
+		}
+		
+		void close()
+		{
+			for (Run run : queue) {
+				run.close();
+			}
+		}
+		
+		private void offer(Run run)
+		{
+			if (run.advance()) {
+				queue.add(run);
+			}
+		}
+		
+		public boolean hasNext()
+		{
+			return !queue.isEmpty();
+		}
+		
+		public Map.Entry<K,List<V>> next()
+		{
+			Run run = queue.poll();
+			if (run == null) {
+				throw new NoSuchElementException();
+			}
+			K key = run.key;
+			List<V> elements = new ArrayList<V>(run.elements);
+			offer(run);
+			while (!queue.isEmpty() && comparator.compare(queue.peek().key, key) == 0) {
+				run = queue.poll();
+				elements.addAll(run.elements);
+				offer(run);
+			}
+			return new AbstractMap.SimpleImmutableEntry<K,List<V>>(key, elements);
+		}
+		
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
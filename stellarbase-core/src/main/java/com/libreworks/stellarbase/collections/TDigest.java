@@ -0,0 +1,383 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A t-digest sketch that estimates quantiles of a stream of numbers.
+ * 
+ * <p>This is the merging variant described by Ted Dunning and Otmar Ertl in
+ * <em>Computing Extremely Accurate Quantiles Using t-Digests</em>. Values are
+ * buffered, and whenever the buffer fills they're sorted and folded into a
+ * list of weighted centroids. The size of each centroid is limited by the
+ * arcsine scale function, so centroids near the tails stay small and the
+ * extreme quantiles (p99, p99.9) are the most accurate.
+ * 
+ * <p>Memory is bounded by the compression: there are at most about
+ * {@code compression} centroids and a buffer of {@code 5 * compression} values,
+ * no matter how many values are added. The default compression of 100 is
+ * typically within 0.1% of the true quantile near the tails and within 1% near
+ * the median, measured in rank.
+ * 
+ * <p>Two digests can be combined with {@link #merge(TDigest)}, which is the
+ * same as adding the values of one to the other, within the error above. This
+ * class is not thread-safe; note that even the read methods may fold the
+ * buffer.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class TDigest implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The default compression
+	 */
+	public static final double DEFAULT_COMPRESSION = 100;
+	
+	private final double compression;
+	private double[] means;
+	private double[] weights;
+	private int centroids;
+	private final double[] buffer;
+	private int buffered;
+	private double totalWeight;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	
+	/**
+	 * Creates a new TDigest with the default compression.
+	 */
+	public TDigest()
+	{
+		this(DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * Creates a new TDigest.
+	 * 
+	 * @param compression Higher values are more accurate and use more memory; at least 10
+	 * @throws IllegalArgumentException if {@code compression} is less than 10
+	 */
+	public TDigest(double compression)
+	{
+		this.compression = checkCompression(compression);
+		int capacity = (int) Math.ceil(compression) * 2 + 10;
+		this.means = new double[capacity];
+		this.weights = new double[capacity];
+		this.buffer = new double[(int) Math.ceil(compression) * 5];
+	}
+	
+	/**
+	 * Makes sure a compression is valid.
+	 * 
+	 * @param compression The compression
+	 * @return {@code compression}
+	 * @throws IllegalArgumentException if {@code compression} is less than 10
+	 */
+	static double checkCompression(double compression)
+	{
+		if (!(compression >= 10)) {
+			throw new IllegalArgumentException("compression must be at least 10");
+		}
+		return compression;
+	}
+	
+	private TDigest(TDigest other)
+	{
+		this.compression = other.compression;
+		this.means = other.means.clone();
+		this.weights = other.weights.clone();
+		this.centroids = other.centroids;
+		this.buffer = other.buffer.clone();
+		this.buffered = other.buffered;
+		this.totalWeight = other.totalWeight;
+		this.min = other.min;
+		this.max = other.max;
+	}
+	
+	/**
+	 * Adds a value.
+	 * 
+	 * @param value The value
+	 * @throws IllegalArgumentException if {@code value} is NaN
+	 */
+	public void add(double value)
+	{
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("NaN can't be added");
+		}
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		buffer[buffered++] = value;
+		totalWeight++;
+		if (buffered == buffer.length) {
+			flush();
+		}
+	}
+	
+	/**
+	 * Merges the values of another digest into this one.
+	 * 
+	 * @param other The other digest, which is flushed but otherwise unchanged
+	 * @return This digest
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public TDigest merge(TDigest other)
+	{
+		Arguments.checkNull(other);
+		if (other.totalWeight == 0) {
+			return this;
+		}
+		other.flush();
+		flush();
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		totalWeight += other.totalWeight;
+		compress(other.means, other.weights, other.centroids);
+		return this;
+	}
+	
+	/**
+	 * Estimates the value at a quantile.
+	 * 
+	 * @param q The quantile, from 0 to 1 (for example, 0.99 for p99)
+	 * @return The estimated value, or NaN if no values were added
+	 * @throws IllegalArgumentException if {@code q} is out of range
+	 */
+	public double quantile(double q)
+	{
+		if (!(q >= 0 && q <= 1)) {
+			throw new IllegalArgumentException("q must be between 0 and 1");
+		}
+		flush();
+		if (centroids == 0) {
+			return Double.NaN;
+		}
+		if (centroids == 1) {
+			return means[0];
+		}
+		double index = q * totalWeight;
+		if (index < 1) {
+			return min;
+		}
+		if (index > totalWeight - 1) {
+			return max;
+		}
+		// between the minimum and the center of the first centroid
+		double first = weights[0] / 2;
+		if (index < first) {
+			return interpolate(min, means[0], (index - 1) / (first - 1));
+		}
+		double last = weights[centroids - 1] / 2;
+		if (index > totalWeight - last) {
+			return interpolate(max, means[centroids - 1], (totalWeight - 1 - index) / (last - 1));
+		}
+		double cumulative = first;
+		for (int i = 0; i < centroids - 1; i++) {
+			double gap = (weights[i] + weights[i + 1]) / 2;
+			if (cumulative + gap >= index) {
+				return interpolate(means[i], means[i + 1], (index - cumulative) / gap);
+			}
+			cumulative += gap;
+		}
+		return means[centroids - 1];
+	}
+	
+	/**
+	 * Estimates the fraction of values less than or equal to a value.
+	 * 
+	 * @param value The value
+	 * @return The estimated fraction, from 0 to 1, or NaN if no values were added
+	 */
+	public double cdf(double value)
+	{
+		flush();
+		if (centroids == 0) {
+			return Double.NaN;
+		}
+		if (value < min) {
+			return 0;
+		}
+		if (value >= max) {
+			return 1;
+		}
+		if (centroids == 1) {
+			return max == min ? 1 : (value - min) / (max - min);
+		}
+		if (value < means[0]) {
+			return interpolate(0, weights[0] / 2, (value - min) / (means[0] - min)) / totalWeight;
+		}
+		double cumulative = weights[0] / 2;
+		for (int i = 0; i < centroids - 1; i++) {
+			double gap = (weights[i] + weights[i + 1]) / 2;
+			if (value < means[i + 1]) {
+				double span = means[i + 1] - means[i];
+				return (cumulative + (span == 0 ? gap : gap * (value - means[i]) / span)) / totalWeight;
+			}
+			cumulative += gap;
+		}
+		double last = weights[centroids - 1] / 2;
+		return (cumulative + last * (value - means[centroids - 1]) / (max - means[centroids - 1])) / totalWeight;
+	}
+	
+	/**
+	 * Gets the number of values added.
+	 * 
+	 * @return The count
+	 */
+	public long getCount()
+	{
+		return (long) totalWeight;
+	}
+	
+	/**
+	 * Gets the smallest value added.
+	 * 
+	 * @return The minimum, or NaN if no values were added
+	 */
+	public double getMin()
+	{
+		return totalWeight == 0 ? Double.NaN : min;
+	}
+	
+	/**
+	 * Gets the largest value added.
+	 * 
+	 * @return The maximum, or NaN if no values were added
+	 */
+	public double getMax()
+	{
+		return totalWeight == 0 ? Double.NaN : max;
+	}
+	
+	/**
+	 * Gets the compression.
+	 * 
+	 * @return The compression
+	 */
+	public double getCompression()
+	{
+		return compression;
+	}
+	
+	/**
+	 * Gets the number of centroids, after folding in any buffered values.
+	 * 
+	 * @return The number of centroids
+	 */
+	public int getCentroidCount()
+	{
+		flush();
+		return centroids;
+	}
+	
+	/**
+	 * Creates an independent copy of this digest.
+	 * 
+	 * @return The copy
+	 */
+	public TDigest copy()
+	{
+		return new TDigest(this);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TDigest[compression=" + compression + ", count=" + getCount() + ", centroids=" + getCentroidCount() + "]";
+	}
+	
+	private void flush()
+	{
+		if (buffered > 0) {
+			Arrays.sort(buffer, 0, buffered);
+			compress(buffer, null, buffered);
+			buffered = 0;
+		}
+	}
+	
+	/**
+	 * Folds sorted values into the centroids.
+	 * 
+	 * @param inMeans The sorted means
+	 * @param inWeights The weights, or null if all are 1
+	 * @param count The number of values
+	 */
+	private void compress(double[] inMeans, double[] inWeights, int count)
+	{
+		int n = centroids + count;
+		double[] outMeans = new double[Math.max(means.length, n)];
+		double[] outWeights = new double[outMeans.length];
+		int out = -1;
+		double weightSoFar = 0;
+		double limit = 0;
+		int i = 0, j = 0;
+		while (i < centroids || j < count) {
+			double m, w;
+			if (j >= count || (i < centroids && means[i] <= inMeans[j])) {
+				m = means[i];
+				w = weights[i++];
+			} else {
+				m = inMeans[j];
+				w = inWeights == null ? 1 : inWeights[j];
+				j++;
+			}
+			if (out >= 0 && weightSoFar + outWeights[out] + w <= limit) {
+				double combined = outWeights[out] + w;
+				outMeans[out] += (m - outMeans[out]) * w / combined;
+				outWeights[out] = combined;
+			} else {
+				if (out >= 0) {
+					weightSoFar += outWeights[out];
+				}
+				out++;
+				outMeans[out] = m;
+				outWeights[out] = w;
+				limit = totalWeight * upperQuantile(weightSoFar / totalWeight);
+			}
+		}
+		centroids = out + 1;
+		means = outMeans;
+		weights = outWeights;
+	}
+	
+	/**
+	 * Gets the largest quantile a centroid that starts at {@code q} may reach,
+	 * using the scale function k(q) = compression / 2&pi; &middot; asin(2q - 1).
+	 */
+	private double upperQuantile(double q)
+	{
+		double k = Math.asin(2 * Math.min(1, q) - 1) + 2 * Math.PI / compression;
+		return k >= Math.PI / 2 ? 1 : (Math.sin(k) + 1) / 2;
+	}
+	
+	private static double interpolate(double from, double to, double fraction)
+	{
+		return from + (to - from) * Math.max(0, Math.min(1, fraction));
+	}
+}
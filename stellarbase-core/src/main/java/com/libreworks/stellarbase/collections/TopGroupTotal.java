@@ -0,0 +1,368 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.libreworks.stellarbase.math.SafeMath;
+
+/**
+ * A Map that keeps approximate running totals for only the heaviest groups.
+ * 
+ * <p>{@link SingleGroupTotal} keeps every distinct group forever. This class
+ * uses the Space-Saving algorithm (Metwally, Agrawal and El Abbadi, 2005) to
+ * track at most {@code capacity} groups, so its memory use is fixed no matter
+ * how many distinct groups are added. When a new group arrives and all slots
+ * are taken, the group with the smallest total is evicted, and the new group
+ * inherits that total as its possible error.
+ * 
+ * <p>Let <em>W</em> be the sum of all values added and <em>k</em> the capacity.
+ * Then the following hold:
+ * <ul>
+ * <li>For a tracked group, {@code getTotal(key) - getError(key)} &le; true
+ * total &le; {@code getTotal(key)}. Totals are never underestimated.</li>
+ * <li>Each error is at most {@link #getMaxError()}, which is at most
+ * <em>W</em>/<em>k</em>.</li>
+ * <li>Any group whose true total exceeds <em>W</em>/<em>k</em> is tracked.</li>
+ * </ul>
+ * While fewer than {@code capacity} distinct groups have been added, every
+ * total is exact.
+ * 
+ * <p>Values must be non-negative. The {@link Map} methods are read-only views
+ * of the tracked groups in no particular order; use {@link #top(int)} to get
+ * the heaviest groups in descending order. This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class TopGroupTotal extends AbstractMap<Comparable<?>,Double>
+{
+	private final int capacity;
+	private final Map<Object,Counter> index;
+	private final Counter[] heap;
+	private int size;
+	private boolean evicted;
+	private double weight;
+	private Set<Map.Entry<Comparable<?>,Double>> entrySet;
+	
+	private static final Comparator<Counter> DESCENDING = new Comparator<Counter>()
+	{
+		public int compare(Counter o1, Counter o2)
+		{
+			return Double.compare(o2.count, o1.count);
+		}
+	};
+	
+	/**
+	 * Creates a new TopGroupTotal.
+	 * 
+	 * @param capacity The maximum number of groups to track
+	 * @throws IllegalArgumentException if {@code capacity} is less than 1
+	 */
+	public TopGroupTotal(int capacity)
+	{
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+		this.index = new HashMap<Object,Counter>(Math.min(capacity, 1 << 16) * 4 / 3 + 1);
+		this.heap = new Counter[capacity];
+	}
+
+	/**
+	 * Adds a value to a group
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 * @throws IllegalArgumentException if {@code value} is negative or NaN
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		if (!(value >= 0.0)) {
+			throw new IllegalArgumentException("Values must be non-negative");
+		}
+		weight += value;
+		Counter counter = index.get(key);
+		if (counter == null) {
+			if (size < capacity) {
+				counter = new Counter(key);
+				counter.position = size;
+				heap[size++] = counter;
+				siftUp(counter.position);
+			} else {
+				// evict the smallest group; its total becomes the error bound
+				counter = heap[0];
+				index.remove(counter.key);
+				counter.key = key;
+				counter.error = counter.count;
+				evicted = true;
+			}
+			index.put(key, counter);
+		}
+		counter.count += value;
+		siftDown(counter.position);
+	}
+	
+	/**
+	 * Adds all the values to a group
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 * @throws IllegalArgumentException if the sum of {@code values} is negative
+	 */
+	public void addAll(Comparable<?> key, Collection<Double> values)
+	{
+		add(key, SafeMath.sum(values, Double.class).doubleValue());
+	}
+	
+	/**
+	 * Gets the estimated total for a group.
+	 * 
+	 * @param key The group
+	 * @return The estimate, which is never lower than the true total, or zero if the group isn't tracked
+	 */
+	public double getTotal(Object key)
+	{
+		Counter counter = index.get(key);
+		return counter == null ? 0.0 : counter.count;
+	}
+	
+	/**
+	 * Gets how much the estimated total for a group may exceed its true total.
+	 * 
+	 * @param key The group
+	 * @return The maximum overestimate, or zero if the group isn't tracked
+	 */
+	public double getError(Object key)
+	{
+		Counter counter = index.get(key);
+		return counter == null ? 0.0 : counter.error;
+	}
+	
+	/**
+	 * Gets the largest amount any estimate can exceed its true total by.
+	 * 
+	 * <p>This is also the largest possible true total of any group that isn't
+	 * tracked. It's zero until a group has been evicted.
+	 * 
+	 * @return The error bound
+	 */
+	public double getMaxError()
+	{
+		return evicted ? heap[0].count : 0.0;
+	}
+	
+	/**
+	 * Gets the sum of all values ever added.
+	 * 
+	 * @return The total weight
+	 */
+	public double getTotalWeight()
+	{
+		return weight;
+	}
+	
+	/**
+	 * Gets the maximum number of groups tracked.
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	/**
+	 * Gets the heaviest groups, in descending order of their estimated totals.
+	 * 
+	 * @param n The number of groups to return
+	 * @return A new map of up to {@code n} groups to their estimated totals
+	 */
+	public Map<Comparable<?>,Double> top(int n)
+	{
+		Counter[] sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted, DESCENDING);
+		int limit = Math.min(Math.max(n, 0), size);
+		LinkedHashMap<Comparable<?>,Double> top = new LinkedHashMap<Comparable<?>,Double>(limit * 4 / 3 + 1);
+		for (int i = 0; i < limit; i++) {
+			top.put(sorted[i].key, sorted[i].count);
+		}
+		return top;
+	}
+
+	@Override
+	public Double get(Object key)
+	{
+		Counter counter = index.get(key);
+		return counter == null ? null : Double.valueOf(counter.count);
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return index.containsKey(key);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		index.clear();
+		Arrays.fill(heap, null);
+		size = 0;
+		evicted = false;
+		weight = 0.0;
+	}
+	
+	@Override
+	public Set<Map.Entry<Comparable<?>,Double>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<Comparable<?>,Double>>()
+			{
+				@Override
+				public Iterator<Map.Entry<Comparable<?>,Double>> iterator()
+				{
+					return new Iterator<Map.Entry<Comparable<?>,Double>>()
+					{
+						private final Iterator<Counter> it = index.values().iterator();
+						
+						public boolean hasNext()
+						{
+							return it.hasNext();
+						}
+						
+						public Map.Entry<Comparable<?>,Double> next()
+						{
+							Counter c = it.next();
+							return new AbstractMap.SimpleImmutableEntry<Comparable<?>,Double>(c.key, c.count);
+						}
+						
+						public void remove()
+						{
+							throw new UnsupportedOperationException("Groups can't be removed");
+						}
+					};
+				}
+
+				@Override
+				public int size()
+				{
+					return size;
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Double put(Comparable<?> key, Double value)
+	{
+		throw new UnsupportedOperationException("Use the 'add' method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Map#putAll(java.util.Map)
+	 */
+	@Override
+	public void putAll(Map<? extends Comparable<?>,? extends Double> m)
+	{
+		throw new UnsupportedOperationException("Use the 'addAll' method");
+	}
+	
+	@Override
+	public Double remove(Object key)
+	{
+		throw new UnsupportedOperationException("Groups can't be removed");
+	}
+	
+	private void siftUp(int i)
+	{
+		Counter counter = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent].count <= counter.count) {
+				break;
+			}
+			place(heap[parent], i);
+			i = parent;
+		}
+		place(counter, i);
+	}
+	
+	private void siftDown(int i)
+	{
+		Counter counter = heap[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && heap[right].count < heap[child].count) {
+				child = right;
+			}
+			if (counter.count <= heap[child].count) {
+				break;
+			}
+			place(heap[child], i);
+			i = child;
+		}
+		place(counter, i);
+	}
+	
+	private void place(Counter counter, int i)
+	{
+		heap[i] = counter;
+		counter.position = i;
+	}
+	
+	private static class Counter
+	{
+		Comparable<?> key;
+		double count;
+		double error;
+		int position;
+		
+		Counter(Comparable<?> key)
+		{
+			this.key = key;
+		}
+	}
+}
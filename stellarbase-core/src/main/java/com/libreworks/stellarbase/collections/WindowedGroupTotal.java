@@ -0,0 +1,295 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Ticker;
+import com.libreworks.stellarbase.concurrent.StripedDouble;
+import com.libreworks.stellarbase.math.SafeMath;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A thread-safe running total for a group name over a sliding time window.
+ * 
+ * <p>The window is divided into a fixed number of buckets. Each group keeps a
+ * ring buffer of buckets, and each bucket is a {@link StripedDouble}, so
+ * threads adding to the same group at the same moment mostly update
+ * different cells. When time moves past a bucket, the next addition to that
+ * slot replaces it with a fresh one; there's no background thread and nothing
+ * is ever rebuilt. Reading a total sums at most {@code buckets} values.
+ * 
+ * <p>For example, a 5 minute window with 30 buckets counts the current
+ * 10 second bucket plus the 29 before it:
+ * <pre>
+ * WindowedGroupTotal hits = new WindowedGroupTotal(5, TimeUnit.MINUTES, 30);
+ * hits.add("/login", 1);
+ * SingleGroupTotal lastFiveMinutes = hits.snapshot();
+ * </pre>
+ * The window slides one bucket at a time, so more buckets give a smoother
+ * window at the cost of memory per group.
+ * 
+ * <p>Groups that see no additions for a whole window still hold their expired
+ * buckets until {@link #purge()} is called. A value added to a group at the
+ * moment it's purged may be dropped. Like {@link ConcurrentGroupTotal}, null
+ * keys aren't allowed.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class WindowedGroupTotal
+{
+	private final ConcurrentMap<Comparable<?>,Window> windows = new ConcurrentHashMap<Comparable<?>,Window>();
+	private final Ticker ticker;
+	private final long origin;
+	private final long bucketNanos;
+	private final int buckets;
+
+	/**
+	 * Creates a new WindowedGroupTotal using the system clock.
+	 * 
+	 * @param duration The length of the window
+	 * @param unit The unit of {@code duration}
+	 * @param buckets The number of buckets in the window
+	 * @throws IllegalArgumentException if the window is shorter than one nanosecond per bucket
+	 */
+	public WindowedGroupTotal(long duration, TimeUnit unit, int buckets)
+	{
+		this(duration, unit, buckets, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a new WindowedGroupTotal.
+	 * 
+	 * @param duration The length of the window
+	 * @param unit The unit of {@code duration}
+	 * @param buckets The number of buckets in the window
+	 * @param ticker The time source
+	 * @throws IllegalArgumentException if the window is shorter than one nanosecond per bucket
+	 */
+	public WindowedGroupTotal(long duration, TimeUnit unit, int buckets, Ticker ticker)
+	{
+		Arguments.checkNull(unit);
+		this.ticker = Arguments.checkNull(ticker);
+		if (buckets < 1) {
+			throw new IllegalArgumentException("buckets must be at least 1");
+		}
+		long nanos = unit.toNanos(duration);
+		if (nanos < buckets) {
+			throw new IllegalArgumentException("The window is too short for that many buckets");
+		}
+		this.buckets = buckets;
+		this.bucketNanos = nanos / buckets;
+		this.origin = ticker.read();
+	}
+	
+	/**
+	 * Adds a value to a group in the current bucket
+	 * 
+	 * @param key
+	 *            The group into which the value will be added
+	 * @param value
+	 *            The value to be added
+	 * @throws IllegalArgumentException if {@code key} is null
+	 */
+	public void add(Comparable<?> key, double value)
+	{
+		Window window = windows.get(Arguments.checkNull(key));
+		if (window == null) {
+			Window created = new Window(buckets);
+			window = windows.putIfAbsent(key, created);
+			if (window == null) {
+				window = created;
+			}
+		}
+		window.add(currentEpoch(), value);
+	}
+	
+	/**
+	 * Adds all the values to a group in the current bucket
+	 * 
+	 * @param key
+	 *            The group into which the values will be added
+	 * @param values
+	 *            The values to be added
+	 * @throws IllegalArgumentException if {@code key} is null
+	 */
+	public void addAll(Comparable<?> key, Collection<Double> values)
+	{
+		add(key, SafeMath.sum(values, Double.class).doubleValue());
+	}
+	
+	/**
+	 * Gets the total for a group within the window.
+	 * 
+	 * @param key The group
+	 * @return The total, or zero if the group doesn't exist
+	 */
+	public double getTotal(Object key)
+	{
+		Window window = key == null ? null : windows.get(key);
+		return window == null ? 0.0 : window.sum(currentEpoch());
+	}
+	
+	/**
+	 * Gets a live view of the groups, including idle groups not yet purged.
+	 * 
+	 * @return The group keys
+	 */
+	public Set<Comparable<?>> keySet()
+	{
+		return windows.keySet();
+	}
+	
+	/**
+	 * Removes groups that have no additions within the window.
+	 * 
+	 * @return The number of groups removed
+	 */
+	public int purge()
+	{
+		long epoch = currentEpoch();
+		int removed = 0;
+		for (Iterator<Window> it = windows.values().iterator(); it.hasNext();) {
+			if (!it.next().isLive(epoch)) {
+				it.remove();
+				removed++;
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * Removes all groups.
+	 */
+	public void clear()
+	{
+		windows.clear();
+	}
+	
+	/**
+	 * Copies the totals within the window into a new SingleGroupTotal.
+	 * 
+	 * <p>Groups with no additions in the window are left out.
+	 * 
+	 * @return The totals
+	 */
+	public SingleGroupTotal snapshot()
+	{
+		long epoch = currentEpoch();
+		SingleGroupTotal snapshot = new SingleGroupTotal();
+		for (Map.Entry<Comparable<?>,Window> entry : windows.entrySet()) {
+			if (entry.getValue().isLive(epoch)) {
+				snapshot.add(entry.getKey(), entry.getValue().sum(epoch));
+			}
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Gets the length of each bucket.
+	 * 
+	 * @param unit The unit of the result
+	 * @return The bucket length
+	 */
+	public long getBucketDuration(TimeUnit unit)
+	{
+		return unit.convert(bucketNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return snapshot().toString();
+	}
+	
+	private long currentEpoch()
+	{
+		return (ticker.read() - origin) / bucketNanos;
+	}
+	
+	private static class Bucket
+	{
+		final long epoch;
+		final StripedDouble total = new StripedDouble();
+		
+		Bucket(long epoch)
+		{
+			this.epoch = epoch;
+		}
+	}
+	
+	private static class Window
+	{
+		private final AtomicReferenceArray<Bucket> ring;
+		
+		Window(int buckets)
+		{
+			ring = new AtomicReferenceArray<Bucket>(buckets);
+		}
+		
+		void add(long epoch, double value)
+		{
+			int i = (int) (epoch % ring.length());
+			Bucket bucket = ring.get(i);
+			while (bucket == null || bucket.epoch < epoch) {
+				Bucket fresh = new Bucket(epoch);
+				if (ring.compareAndSet(i, bucket, fresh)) {
+					bucket = fresh;
+				} else {
+					bucket = ring.get(i);
+				}
+			}
+			// if another thread already moved this slot to a later epoch, this
+			// value belongs to a bucket that's out of the window anyway
+			if (bucket.epoch == epoch) {
+				bucket.total.add(value);
+			}
+		}
+		
+		double sum(long epoch)
+		{
+			double sum = 0.0;
+			for (int i = 0; i < ring.length(); i++) {
+				Bucket bucket = ring.get(i);
+				if (bucket != null && epoch - bucket.epoch < ring.length() && bucket.epoch <= epoch) {
+					sum += bucket.total.sum();
+				}
+			}
+			return sum;
+		}
+		
+		boolean isLive(long epoch)
+		{
+			for (int i = 0; i < ring.length(); i++) {
+				Bucket bucket = ring.get(i);
+				if (bucket != null && epoch - bucket.epoch < ring.length()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A lock-free {@link Throttle} that limits how much work runs at once, adapting the limit as it goes.
+ * 
+ * <p>The limit follows additive-increase/multiplicative-decrease, like TCP
+ * congestion control. Each successful release while at least half the limit
+ * was in use raises it by {@code 1 / limit}, so it grows by about one per
+ * round of work, and doesn't grow while the limit isn't what holds work back. Each failure, or each success slower than the latency threshold,
+ * multiplies it by the backoff ratio. It stays between the minimum and
+ * maximum given to the constructor.
+ * 
+ * <p>{@link #tryAcquire()} fails right away once the limit is reached, so a
+ * struggling resource sheds load instead of queueing it.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class AimdLimiter implements Throttle {
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final long thresholdNanos;
+	/**
+	 * The raw bits of the current limit, a double
+	 */
+	private final AtomicLong limit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	
+	/**
+	 * Creates a new AimdLimiter that backs off by 10% when work fails.
+	 * 
+	 * @param initialLimit The starting limit
+	 * @param minLimit The lowest the limit can go
+	 * @param maxLimit The highest the limit can go
+	 * @throws IllegalArgumentException if the limits aren't positive and in order
+	 */
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit) {
+		this(initialLimit, minLimit, maxLimit, 0.9, 0, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Creates a new AimdLimiter.
+	 * 
+	 * @param initialLimit The starting limit
+	 * @param minLimit The lowest the limit can go
+	 * @param maxLimit The highest the limit can go
+	 * @param backoffRatio What the limit is multiplied by when work fails or is slow
+	 * @param threshold Work slower than this counts as a failure; zero to disable
+	 * @param unit The unit of {@code threshold}
+	 * @throws IllegalArgumentException if the limits aren't positive and in order,
+	 *     {@code backoffRatio} isn't between zero and one, {@code threshold} is
+	 *     negative or {@code unit} is null
+	 */
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long threshold, TimeUnit unit) {
+		if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+			throw new IllegalArgumentException("Limits must be positive and minLimit <= initialLimit <= maxLimit");
+		}
+		if (!(backoffRatio > 0 && backoffRatio < 1)) {
+			throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold cannot be negative");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.thresholdNanos = Arguments.checkNull(unit).toNanos(threshold);
+		this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= getLimit()) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				acquired.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public void release(long elapsedNanos, boolean success) {
+		int before = inFlight.getAndDecrement();
+		if (!success || (thresholdNanos > 0 && elapsedNanos > thresholdNanos)) {
+			dropped.incrementAndGet();
+			while (true) {
+				long bits = limit.get();
+				double next = Math.max(minLimit, Double.longBitsToDouble(bits) * backoffRatio);
+				if (limit.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+					return;
+				}
+			}
+		}
+		while (true) {
+			long bits = limit.get();
+			double current = Double.longBitsToDouble(bits);
+			// only grow when the limit is actually what's holding work back
+			if (before * 2 < current || current >= maxLimit) {
+				return;
+			}
+			double next = Math.min(maxLimit, current + 1 / current);
+			if (limit.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the current limit.
+	 * 
+	 * @return The most work that may run at once
+	 */
+	public int getLimit() {
+		return (int) Double.longBitsToDouble(limit.get());
+	}
+	
+	/**
+	 * Gets the amount of work running now.
+	 * 
+	 * @return The in-flight count
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+	
+	/**
+	 * Gets the number of permits given out.
+	 * 
+	 * @return The acquired count
+	 */
+	public long getAcquiredCount() {
+		return acquired.get();
+	}
+	
+	/**
+	 * Gets the number of times a permit was refused because the limit was reached.
+	 * 
+	 * @return The rejected count
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+	
+	/**
+	 * Gets the number of releases that failed or were too slow, lowering the limit.
+	 * 
+	 * @return The dropped count
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.SettableFuture;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Like {@link ConditionalRunnable}, but the condition is evaluated on an executor with a deadline.
+ * 
+ * <p>{@link #run()} returns right away. The condition runs on the supplied
+ * executor, and then {@code ifTrue} or {@code ifFalse} does too. The
+ * scheduler only enforces the deadline; its tasks are brief, so a slow
+ * condition never holds up a scheduler thread, and a single-threaded
+ * scheduler is enough. If the
+ * condition throws an exception, it is logged and treated as {@code false}.
+ * If it doesn't finish before the timeout, it is cancelled and treated as
+ * {@code false}, or whatever {@link #onTimeout(boolean)} configures.
+ * 
+ * <p>{@link #evaluate()} and {@link #submit()} return Guava
+ * {@link ListenableFuture}s, so the results can be composed with
+ * {@link Futures}. While an evaluation is running, further calls share it
+ * instead of starting another.
+ * 
+ * <p>With {@link #memoize(long, TimeUnit)}, an answer from the condition is
+ * reused for the given time, so frequent checks don't each make a remote
+ * call. Timeouts and exceptions aren't remembered.
+ * 
+ * <p>This class is immutable; the configuration methods return new
+ * instances, which don't share memoized answers.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class AsyncConditionalRunnable implements Runnable {
+	private final Callable<Boolean> condition;
+	private final Runnable ifTrue;
+	private final Runnable ifFalse;
+	private final Executor executor;
+	private final ScheduledExecutorService scheduler;
+	private final long timeoutNanos;
+	private final boolean timeoutResult;
+	private final long memoizeNanos;
+	private final Ticker ticker;
+	private final AtomicReference<ListenableFuture<Boolean>> pending = new AtomicReference<ListenableFuture<Boolean>>();
+	private volatile Answer answer;
+	
+	private static final Logger log = LoggerFactory.getLogger(AsyncConditionalRunnable.class);
+	
+	/**
+	 * Creates a new AsyncConditionalRunnable.
+	 * 
+	 * @param condition The Callable that provides the condition
+	 * @param ifTrue The one to call on a {@code true} result
+	 * @param ifFalse The one to call on a {@code false} result, if {@code condition} throws an Exception, or on a timeout
+	 * @param executor Runs the condition and the chosen Runnable
+	 * @param scheduler Enforces the timeout
+	 * @param timeout How long the condition may take
+	 * @param unit The unit of {@code timeout}
+	 * @throws IllegalArgumentException if any argument is null or {@code timeout} is negative
+	 */
+	public AsyncConditionalRunnable(Callable<Boolean> condition, Runnable ifTrue, Runnable ifFalse, Executor executor, ScheduledExecutorService scheduler, long timeout, TimeUnit unit) {
+		this(condition, ifTrue, ifFalse, Arguments.checkNull(executor), Arguments.checkNull(scheduler),
+			Arguments.checkNull(unit).toNanos(timeout), false, 0, Ticker.systemTicker());
+		if (timeout < 0) {
+			throw new IllegalArgumentException("timeout cannot be negative");
+		}
+	}
+	
+	private AsyncConditionalRunnable(Callable<Boolean> condition, Runnable ifTrue, Runnable ifFalse, Executor executor, ScheduledExecutorService scheduler, long timeoutNanos, boolean timeoutResult, long memoizeNanos, Ticker ticker) {
+		this.condition = Arguments.checkNull(condition);
+		this.ifTrue = Arguments.checkNull(ifTrue);
+		this.ifFalse = Arguments.checkNull(ifFalse);
+		this.executor = executor;
+		this.scheduler = scheduler;
+		this.timeoutNanos = timeoutNanos;
+		this.timeoutResult = timeoutResult;
+		this.memoizeNanos = memoizeNanos;
+		this.ticker = ticker;
+	}
+	
+	/**
+	 * Creates a copy of this object that treats a timeout as {@code result}.
+	 * 
+	 * @param result The outcome of a timeout
+	 * @return A new AsyncConditionalRunnable
+	 */
+	public AsyncConditionalRunnable onTimeout(boolean result) {
+		return new AsyncConditionalRunnable(condition, ifTrue, ifFalse, executor, scheduler, timeoutNanos, result, memoizeNanos, ticker);
+	}
+	
+	/**
+	 * Creates a copy of this object that reuses an answer from the condition for a time.
+	 * 
+	 * @param duration How long to reuse an answer
+	 * @param unit The unit of {@code duration}
+	 * @return A new AsyncConditionalRunnable
+	 * @throws IllegalArgumentException if {@code unit} is null or {@code duration} is negative
+	 */
+	public AsyncConditionalRunnable memoize(long duration, TimeUnit unit) {
+		return memoize(duration, unit, ticker);
+	}
+	
+	/**
+	 * Creates a copy of this object that reuses an answer from the condition for a time.
+	 * 
+	 * @param duration How long to reuse an answer
+	 * @param unit The unit of {@code duration}
+	 * @param ticker The source of time
+	 * @return A new AsyncConditionalRunnable
+	 * @throws IllegalArgumentException if {@code unit} or {@code ticker} is null or {@code duration} is negative
+	 */
+	public AsyncConditionalRunnable memoize(long duration, TimeUnit unit, Ticker ticker) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("duration cannot be negative");
+		}
+		return new AsyncConditionalRunnable(condition, ifTrue, ifFalse, executor, scheduler, timeoutNanos, timeoutResult,
+			Arguments.checkNull(unit).toNanos(duration), Arguments.checkNull(ticker));
+	}
+	
+	/**
+	 * Evaluates the condition without running either Runnable.
+	 * 
+	 * <p>The future never fails: an exception from the condition counts as
+	 * {@code false}, and a timeout as the configured outcome.
+	 * 
+	 * @return The eventual result of the condition
+	 */
+	public ListenableFuture<Boolean> evaluate() {
+		Answer a = answer;
+		if (a != null && ticker.read() - a.at < memoizeNanos) {
+			return Futures.immediateFuture(a.value);
+		}
+		SettableFuture<Boolean> result = SettableFuture.create();
+		ListenableFuture<Boolean> existing = pending.get();
+		while (existing == null) {
+			if (pending.compareAndSet(null, result)) {
+				start(result);
+				return result;
+			}
+			existing = pending.get();
+		}
+		return existing;
+	}
+	
+	/**
+	 * Evaluates the condition, then runs {@code ifTrue} or {@code ifFalse}.
+	 * 
+	 * @return A future that completes with the result of the condition once
+	 *     the chosen Runnable has run, or fails with what it threw
+	 */
+	public ListenableFuture<Boolean> submit() {
+		return Futures.transform(evaluate(), new AsyncFunction<Boolean,Boolean>() {
+			@Override
+			public ListenableFuture<Boolean> apply(Boolean input) {
+				ListenableFutureTask<Boolean> task = ListenableFutureTask.create(input ? ifTrue : ifFalse, input);
+				executor.execute(task);
+				return task;
+			}
+		});
+	}
+
+	@Override
+	public void run() {
+		Futures.addCallback(submit(), new FutureCallback<Boolean>() {
+			@Override
+			public void onSuccess(Boolean result) {
+			}
+			@Override
+			public void onFailure(Throwable t) {
+				if (log.isErrorEnabled()) {
+					log.error("Exception in AsyncConditionalRunnable", t);
+				}
+			}
+		});
+	}
+	
+	private void start(final SettableFuture<Boolean> result) {
+		final ListenableFutureTask<Boolean> call = ListenableFutureTask.create(condition);
+		ScheduledFuture<?> timer = null;
+		try {
+			timer = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (finish(result, timeoutResult)) {
+						call.cancel(true);
+						if (log.isWarnEnabled()) {
+							log.warn("Condition timed out in AsyncConditionalRunnable");
+						}
+					}
+				}
+			}, timeoutNanos, TimeUnit.NANOSECONDS);
+			Futures.addCallback(call, new Completion(result, timer));
+			executor.execute(call);
+		} catch (RuntimeException e) {
+			// otherwise the pending result never completes and every later call waits on it
+			if (finish(result, false) && log.isErrorEnabled()) {
+				log.error("Couldn't start the condition in AsyncConditionalRunnable", e);
+			}
+			if (timer != null) {
+				timer.cancel(false);
+			}
+		}
+	}
+	
+	private boolean finish(SettableFuture<Boolean> result, boolean value) {
+		// clear pending first, so a caller who sees the result can start another evaluation
+		pending.compareAndSet(result, null);
+		return result.set(value);
+	}
+	
+	/**
+	 * Completes the pending result with the outcome of the condition
+	 */
+	private class Completion implements FutureCallback<Boolean> {
+		private final SettableFuture<Boolean> result;
+		private final ScheduledFuture<?> timer;
+		
+		Completion(SettableFuture<Boolean> result, ScheduledFuture<?> timer) {
+			this.result = result;
+			this.timer = timer;
+		}
+		
+		@Override
+		public void onSuccess(Boolean value) {
+			boolean b = Boolean.TRUE.equals(value);
+			if (!result.isDone()) {
+				// remember it before completing, so callers who see the result also see the answer
+				answer = new Answer(b, ticker.read());
+			}
+			finish(result, b);
+			timer.cancel(false);
+		}
+		
+		@Override
+		public void onFailure(Throwable t) {
+			if (finish(result, false) && log.isErrorEnabled()) {
+				log.error("Exception in AsyncConditionalRunnable", t);
+			}
+			timer.cancel(false);
+		}
+	}
+	
+	/**
+	 * A remembered answer from the condition
+	 */
+	private static class Answer {
+		final boolean value;
+		final long at;
+		
+		Answer(boolean value, long at) {
+			this.value = value;
+			this.at = at;
+		}
+	}
+}
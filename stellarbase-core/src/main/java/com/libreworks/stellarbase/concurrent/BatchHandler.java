@@ -0,0 +1,36 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.List;
+
+/**
+ * Processes a batch of items collected by a {@link BatchingExecutor}.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <T> The type of item
+ */
+public interface BatchHandler<T> {
+	/**
+	 * Processes a batch of items.
+	 * 
+	 * @param batch The items, in the order they were submitted; never empty
+	 */
+	public void handle(List<T> batch);
+}
@@ -0,0 +1,432 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Collects submitted items into batches and hands each batch to a {@link BatchHandler}.
+ * 
+ * <p>Many small tasks, like sending mail or invalidating cache entries, each
+ * pay for their own transaction or network round trip. This class lets them
+ * share one. A batch is handed off as soon as it has {@code maxBatchSize}
+ * items, or once the linger time has passed since its first item arrived,
+ * whichever comes first.
+ * 
+ * <p>Items wait in a bounded queue. When it's full, {@link #add(Object)}
+ * blocks and {@link #offer(Object)} returns false, so producers can't outrun
+ * the handler indefinitely. Batches are handled one at a time, in order, by
+ * a single worker thread that starts with the first item.
+ * 
+ * <p>If the handler throws an exception or an Error, it is logged and counted, and the
+ * worker moves on to the next batch. Call {@link #shutdown()} to handle
+ * whatever is queued and stop the worker. The default worker thread is a
+ * daemon, so items still queued when the JVM exits are lost.
+ * 
+ * <pre>
+ * BatchingExecutor&lt;Message&gt; mailer = new BatchingExecutor&lt;Message&gt;(
+ *     new BatchHandler&lt;Message&gt;() {
+ *         public void handle(List&lt;Message&gt; batch) {
+ *             transport.send(batch);
+ *         }
+ *     }, 50, 200, TimeUnit.MILLISECONDS, 10000);
+ * mailer.add(message);
+ * </pre>
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <T> The type of item
+ */
+public class BatchingExecutor<T> {
+	/**
+	 * Put in the queue by {@link #shutdown()} to wake the worker
+	 */
+	private static final Object STOP = new Object();
+	
+	private static final Logger log = LoggerFactory.getLogger(BatchingExecutor.class);
+	
+	private final BatchHandler<? super T> handler;
+	private final int maxBatchSize;
+	private final long lingerNanos;
+	private final int capacity;
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	/**
+	 * Bounds the queue: producers take a permit, and the worker gives it back
+	 */
+	private final Semaphore permits;
+	private final ThreadFactory threadFactory;
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	
+	private final AtomicLong items = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong failedBatches = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private volatile int lastBatchSize;
+	private volatile int largestBatchSize;
+	
+	private Thread worker;
+	private boolean shutdown;
+	
+	/**
+	 * Creates a new BatchingExecutor with a daemon worker thread.
+	 * 
+	 * @param handler Processes each batch
+	 * @param maxBatchSize The most items in a batch
+	 * @param linger How long to wait for a batch to fill
+	 * @param unit The unit of {@code linger}
+	 * @param capacity The most items that can wait in the queue
+	 * @throws IllegalArgumentException if {@code handler} or {@code unit} is
+	 *     null, {@code maxBatchSize} or {@code capacity} is less than one, or
+	 *     {@code linger} is negative
+	 */
+	public BatchingExecutor(BatchHandler<? super T> handler, int maxBatchSize, long linger, TimeUnit unit, int capacity) {
+		this(handler, maxBatchSize, linger, unit, capacity, new ThreadFactoryBuilder()
+			.setDaemon(true).setNameFormat("BatchingExecutor-%d").build());
+	}
+	
+	/**
+	 * Creates a new BatchingExecutor.
+	 * 
+	 * @param handler Processes each batch
+	 * @param maxBatchSize The most items in a batch
+	 * @param linger How long to wait for a batch to fill
+	 * @param unit The unit of {@code linger}
+	 * @param capacity The most items that can wait in the queue
+	 * @param threadFactory Creates the worker thread
+	 * @throws IllegalArgumentException if {@code handler}, {@code unit}, or
+	 *     {@code threadFactory} is null, {@code maxBatchSize} or
+	 *     {@code capacity} is less than one, or {@code linger} is negative
+	 */
+	public BatchingExecutor(BatchHandler<? super T> handler, int maxBatchSize, long linger, TimeUnit unit, int capacity, ThreadFactory threadFactory) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be at least 1");
+		} else if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		} else if (linger < 0) {
+			throw new IllegalArgumentException("linger cannot be negative");
+		}
+		this.handler = Arguments.checkNull(handler);
+		this.maxBatchSize = maxBatchSize;
+		this.lingerNanos = Arguments.checkNull(unit).toNanos(linger);
+		this.capacity = capacity;
+		this.permits = new Semaphore(capacity);
+		this.threadFactory = Arguments.checkNull(threadFactory);
+	}
+	
+	/**
+	 * Adds an item, waiting for room in the queue if necessary.
+	 * 
+	 * @param item The item
+	 * @throws IllegalArgumentException if {@code item} is null
+	 * @throws RejectedExecutionException if this executor has been shut down
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void add(T item) throws InterruptedException {
+		Arguments.checkNull(item);
+		checkShutdown();
+		permits.acquire();
+		enqueue(item);
+	}
+	
+	/**
+	 * Adds an item if there is room in the queue.
+	 * 
+	 * @param item The item
+	 * @return Whether the item was added
+	 * @throws IllegalArgumentException if {@code item} is null
+	 * @throws RejectedExecutionException if this executor has been shut down
+	 */
+	public boolean offer(T item) {
+		Arguments.checkNull(item);
+		checkShutdown();
+		if (!permits.tryAcquire()) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		enqueue(item);
+		return true;
+	}
+	
+	/**
+	 * Adds an item, waiting up to a timeout for room in the queue.
+	 * 
+	 * @param item The item
+	 * @param timeout How long to wait
+	 * @param unit The unit of {@code timeout}
+	 * @return Whether the item was added
+	 * @throws IllegalArgumentException if {@code item} is null
+	 * @throws RejectedExecutionException if this executor has been shut down
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		Arguments.checkNull(item);
+		checkShutdown();
+		if (!permits.tryAcquire(timeout, unit)) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		enqueue(item);
+		return true;
+	}
+	
+	/**
+	 * Stops accepting items, then handles everything already queued.
+	 * 
+	 * <p>This method doesn't wait for the worker to finish; see
+	 * {@link #awaitTermination(long, TimeUnit)}.
+	 */
+	public void shutdown() {
+		synchronized (this) {
+			if (shutdown) {
+				return;
+			}
+			shutdown = true;
+			if (worker == null) {
+				terminated.countDown();
+			} else {
+				// every item is queued before this, so the worker sees them all
+				queue.add(STOP);
+			}
+		}
+	}
+	
+	/**
+	 * Waits for the worker to finish after {@link #shutdown()}.
+	 * 
+	 * @param timeout How long to wait
+	 * @param unit The unit of {@code timeout}
+	 * @return Whether the worker finished
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return terminated.await(timeout, unit);
+	}
+	
+	/**
+	 * Gets whether {@link #shutdown()} has been called.
+	 * 
+	 * @return Whether this executor is shut down
+	 */
+	public synchronized boolean isShutdown() {
+		return shutdown;
+	}
+	
+	/**
+	 * Gets the number of items waiting to be batched.
+	 * 
+	 * @return The queue depth
+	 */
+	public int getQueueDepth() {
+		return capacity - permits.availablePermits();
+	}
+	
+	/**
+	 * Gets the most items that can wait in the queue.
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Gets the number of batches handed to the handler.
+	 * 
+	 * @return The batch count
+	 */
+	public long getBatchCount() {
+		return batches.get();
+	}
+	
+	/**
+	 * Gets the number of items handed to the handler.
+	 * 
+	 * @return The item count
+	 */
+	public long getItemCount() {
+		return items.get();
+	}
+	
+	/**
+	 * Gets the number of batches for which the handler threw an exception.
+	 * 
+	 * @return The failed batch count
+	 */
+	public long getFailedBatchCount() {
+		return failedBatches.get();
+	}
+	
+	/**
+	 * Gets the number of times an item couldn't be added because the queue was full.
+	 * 
+	 * @return The rejected count
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+	
+	/**
+	 * Gets the size of the most recent batch.
+	 * 
+	 * @return The size of the most recent batch, or zero if there hasn't been one
+	 */
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+	
+	/**
+	 * Gets the size of the largest batch so far.
+	 * 
+	 * @return The size of the largest batch, or zero if there hasn't been one
+	 */
+	public int getLargestBatchSize() {
+		return largestBatchSize;
+	}
+	
+	/**
+	 * Gets the average number of items per batch.
+	 * 
+	 * @return The average batch size, or zero if there hasn't been a batch
+	 */
+	public double getAverageBatchSize() {
+		long b = batches.get();
+		return b == 0 ? 0.0 : items.get() / (double) b;
+	}
+	
+	private synchronized void enqueue(Object item) {
+		if (shutdown) {
+			permits.release();
+			checkShutdown();
+		}
+		if (worker == null) {
+			startWorker();
+		}
+		queue.add(item);
+	}
+	
+	private synchronized void startWorker() {
+		worker = threadFactory.newThread(new Worker());
+		worker.start();
+	}
+	
+	private synchronized void checkShutdown() {
+		if (shutdown) {
+			throw new RejectedExecutionException("BatchingExecutor has been shut down");
+		}
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void dispatch(List<Object> batch) {
+		int size = batch.size();
+		try {
+			// the batch only holds Ts, and a handler of a supertype can read them
+			((BatchHandler) handler).handle(batch);
+		} catch (Throwable e) {
+			// an Error mustn't kill the only worker and strand the queue
+			failedBatches.incrementAndGet();
+			if (log.isErrorEnabled()) {
+				log.error("Exception in BatchHandler", e);
+			}
+		}
+		items.addAndGet(size);
+		batches.incrementAndGet();
+		lastBatchSize = size;
+		if (size > largestBatchSize) {
+			largestBatchSize = size;
+		}
+	}
+	
+	/**
+	 * Takes items off the queue and hands batches to the handler.
+	 */
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			boolean stopping = false;
+			List<Object> batch = null;
+			try {
+				while (!stopping) {
+					Object first = take(queue.take());
+					if (first == STOP) {
+						stopping = true;
+						break;
+					}
+					batch = new ArrayList<Object>(Math.min(maxBatchSize, 64));
+					batch.add(first);
+					long deadline = System.nanoTime() + lingerNanos;
+					while (batch.size() < maxBatchSize) {
+						Object next = queue.poll();
+						if (next == null) {
+							long remaining = deadline - System.nanoTime();
+							if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+								break;
+							}
+						}
+						if (take(next) == STOP) {
+							stopping = true;
+							break;
+						}
+						batch.add(next);
+					}
+					dispatch(batch);
+					batch = null;
+				}
+			} catch (InterruptedException e) {
+				// these items already gave back their permits, so nobody else will handle them
+				if (batch != null) {
+					dispatch(batch);
+				}
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized (BatchingExecutor.this) {
+					if (stopping) {
+						terminated.countDown();
+					} else {
+						// interrupted or failed; let a new worker take over what's queued
+						worker = null;
+						if (!queue.isEmpty()) {
+							startWorker();
+						}
+					}
+				}
+			}
+		}
+		
+		private Object take(Object item) {
+			if (item != STOP) {
+				permits.release();
+			}
+			return item;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Thrown when one or more tasks in a group fail.
+ * 
+ * <p>The cause is the first failure; all of them are available from
+ * {@link #getCauses()}.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class CompositeException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	private final List<Throwable> causes;
+	
+	/**
+	 * Creates a new CompositeException.
+	 * 
+	 * @param causes The failures, which can't be empty
+	 */
+	public CompositeException(Collection<? extends Throwable> causes) {
+		super(causes.size() + " task(s) failed", causes.iterator().next());
+		this.causes = ImmutableList.copyOf(causes);
+	}
+	
+	/**
+	 * Gets all of the failures.
+	 * 
+	 * @return The failures, in the order they happened
+	 */
+	public List<Throwable> getCauses() {
+		return causes;
+	}
+}
@@ -17,16 +17,60 @@
  */
 package com.libreworks.stellarbase.concurrent;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Throwables;
+import com.libreworks.stellarbase.util.Arguments;
 
 /**
  * Allows multiple {@link Runnable}s to be executed one after the other.
  * 
+ * <p>If an {@link Executor} is supplied, the Runnables are instead all
+ * submitted to it at once, and {@link #run()} waits for them to finish. For
+ * independent steps, this takes as long as the slowest step instead of the
+ * sum of them all.
+ * 
+ * <p>The {@link ErrorPolicy} decides what happens when a Runnable throws an
+ * exception. With {@link ErrorPolicy#FAIL_FAST} (the default), the exception
+ * is rethrown as soon as it happens and the remaining Runnables are skipped
+ * or cancelled. With {@link ErrorPolicy#COLLECT_ALL}, every Runnable is
+ * run, and then a {@link CompositeException} holding all the failures is
+ * thrown.
+ * 
+ * <p>The time each Runnable took in the most recent run is available from
+ * {@link #getDurations(TimeUnit)}.
+ * 
  * @author Jonathan Hawk
  * @since 1.0.0
  */
 public class CompositeRunnable implements Runnable {
 	private final Runnable[] runnables;
+	private final Executor executor;
+	private final ErrorPolicy policy;
+	private final AtomicLongArray durations;
+	
+	/**
+	 * What to do when one of the Runnables throws an exception.
+	 */
+	public enum ErrorPolicy {
+		/**
+		 * Rethrow the first exception, skipping or cancelling the rest
+		 */
+		FAIL_FAST,
+		/**
+		 * Run everything, then throw a {@link CompositeException} with every exception
+		 */
+		COLLECT_ALL
+	}
 	
 	/**
 	 * Creates a new CompositeRunnable.
@@ -34,13 +78,136 @@ public class CompositeRunnable implements Runnable {
 	 * @param runnables The Runnable objects to consolidate.
 	 */
 	public CompositeRunnable(Runnable... runnables){
+		this(null, ErrorPolicy.FAIL_FAST, runnables);
+	}
+	
+	/**
+	 * Creates a new CompositeRunnable.
+	 * 
+	 * @param executor The executor used to run the Runnables concurrently, or
+	 *     null to run them one after the other in the calling thread
+	 * @param policy What to do when a Runnable throws an exception
+	 * @param runnables The Runnable objects to consolidate.
+	 * @throws IllegalArgumentException if {@code policy} or any Runnable is null
+	 */
+	public CompositeRunnable(Executor executor, ErrorPolicy policy, Runnable... runnables){
 		this.runnables = Arrays.copyOf(runnables, runnables.length);
+		for (Runnable r : this.runnables) {
+			Arguments.checkNull(r);
+		}
+		this.executor = executor;
+		this.policy = Arguments.checkNull(policy);
+		this.durations = new AtomicLongArray(runnables.length);
+		resetDurations();
 	}
 	
 	@Override
 	public void run() {
-		for (Runnable r : runnables) {
-			r.run();
+		resetDurations();
+		if (executor == null) {
+			runSequential();
+		} else {
+			runConcurrent();
+		}
+	}
+	
+	/**
+	 * Gets how long each Runnable took during the most recent run.
+	 * 
+	 * <p>A Runnable that didn't run to the end, because it was skipped or
+	 * cancelled, has a duration of -1. One that threw an exception has the
+	 * time until it threw.
+	 * 
+	 * @param unit The unit of time
+	 * @return The durations, in the same order as the Runnables
+	 */
+	public long[] getDurations(TimeUnit unit) {
+		long[] result = new long[runnables.length];
+		for (int i = 0; i < result.length; i++) {
+			long nanos = durations.get(i);
+			result[i] = nanos < 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+		}
+		return result;
+	}
+	
+	private void runSequential() {
+		List<Throwable> failures = new ArrayList<Throwable>(0);
+		for (int i = 0; i < runnables.length; i++) {
+			try {
+				new Timed(i).run();
+			} catch (RuntimeException e) {
+				handle(e, failures);
+			} catch (Error e) {
+				handle(e, failures);
+			}
+		}
+		throwIfFailed(failures);
+	}
+	
+	private void runConcurrent() {
+		CompletionService<Void> service = new ExecutorCompletionService<Void>(executor);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(runnables.length);
+		List<Throwable> failures = new ArrayList<Throwable>(0);
+		try {
+			for (int i = 0; i < runnables.length; i++) {
+				futures.add(service.submit(new Timed(i), null));
+			}
+			for (int i = 0; i < runnables.length; i++) {
+				try {
+					service.take().get();
+				} catch (ExecutionException e) {
+					handle(e.getCause(), failures);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for Runnables", e);
+		} finally {
+			// only does anything if we're bailing out early
+			for (Future<Void> f : futures) {
+				f.cancel(true);
+			}
+		}
+		throwIfFailed(failures);
+	}
+	
+	private void handle(Throwable t, List<Throwable> failures) {
+		if (policy == ErrorPolicy.FAIL_FAST) {
+			throw Throwables.propagate(t);
+		}
+		failures.add(t);
+	}
+	
+	private void throwIfFailed(List<Throwable> failures) {
+		if (!failures.isEmpty()) {
+			throw new CompositeException(failures);
+		}
+	}
+	
+	private void resetDurations() {
+		for (int i = 0; i < runnables.length; i++) {
+			durations.set(i, -1);
+		}
+	}
+	
+	/**
+	 * Runs one of the Runnables and records how long it took.
+	 */
+	private class Timed implements Runnable {
+		private final int index;
+		
+		Timed(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				runnables[index].run();
+			} finally {
+				durations.set(index, System.nanoTime() - start);
+			}
 		}
 	}
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Coalesces concurrent loads of the same key into one.
+ * 
+ * <p>When a popular entry expires, many threads can ask for it at once. The
+ * first caller of {@link #load(Object, Callable)} for a key runs the loader
+ * in its own thread; anyone else asking for that key before it finishes
+ * waits for the same result instead of loading it again. Once the load
+ * completes, the key is forgotten, so the next call loads afresh. This class
+ * doesn't cache anything.
+ * 
+ * <p>Every caller waiting on a load gets the same result or the same
+ * exception. A {@link RuntimeException} or {@link Error} from the loader is
+ * rethrown as-is, and a checked exception is wrapped in an
+ * {@link UncheckedExecutionException}.
+ * 
+ * <p>A loader must not load the same key from the same SingleFlight, since it
+ * would wait for itself.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ * @param <K> The type of key
+ * @param <V> The type of value
+ */
+public class SingleFlight<K,V> {
+	private final ConcurrentMap<K,SettableFuture<V>> inFlight = new ConcurrentHashMap<K,SettableFuture<V>>();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	
+	/**
+	 * Loads the value for a key, or waits for a load of it already running.
+	 * 
+	 * @param key The key
+	 * @param loader Loads the value if no other caller is loading it
+	 * @return The value
+	 * @throws IllegalArgumentException if {@code key} or {@code loader} is null
+	 * @throws UncheckedExecutionException if the loader threw a checked exception
+	 * @throws IllegalStateException if interrupted while waiting
+	 */
+	public V load(K key, Callable<? extends V> loader) {
+		try {
+			return load(key, loader, -1, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("Can't time out without a timeout", e);
+		}
+	}
+	
+	/**
+	 * Loads the value for a key, or waits up to a timeout for a load of it already running.
+	 * 
+	 * <p>The timeout only applies to waiting for another caller's load. If
+	 * this caller does the load, it takes as long as the loader takes.
+	 * 
+	 * @param key The key
+	 * @param loader Loads the value if no other caller is loading it
+	 * @param timeout How long to wait for another caller's load, or a
+	 *     negative number to wait as long as it takes
+	 * @param unit The unit of {@code timeout}
+	 * @return The value
+	 * @throws IllegalArgumentException if {@code key}, {@code loader}, or {@code unit} is null
+	 * @throws TimeoutException if another caller's load didn't finish in time
+	 * @throws UncheckedExecutionException if the loader threw a checked exception
+	 * @throws IllegalStateException if interrupted while waiting
+	 */
+	public V load(K key, Callable<? extends V> loader, long timeout, TimeUnit unit) throws TimeoutException {
+		Arguments.checkNull(key);
+		Arguments.checkNull(loader);
+		Arguments.checkNull(unit);
+		SettableFuture<V> future = SettableFuture.create();
+		SettableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalesced.incrementAndGet();
+			return await(existing, timeout, unit);
+		}
+		loads.incrementAndGet();
+		try {
+			V value = loader.call();
+			future.set(value);
+			return value;
+		} catch (RuntimeException e) {
+			future.setException(e);
+			throw e;
+		} catch (Error e) {
+			future.setException(e);
+			throw e;
+		} catch (Exception e) {
+			future.setException(e);
+			throw new UncheckedExecutionException(e);
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+	
+	/**
+	 * Gets the number of keys being loaded right now.
+	 * 
+	 * @return The number of loads in flight
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+	
+	/**
+	 * Gets the number of times a loader was called.
+	 * 
+	 * @return The load count
+	 */
+	public long getLoadCount() {
+		return loads.get();
+	}
+	
+	/**
+	 * Gets the number of calls that waited for another caller's load instead of loading.
+	 * 
+	 * @return The coalesced count
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+	
+	private V await(SettableFuture<V> future, long timeout, TimeUnit unit) throws TimeoutException {
+		try {
+			return timeout < 0 ? future.get() : future.get(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a load", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new UncheckedExecutionException(cause);
+		}
+	}
+}
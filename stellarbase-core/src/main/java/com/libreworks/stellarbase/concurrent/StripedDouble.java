@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import com.google.common.util.concurrent.AtomicDouble;
+
+/**
+ * A running double total that spreads contended updates across several cells.
+ * 
+ * <p>Uncontended updates go straight into a single {@link AtomicDouble}. The
+ * first time a compare-and-set on it fails, a small array of cells is created
+ * (one per available processor, rounded up to a power of two) and each thread
+ * adds into the cell picked by its thread id from then on. Reading the value
+ * sums the base and every cell.
+ * 
+ * <p>The value returned by {@link #sum()} is not an atomic snapshot: if other
+ * threads are adding at the same time, it includes every addition that
+ * completed before the call and may include some that are in progress. Once
+ * writers are quiescent, it's exact. Because floating point addition isn't
+ * associative, the result may differ in the last bits from adding the same
+ * values in order on one thread.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class StripedDouble extends Number
+{
+	private static final long serialVersionUID = 1L;
+	
+	private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+	
+	private final AtomicDouble base = new AtomicDouble();
+	private volatile AtomicDouble[] cells;
+	
+	/**
+	 * Creates a new StripedDouble with a value of zero.
+	 */
+	public StripedDouble()
+	{
+	}
+	
+	/**
+	 * Adds a value.
+	 * 
+	 * @param value The value to add
+	 */
+	public void add(double value)
+	{
+		AtomicDouble[] cs = cells;
+		if (cs == null) {
+			double current = base.get();
+			if (base.compareAndSet(current, current + value)) {
+				return;
+			}
+			cs = stripe();
+		}
+		cs[index(cs.length)].addAndGet(value);
+	}
+	
+	/**
+	 * Gets the current total.
+	 * 
+	 * @return The sum of all values added
+	 */
+	public double sum()
+	{
+		double sum = base.get();
+		AtomicDouble[] cs = cells;
+		if (cs != null) {
+			for (AtomicDouble c : cs) {
+				sum += c.get();
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Resets the total to zero.
+	 * 
+	 * <p>This is only reliable when no other threads are adding.
+	 */
+	public void reset()
+	{
+		base.set(0.0);
+		AtomicDouble[] cs = cells;
+		if (cs != null) {
+			for (AtomicDouble c : cs) {
+				c.set(0.0);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the current total and resets it to zero.
+	 * 
+	 * <p>Values added concurrently with this call are either included in the
+	 * returned total or left for the next one, but never lost.
+	 * 
+	 * @return The sum of all values added since the last reset
+	 */
+	public double sumThenReset()
+	{
+		double sum = base.getAndSet(0.0);
+		AtomicDouble[] cs = cells;
+		if (cs != null) {
+			for (AtomicDouble c : cs) {
+				sum += c.getAndSet(0.0);
+			}
+		}
+		return sum;
+	}
+	
+	@Override
+	public double doubleValue()
+	{
+		return sum();
+	}
+
+	@Override
+	public float floatValue()
+	{
+		return (float) sum();
+	}
+
+	@Override
+	public int intValue()
+	{
+		return (int) sum();
+	}
+
+	@Override
+	public long longValue()
+	{
+		return (long) sum();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return Double.toString(sum());
+	}
+	
+	private synchronized AtomicDouble[] stripe()
+	{
+		if (cells == null) {
+			AtomicDouble[] cs = new AtomicDouble[STRIPES];
+			for (int i = 0; i < cs.length; i++) {
+				cs[i] = new AtomicDouble();
+			}
+			cells = cs;
+		}
+		return cells;
+	}
+
+	private static int index(int length)
+	{
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (length - 1);
+	}
+	
+	private static int stripes(int processors)
+	{
+		int n = 2;
+		while (n < processors && n < (1 << 16)) {
+			n <<= 1;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+/**
+ * Decides whether a unit of work may start now.
+ * 
+ * <p>Callers that get a permit from {@link #tryAcquire()} must call
+ * {@link #release(long, boolean)} once the work finishes, whether or not it
+ * succeeded. {@link ThrottledRunnable} and {@link ThrottledExecutor} take care
+ * of this.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public interface Throttle {
+	/**
+	 * Tries to get a permit without blocking.
+	 * 
+	 * @return Whether the work may start
+	 */
+	public boolean tryAcquire();
+	
+	/**
+	 * Returns a permit once the work is done.
+	 * 
+	 * @param elapsedNanos How long the work took, in nanoseconds
+	 * @param success Whether the work succeeded
+	 */
+	public void release(long elapsedNanos, boolean success);
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A {@link TaskExecutor} that only hands tasks to its delegate if a {@link Throttle} allows it.
+ * 
+ * <p>{@link #execute(Runnable)} never blocks: if the throttle refuses, it
+ * throws a {@link TaskRejectedException} and the caller decides whether to
+ * drop, retry or queue the task elsewhere. The permit is released when the
+ * task finishes on the delegate, with its duration and whether it threw, so
+ * an {@link AimdLimiter} can adapt. A task the delegate itself rejects is
+ * released as a failure, and never runs afterward. Delegates that run tasks
+ * on the calling thread, like Spring's {@code SyncTaskExecutor}, are fine:
+ * the permit is released only once, even if the task throws.
+ * 
+ * <p>The permit can't be released for a task the delegate accepts and then
+ * silently drops, such as a {@code ThreadPoolExecutor} with a
+ * {@code DiscardPolicy} or {@code DiscardOldestPolicy}, or one whose queue
+ * is drained by {@code shutdownNow()}. With an {@link AimdLimiter}, each such
+ * task holds its permit for good. Use a delegate that rejects by throwing,
+ * like the default {@code AbortPolicy}, and don't reuse the throttle after
+ * calling {@code shutdownNow()} on the delegate.
+ * 
+ * <pre>
+ * mailService.setTaskExecutor(new ThrottledExecutor(pool, new TokenBucket(20, 1, TimeUnit.SECONDS, 5)));
+ * </pre>
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class ThrottledExecutor implements TaskExecutor {
+	private final Executor delegate;
+	private final Throttle throttle;
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * Creates a new ThrottledExecutor.
+	 * 
+	 * @param delegate The Executor that runs allowed tasks
+	 * @param throttle The throttle
+	 */
+	public ThrottledExecutor(Executor delegate, Throttle throttle) {
+		this.delegate = Arguments.checkNull(delegate);
+		this.throttle = Arguments.checkNull(throttle);
+	}
+
+	@Override
+	public void execute(final Runnable task) {
+		Arguments.checkNull(task);
+		if (!throttle.tryAcquire()) {
+			rejected.incrementAndGet();
+			throw new TaskRejectedException("Task " + task + " was throttled");
+		}
+		// the delegate may run the task on this thread and let its exception out
+		final AtomicBoolean started = new AtomicBoolean();
+		try {
+			delegate.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (started.compareAndSet(false, true)) {
+						ThrottledRunnable.run(throttle, task);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			if (started.compareAndSet(false, true)) {
+				throttle.release(0, false);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gets the number of tasks refused by the throttle.
+	 * 
+	 * @return The rejected count
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+}
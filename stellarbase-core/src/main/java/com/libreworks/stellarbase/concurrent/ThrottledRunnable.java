@@ -0,0 +1,102 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Runs a Runnable only if a {@link Throttle} allows it.
+ * 
+ * <p>When the throttle refuses, the optional {@code ifThrottled} Runnable
+ * runs instead, and nothing waits. This suits scheduled jobs, where skipping
+ * a run is better than piling up behind a busy resource. If the delegate
+ * throws an exception, the permit is released as a failure and the exception
+ * propagates.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class ThrottledRunnable implements Runnable {
+	private final Throttle throttle;
+	private final Runnable delegate;
+	private final Runnable ifThrottled;
+	private final AtomicLong skipped = new AtomicLong();
+	
+	/**
+	 * Creates a new ThrottledRunnable that does nothing when throttled.
+	 * 
+	 * @param throttle The throttle
+	 * @param delegate The Runnable to run when allowed
+	 */
+	public ThrottledRunnable(Throttle throttle, Runnable delegate) {
+		this(throttle, delegate, null);
+	}
+	
+	/**
+	 * Creates a new ThrottledRunnable.
+	 * 
+	 * @param throttle The throttle
+	 * @param delegate The Runnable to run when allowed
+	 * @param ifThrottled The Runnable to run when refused; can be null
+	 */
+	public ThrottledRunnable(Throttle throttle, Runnable delegate, Runnable ifThrottled) {
+		this.throttle = Arguments.checkNull(throttle);
+		this.delegate = Arguments.checkNull(delegate);
+		this.ifThrottled = ifThrottled;
+	}
+
+	@Override
+	public void run() {
+		if (throttle.tryAcquire()) {
+			run(throttle, delegate);
+		} else {
+			skipped.incrementAndGet();
+			if (ifThrottled != null) {
+				ifThrottled.run();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of times the throttle refused to run the delegate.
+	 * 
+	 * @return The skipped count
+	 */
+	public long getSkippedCount() {
+		return skipped.get();
+	}
+	
+	/**
+	 * Runs a Runnable for which a permit was acquired, then releases it.
+	 * 
+	 * @param throttle The throttle that gave the permit
+	 * @param runnable The Runnable
+	 */
+	static void run(Throttle throttle, Runnable runnable) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			runnable.run();
+			success = true;
+		} finally {
+			throttle.release(System.nanoTime() - start, success);
+		}
+	}
+}
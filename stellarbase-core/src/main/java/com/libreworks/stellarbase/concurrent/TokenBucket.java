@@ -0,0 +1,166 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A lock-free {@link Throttle} that limits how often work may start.
+ * 
+ * <p>The bucket holds up to {@code burst} tokens and refills at a steady
+ * rate; each {@link #tryAcquire()} takes a token, or fails right away if
+ * there are none. The whole state is a single {@link AtomicLong}: the time at
+ * which the bucket will be full again. Acquiring a token pushes that time
+ * forward by one interval with a compare-and-set, so threads never block
+ * each other. Unlike Guava's {@code RateLimiter}, nothing sleeps and nothing
+ * is borrowed from the future.
+ * 
+ * <pre>
+ * // at most 20 messages a second, in bursts of up to 5
+ * TokenBucket bucket = new TokenBucket(20, 1, TimeUnit.SECONDS, 5);
+ * </pre>
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class TokenBucket implements Throttle {
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final int burst;
+	private final Ticker ticker;
+	/**
+	 * The ticker reading at which the bucket is full again
+	 */
+	private final AtomicLong full;
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * Creates a new TokenBucket, initially full.
+	 * 
+	 * @param permits The number of tokens added per period
+	 * @param period The length of the period
+	 * @param unit The unit of {@code period}
+	 * @param burst The most tokens the bucket can hold
+	 * @throws IllegalArgumentException if {@code unit} is null or any number isn't positive
+	 */
+	public TokenBucket(long permits, long period, TimeUnit unit, int burst) {
+		this(permits, period, unit, burst, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a new TokenBucket, initially full.
+	 * 
+	 * @param permits The number of tokens added per period
+	 * @param period The length of the period
+	 * @param unit The unit of {@code period}
+	 * @param burst The most tokens the bucket can hold
+	 * @param ticker The source of time
+	 * @throws IllegalArgumentException if {@code unit} or {@code ticker} is null or any number isn't positive
+	 */
+	public TokenBucket(long permits, long period, TimeUnit unit, int burst, Ticker ticker) {
+		if (permits < 1 || period < 1 || burst < 1) {
+			throw new IllegalArgumentException("permits, period and burst must be positive");
+		}
+		this.intervalNanos = Math.max(1, Arguments.checkNull(unit).toNanos(period) / permits);
+		this.burst = burst;
+		this.burstNanos = intervalNanos * burst;
+		this.ticker = Arguments.checkNull(ticker);
+		this.full = new AtomicLong(ticker.read());
+	}
+	
+	@Override
+	public boolean tryAcquire() {
+		return tryAcquire(1);
+	}
+	
+	/**
+	 * Tries to take several tokens at once without blocking.
+	 * 
+	 * @param permits The number of tokens
+	 * @return Whether the tokens were taken
+	 * @throws IllegalArgumentException if {@code permits} isn't positive
+	 */
+	public boolean tryAcquire(int permits) {
+		if (permits < 1) {
+			throw new IllegalArgumentException("permits must be positive");
+		}
+		long cost = intervalNanos * permits;
+		while (true) {
+			long now = ticker.read();
+			long current = full.get();
+			long next = (current - now > 0 ? current : now) + cost;
+			if (next - now > burstNanos) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (full.compareAndSet(current, next)) {
+				acquired.addAndGet(permits);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Does nothing; tokens come back with time, not when work finishes.
+	 */
+	@Override
+	public void release(long elapsedNanos, boolean success) {
+	}
+	
+	/**
+	 * Gets the number of tokens that could be taken right now.
+	 * 
+	 * @return The available tokens
+	 */
+	public int getAvailablePermits() {
+		long owed = full.get() - ticker.read();
+		return owed > 0 ? (int) ((burstNanos - owed) / intervalNanos) : burst;
+	}
+	
+	/**
+	 * Gets the most tokens the bucket can hold.
+	 * 
+	 * @return The burst size
+	 */
+	public int getBurst() {
+		return burst;
+	}
+	
+	/**
+	 * Gets the number of tokens taken.
+	 * 
+	 * @return The acquired count
+	 */
+	public long getAcquiredCount() {
+		return acquired.get();
+	}
+	
+	/**
+	 * Gets the number of times tokens couldn't be taken.
+	 * 
+	 * @return The rejected count
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+}
@@ -17,8 +17,10 @@
  */
 package com.libreworks.stellarbase.math;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.NumberFormat;
+import java.util.Locale;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ComparisonChain;
@@ -35,6 +37,16 @@ public abstract class AbstractMultiplier<T extends Multiplier<T>> implements Mul
 {
 	private static final long serialVersionUID = 1L;
 	
+	/**
+	 * Holds each thread's format for {@link #toString()}, since NumberFormat isn't thread-safe.
+	 * Only JDK types are held, so pooled threads don't pin this library's ClassLoader.
+	 */
+	private static final ThreadLocal<NumberFormat> DEFAULT_FORMAT = new ThreadLocal<NumberFormat>();
+	/**
+	 * The default locale when each thread's format was created
+	 */
+	private static final ThreadLocal<Locale> DEFAULT_LOCALE = new ThreadLocal<Locale>();
+	
 	private final BigDecimal value;
 	private final BigDecimal reduced;
 	private final String multiplier;
@@ -115,23 +127,137 @@ public abstract class AbstractMultiplier<T extends Multiplier<T>> implements Mul
 
 	public String format(NumberFormat format)
 	{
-		StringBuilder sb = new StringBuilder();
+		try {
+			return appendTo(new StringBuilder(), format).toString();
+		} catch (IOException e) {
+			// StringBuilder doesn't throw IOException
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Appends the value as {@link #format(NumberFormat)} would.
+	 * 
+	 * <p>The number is still formatted into a String; this only saves
+	 * building the rest of the text into a String of its own.
+	 * 
+	 * @param <A> The type of Appendable
+	 * @param appendable The destination
+	 * @param format The format to use
+	 * @return The {@code appendable} supplied
+	 * @throws IOException if the {@code appendable} throws one
+	 */
+	public <A extends Appendable> A appendTo(A appendable, NumberFormat format) throws IOException
+	{
 		if (prefix != null) {
-			sb.append(prefix);
+			appendable.append(prefix);
 		}
-		sb.append(format.format(reduced.doubleValue()));
-		String multi = getMultiplier();
-		if (multi != null) {
-			sb.append(Characters.SPACE).append(multi);
+		appendable.append(format.format(reduced.doubleValue()));
+		if (multiplier != null || unit != null) {
+			appendable.append(Characters.SPACE);
+			if (multiplier != null) {
+				appendable.append(multiplier);
+			}
+			if (unit != null) {
+				appendable.append(unit);
+			}
 		}
-		return sb.toString();
+		return appendable;
+	}
+	
+	/**
+	 * Appends the value as {@link #toString()} would.
+	 * 
+	 * @param <A> The type of Appendable
+	 * @param appendable The destination
+	 * @return The {@code appendable} supplied
+	 * @throws IOException if the {@code appendable} throws one
+	 */
+	public <A extends Appendable> A appendTo(A appendable) throws IOException
+	{
+		return appendTo(appendable, getDefaultFormat());
 	}
 	
 	@Override
 	public String toString()
 	{
-		NumberFormat format = NumberFormat.getInstance();
-		format.setMaximumFractionDigits(2);
-		return format(format);
-	}	
+		return format(getDefaultFormat());
+	}
+	
+	/**
+	 * Gets this thread's default format with two fraction digits.
+	 * 
+	 * <p>The format is created again if {@link Locale#setDefault(Locale)} is called.
+	 * 
+	 * @return The format
+	 */
+	private static NumberFormat getDefaultFormat()
+	{
+		Locale locale = Locale.getDefault();
+		NumberFormat format = DEFAULT_FORMAT.get();
+		if (format == null || DEFAULT_LOCALE.get() != locale) {
+			format = NumberFormat.getInstance();
+			format.setMaximumFractionDigits(2);
+			DEFAULT_FORMAT.set(format);
+			DEFAULT_LOCALE.set(locale);
+		}
+		return format;
+	}
+	
+	/**
+	 * Gets the minimum scale of the exact fast path for a number.
+	 * 
+	 * <p>The fast path skips the BigDecimal arithmetic for numbers that are
+	 * whole and fit in a long. Boxed integers convert with a scale of zero.
+	 * Whole doubles and floats under ten million print as {@code "123.0"}, so
+	 * they convert with a scale of one.
+	 * 
+	 * @param number The number
+	 * @return The minimum scale, or -1 if the fast path doesn't apply
+	 */
+	static int fastScale(Number number)
+	{
+		if (number instanceof Long || number instanceof Integer
+			|| number instanceof Short || number instanceof Byte) {
+			return number.longValue() == Long.MIN_VALUE ? -1 : 0;
+		} else if (number instanceof Double || number instanceof Float) {
+			double d = number.doubleValue();
+			return Math.abs(d) < 1e7 && d == Math.rint(d) ? 1 : -1;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the same result as {@code BigDecimal.valueOf(value).stripTrailingZeros()}.
+	 * 
+	 * @param value The value
+	 * @return The BigDecimal
+	 */
+	static BigDecimal stripped(long value)
+	{
+		long unscaled = value;
+		int scale = 0;
+		while (unscaled != 0 && unscaled % 10 == 0) {
+			unscaled /= 10;
+			scale--;
+		}
+		return BigDecimal.valueOf(unscaled, scale);
+	}
+	
+	/**
+	 * Creates a BigDecimal, removing trailing zeros down to a minimum scale.
+	 * 
+	 * @param unscaled The unscaled value
+	 * @param scale The scale
+	 * @param minScale The minimum scale
+	 * @return The BigDecimal
+	 */
+	static BigDecimal decimal(long unscaled, int scale, int minScale)
+	{
+		while (scale > minScale && unscaled % 10 == 0) {
+			unscaled /= 10;
+			scale--;
+		}
+		return BigDecimal.valueOf(unscaled, scale);
+	}
 }
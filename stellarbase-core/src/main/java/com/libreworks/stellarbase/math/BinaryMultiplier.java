@@ -21,6 +21,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 import com.google.common.base.Objects;
+import com.google.common.math.LongMath;
 
 /**
  * Stores a number and presents it abbreviated as a power of two (e.g 1024 = 1 Ki).
@@ -47,6 +48,8 @@ public class BinaryMultiplier extends AbstractMultiplier<BinaryMultiplier>
 	protected static final BigDecimal PEBI = TWO.pow(50);
 	protected static final BigDecimal EXBI = TWO.pow(60);
 	
+	private static final String[] MULTIPLIERS = { null, K, M, G, T, P, E };
+	
 	private BinaryMultiplier(BigDecimal value, BigDecimal reduced, String multiplier, String unit, String prefix)
 	{
 		super(value, reduced, multiplier, unit, prefix);
@@ -64,6 +67,13 @@ public class BinaryMultiplier extends AbstractMultiplier<BinaryMultiplier>
 	
 	static BinaryMultiplier create(Number number, String unit, String prefix)
 	{
+		int minScale = fastScale(number);
+		if (minScale > -1) {
+			BinaryMultiplier fast = create(number.longValue(), minScale, unit, prefix);
+			if (fast != null) {
+				return fast;
+			}
+		}
 		BigDecimal value = null;
 		if (number == null) {
 			value = BigDecimal.ZERO;
@@ -104,6 +114,40 @@ public class BinaryMultiplier extends AbstractMultiplier<BinaryMultiplier>
 		return new BinaryMultiplier(value.multiply(adjust).stripTrailingZeros(), reduced, multiplier, unit, prefix);		
 	}
 
+	/**
+	 * Creates a BinaryMultiplier for a whole number using long arithmetic.
+	 * 
+	 * <p>The result is the same as the BigDecimal path in
+	 * {@link #create(Number, String, String)}, scales included.
+	 * 
+	 * @param number The value, which can't be {@code Long.MIN_VALUE}
+	 * @param minScale The scale the BigDecimal path would convert the value to
+	 * @param unit The unit
+	 * @param prefix The prefix
+	 * @return The multiplier, or null if the reduced value won't fit in a long
+	 */
+	private static BinaryMultiplier create(long number, int minScale, String unit, String prefix)
+	{
+		long abs = Math.abs(number);
+		int shift = abs < (1L << 10) ? 0 : Math.min(60, (63 - Long.numberOfLeadingZeros(abs)) / 10 * 10);
+		String multiplier = MULTIPLIERS[shift / 10];
+		BigDecimal reduced;
+		int zeros = Long.numberOfTrailingZeros(abs);
+		if (abs == 0 || zeros >= shift) {
+			reduced = decimal((number >> shift) * LongMath.pow(10, minScale), minScale, minScale);
+		} else {
+			// abs / 2^shift == (abs >> zeros) * 5^places / 10^places
+			int places = shift - zeros;
+			try {
+				long unscaled = LongMath.checkedMultiply(abs >> zeros, LongMath.checkedPow(5, places));
+				reduced = BigDecimal.valueOf(number < 0 ? -unscaled : unscaled, places);
+			} catch (ArithmeticException e) {
+				return null;
+			}
+		}
+		return new BinaryMultiplier(stripped(number), reduced, multiplier, unit, prefix);
+	}
+
 	@Override
 	public boolean equals(Object obj)
 	{
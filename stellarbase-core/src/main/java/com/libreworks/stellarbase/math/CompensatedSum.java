@@ -0,0 +1,104 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import java.io.Serializable;
+
+/**
+ * A running sum with Neumaier's compensation for lost low-order bits.
+ * 
+ * <p>This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+class CompensatedSum implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	private double sum;
+	private double compensation;
+	
+	/**
+	 * Adds a value.
+	 * 
+	 * @param value The value
+	 */
+	void add(double value)
+	{
+		double t = sum + value;
+		if (Math.abs(sum) >= Math.abs(value)) {
+			compensation += (sum - t) + value;
+		} else {
+			compensation += (value - t) + sum;
+		}
+		sum = t;
+	}
+	
+	/**
+	 * Adds a range of values.
+	 * 
+	 * @param values The values
+	 * @param from The first index, inclusive
+	 * @param to The last index, exclusive
+	 * @return This instance
+	 */
+	CompensatedSum addAll(double[] values, int from, int to)
+	{
+		for (int i = from; i < to; i++) {
+			add(values[i]);
+		}
+		return this;
+	}
+	
+	/**
+	 * Adds the total of another instance, keeping its compensation.
+	 * 
+	 * @param other The other instance
+	 */
+	void merge(CompensatedSum other)
+	{
+		add(other.sum);
+		compensation += other.compensation;
+	}
+	
+	/**
+	 * Creates an independent copy of this instance.
+	 * 
+	 * @return The copy
+	 */
+	CompensatedSum copy()
+	{
+		CompensatedSum copy = new CompensatedSum();
+		copy.sum = sum;
+		copy.compensation = compensation;
+		return copy;
+	}
+	
+	/**
+	 * Gets the compensated total.
+	 * 
+	 * @return The sum
+	 */
+	double get()
+	{
+		double total = sum + compensation;
+		// an infinite sum makes the compensation NaN
+		return Double.isNaN(total) && Double.isInfinite(sum) ? sum : total;
+	}
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A mutable, exact decimal sum that avoids allocating for each addition.
+ * 
+ * <p>Adding {@link BigDecimal}s together creates a new BigDecimal every time.
+ * This class instead keeps the total as an unscaled {@code long} and a scale,
+ * the way a BigDecimal with few digits does internally, and adds into it in
+ * place. If an addition has more decimal places than the total, the total is
+ * rescaled. Only if the total no longer fits in a long, or needs more than 18
+ * decimal places, is it promoted to a BigDecimal, after which additions are
+ * BigDecimal additions.
+ * 
+ * <p>The result of {@link #get()} is always equal to, and has the same scale
+ * as, the result of adding the same values to {@link BigDecimal#ZERO}. The
+ * allocation-free additions are {@link #add(long)},
+ * {@link #add(long, int)}, and {@link #add(CharSequence)} for plain decimal
+ * strings like {@code "-1234.56"}. For example, to total amounts in cents:
+ * <pre>
+ * DecimalAccumulator total = new DecimalAccumulator();
+ * for (Invoice invoice : invoices) {
+ *     total.add(invoice.getAmountInCents(), 2);
+ * }
+ * BigDecimal dollars = total.get();
+ * </pre>
+ * 
+ * <p>This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class DecimalAccumulator extends Number
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The most decimal places kept in a long
+	 */
+	private static final int MAX_SCALE = 18;
+	private static final long[] POWERS = new long[MAX_SCALE + 1];
+	static {
+		POWERS[0] = 1L;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1] * 10;
+		}
+	}
+	
+	private long unscaled;
+	private int scale;
+	private BigDecimal big;
+	
+	/**
+	 * Adds a whole number.
+	 * 
+	 * @param value The value
+	 * @return provides a fluent interface
+	 */
+	public DecimalAccumulator add(long value)
+	{
+		return add(value, 0);
+	}
+	
+	/**
+	 * Adds a scaled number, {@code unscaledValue &times; 10<sup>-scale</sup>}.
+	 * 
+	 * <p>For example, {@code add(1999, 2)} adds 19.99.
+	 * 
+	 * @param unscaledValue The unscaled value
+	 * @param scale The scale, which may be negative
+	 * @return provides a fluent interface
+	 */
+	public DecimalAccumulator add(long unscaledValue, int scale)
+	{
+		if (big == null) {
+			if (scale > this.scale && (scale > MAX_SCALE || !rescale(scale))) {
+				promote();
+			} else {
+				long addend = unscaledValue;
+				if (scale < this.scale) {
+					addend = scaleUp(unscaledValue, this.scale - scale);
+				}
+				long sum = unscaled + addend;
+				// overflow if both operands have the opposite sign of the sum
+				if (addend != Long.MIN_VALUE && ((unscaled ^ sum) & (addend ^ sum)) >= 0) {
+					unscaled = sum;
+					return this;
+				}
+				promote();
+			}
+		}
+		big = big.add(BigDecimal.valueOf(unscaledValue, scale));
+		return this;
+	}
+	
+	/**
+	 * Adds a BigDecimal.
+	 * 
+	 * @param value The value, which counts as zero if null
+	 * @return provides a fluent interface
+	 */
+	public DecimalAccumulator add(BigDecimal value)
+	{
+		if (value == null) {
+			return this;
+		} else if (big == null && value.precision() <= MAX_SCALE) {
+			return add(value.unscaledValue().longValue(), value.scale());
+		}
+		promote();
+		big = big.add(value);
+		return this;
+	}
+	
+	/**
+	 * Adds a number.
+	 * 
+	 * <p>Integral numbers are added exactly. Other numbers are converted to
+	 * BigDecimal from their {@code toString}, the way {@link SafeMath} does.
+	 * 
+	 * @param value The value, which counts as zero if null
+	 * @return provides a fluent interface
+	 */
+	public DecimalAccumulator add(Number value)
+	{
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return add(value.longValue(), 0);
+		} else if (value instanceof BigDecimal) {
+			return add((BigDecimal) value);
+		} else if (value instanceof BigInteger) {
+			return add(new BigDecimal((BigInteger) value));
+		} else if (value instanceof DecimalAccumulator) {
+			return add(((DecimalAccumulator) value).get());
+		}
+		return value == null ? this : add((BigDecimal) NumberType.BIG_DECIMAL.convert(value));
+	}
+	
+	/**
+	 * Adds a number parsed from a string.
+	 * 
+	 * <p>Plain decimals (an optional minus sign, up to 18 digits, and an
+	 * optional fraction after a period) are parsed without allocating.
+	 * Anything else is converted with {@link SafeMath#value(Class, Object)},
+	 * so strings that aren't numbers count as zero.
+	 * 
+	 * @param value The value, which counts as zero if null
+	 * @return provides a fluent interface
+	 */
+	public DecimalAccumulator add(CharSequence value)
+	{
+		if (value == null) {
+			return this;
+		}
+		int len = value.length();
+		int i = len > 0 && value.charAt(0) == '-' ? 1 : 0;
+		long v = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (int j = i; j < len; j++) {
+			char c = value.charAt(j);
+			if (c >= '0' && c <= '9') {
+				v = v * 10 + (c - '0');
+				digits++;
+				if (fraction > -1) {
+					fraction++;
+				}
+			} else if (c == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				digits = -1;
+				break;
+			}
+		}
+		if (digits < 1 || digits > MAX_SCALE) {
+			return add(SafeMath.value(BigDecimal.class, value));
+		}
+		// SafeMath treats an unsigned zero as unscaled zero, which adds nothing,
+		// but parses a negative zero like "-0.00", keeping its scale
+		return v == 0 && i == 0 ? this : add(i > 0 ? -v : v, fraction < 0 ? 0 : fraction);
+	}
+	
+	/**
+	 * Adds the total of another accumulator.
+	 * 
+	 * @param other The other accumulator
+	 * @return provides a fluent interface
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public DecimalAccumulator merge(DecimalAccumulator other)
+	{
+		Arguments.checkNull(other);
+		return other.big == null ? add(other.unscaled, other.scale) : add(other.big);
+	}
+	
+	/**
+	 * Creates a copy of this accumulator.
+	 * 
+	 * @return The copy
+	 */
+	public DecimalAccumulator copy()
+	{
+		DecimalAccumulator copy = new DecimalAccumulator();
+		copy.unscaled = unscaled;
+		copy.scale = scale;
+		copy.big = big;
+		return copy;
+	}
+	
+	/**
+	 * Gets the total.
+	 * 
+	 * @return The total
+	 */
+	public BigDecimal get()
+	{
+		return big == null ? BigDecimal.valueOf(unscaled, scale) : big;
+	}
+	
+	/**
+	 * Gets the scale of the total, which is the largest scale added.
+	 * 
+	 * @return The scale
+	 */
+	public int scale()
+	{
+		return big == null ? scale : big.scale();
+	}
+	
+	/**
+	 * Resets the total to zero.
+	 */
+	public void reset()
+	{
+		unscaled = 0;
+		scale = 0;
+		big = null;
+	}
+
+	@Override
+	public int intValue()
+	{
+		return get().intValue();
+	}
+
+	@Override
+	public long longValue()
+	{
+		return get().longValue();
+	}
+
+	@Override
+	public float floatValue()
+	{
+		return get().floatValue();
+	}
+
+	@Override
+	public double doubleValue()
+	{
+		return get().doubleValue();
+	}
+
+	@Override
+	public String toString()
+	{
+		return get().toString();
+	}
+	
+	private boolean rescale(int newScale)
+	{
+		long rescaled = scaleUp(unscaled, newScale - scale);
+		if (rescaled == Long.MIN_VALUE) {
+			return false;
+		}
+		unscaled = rescaled;
+		scale = newScale;
+		return true;
+	}
+	
+	private long scaleUp(long value, int places)
+	{
+		if (places < 0 || places > MAX_SCALE) {
+			return Long.MIN_VALUE;
+		}
+		long power = POWERS[places];
+		if (value != 0 && (value > Long.MAX_VALUE / power || value < -(Long.MAX_VALUE / power))) {
+			return Long.MIN_VALUE;
+		}
+		return value * power;
+	}
+	
+	private void promote()
+	{
+		if (big == null) {
+			big = BigDecimal.valueOf(unscaled, scale);
+		}
+	}
+}
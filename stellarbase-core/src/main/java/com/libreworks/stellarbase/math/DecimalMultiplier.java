@@ -42,6 +42,8 @@ public class DecimalMultiplier extends AbstractMultiplier<DecimalMultiplier>
 	protected static final BigDecimal BILLION = BigDecimal.TEN.pow(9);
 	protected static final BigDecimal TRILLION = BigDecimal.TEN.pow(12);
 	
+	private static final String[] MULTIPLIERS = { null, K, M, B, T };
+	
 	private DecimalMultiplier(BigDecimal value, BigDecimal reduced, String multiplier, String unit, String prefix)
 	{
 		super(value, reduced, multiplier, unit, prefix);
@@ -60,6 +62,10 @@ public class DecimalMultiplier extends AbstractMultiplier<DecimalMultiplier>
 	
 	static DecimalMultiplier create(Number number, String unit, String prefix)
 	{
+		int minScale = fastScale(number);
+		if (minScale > -1) {
+			return create(number.longValue(), minScale, unit, prefix);
+		}
 		BigDecimal value = null;
 		if (number == null) {
 			value = BigDecimal.ZERO;
@@ -94,6 +100,28 @@ public class DecimalMultiplier extends AbstractMultiplier<DecimalMultiplier>
 		return new DecimalMultiplier(value.multiply(adjust).stripTrailingZeros(), reduced, multiplier, unit, prefix);
 	}
 
+	/**
+	 * Creates a DecimalMultiplier for a whole number using long arithmetic.
+	 * 
+	 * <p>The result is the same as the BigDecimal path in
+	 * {@link #create(Number, String, String)}, scales included.
+	 * 
+	 * @param number The value, which can't be {@code Long.MIN_VALUE}
+	 * @param minScale The scale the BigDecimal path would convert the value to
+	 * @param unit The unit
+	 * @param prefix The prefix
+	 * @return The multiplier
+	 */
+	private static DecimalMultiplier create(long number, int minScale, String unit, String prefix)
+	{
+		long abs = Math.abs(number);
+		int places = abs < 1000L ? 0 : (abs < 1000000L ? 3 : (abs < 1000000000L ? 6 : (abs < 1000000000000L ? 9 : 12)));
+		// whole doubles are under ten million, so multiplying by ten can't overflow
+		long unscaled = minScale > 0 ? number * 10 : number;
+		BigDecimal reduced = decimal(unscaled, places + minScale, minScale);
+		return new DecimalMultiplier(stripped(number), reduced, MULTIPLIERS[places / 3], unit, prefix);
+	}
+
 	@Override
 	public boolean equals(Object obj)
 	{
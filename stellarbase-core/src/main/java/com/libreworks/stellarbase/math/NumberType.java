@@ -0,0 +1,233 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.NumberUtils;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The JDK Number classes that {@link SafeMath} converts to without reflection.
+ * 
+ * <p>Each constant converts numbers exactly the way
+ * {@link NumberUtils#convertNumberToTargetClass(Number, Class)} does, including
+ * its overflow exceptions, without its argument checks or its string round
+ * trips where a primitive conversion gives the same result.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+enum NumberType
+{
+	BYTE(Byte.class, Byte.valueOf((byte) 0)) {
+		@Override
+		Number convert(Number n)
+		{
+			long v = n.longValue();
+			return v < Byte.MIN_VALUE || v > Byte.MAX_VALUE ? overflow(n) : Byte.valueOf(n.byteValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return v < Byte.MIN_VALUE || v > Byte.MAX_VALUE ? zero : Byte.valueOf((byte) v);
+		}
+	},
+	SHORT(Short.class, Short.valueOf((short) 0)) {
+		@Override
+		Number convert(Number n)
+		{
+			long v = n.longValue();
+			return v < Short.MIN_VALUE || v > Short.MAX_VALUE ? overflow(n) : Short.valueOf(n.shortValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return v < Short.MIN_VALUE || v > Short.MAX_VALUE ? zero : Short.valueOf((short) v);
+		}
+	},
+	INTEGER(Integer.class, Integer.valueOf(0)) {
+		@Override
+		Number convert(Number n)
+		{
+			long v = n.longValue();
+			return v < Integer.MIN_VALUE || v > Integer.MAX_VALUE ? overflow(n) : Integer.valueOf(n.intValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return v < Integer.MIN_VALUE || v > Integer.MAX_VALUE ? zero : Integer.valueOf((int) v);
+		}
+	},
+	LONG(Long.class, Long.valueOf(0L)) {
+		@Override
+		Number convert(Number n)
+		{
+			if (n instanceof BigInteger || n instanceof BigDecimal) {
+				// these need a range check
+				return NumberUtils.convertNumberToTargetClass(n, Long.class);
+			}
+			return Long.valueOf(n.longValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return Long.valueOf(v);
+		}
+	},
+	BIG_INTEGER(BigInteger.class, BigInteger.ZERO) {
+		@Override
+		Number convert(Number n)
+		{
+			return n instanceof BigDecimal ? ((BigDecimal) n).toBigInteger() : BigInteger.valueOf(n.longValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return BigInteger.valueOf(v);
+		}
+	},
+	FLOAT(Float.class, Float.valueOf(0.0f)) {
+		@Override
+		Number convert(Number n)
+		{
+			return Float.valueOf(n.floatValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return Float.valueOf(v == 0 && negative ? -0.0f : (float) v);
+		}
+	},
+	DOUBLE(Double.class, Double.valueOf(0.0d)) {
+		@Override
+		Number convert(Number n)
+		{
+			return Double.valueOf(n.doubleValue());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return Double.valueOf(v == 0 && negative ? -0.0d : (double) v);
+		}
+	},
+	BIG_DECIMAL(BigDecimal.class, BigDecimal.ZERO) {
+		@Override
+		Number convert(Number n)
+		{
+			if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) {
+				return BigDecimal.valueOf(n.longValue());
+			} else if (n instanceof BigInteger) {
+				return new BigDecimal((BigInteger) n);
+			}
+			// Double.toString is the same as BigDecimal.valueOf, and others need it
+			return new BigDecimal(n.toString());
+		}
+		@Override
+		Number fromLong(long v, boolean negative)
+		{
+			return BigDecimal.valueOf(v);
+		}
+	};
+	
+	private static final Map<Class<?>,NumberType> BY_CLASS;
+	static {
+		ImmutableMap.Builder<Class<?>,NumberType> builder = ImmutableMap.builder();
+		for (NumberType type : values()) {
+			builder.put(type.type, type);
+		}
+		BY_CLASS = builder.build();
+	}
+	
+	final Class<? extends Number> type;
+	final Number zero;
+	
+	private NumberType(Class<? extends Number> type, Number zero)
+	{
+		this.type = type;
+		this.zero = zero;
+	}
+	
+	/**
+	 * Converts a number that isn't already of this type.
+	 * 
+	 * @param n The number
+	 * @return The converted number
+	 * @throws IllegalArgumentException if the number is out of range
+	 */
+	abstract Number convert(Number n);
+	
+	/**
+	 * Converts an integer that was parsed from a string of decimal digits.
+	 * 
+	 * @param v The parsed value
+	 * @param negative Whether the string had a minus sign
+	 * @return The converted number, or zero if the string wouldn't parse as this type
+	 */
+	abstract Number fromLong(long v, boolean negative);
+	
+	Number overflow(Number n)
+	{
+		// let Spring raise its usual exception
+		return NumberUtils.convertNumberToTargetClass(n, type);
+	}
+	
+	/**
+	 * Gets the constant for a class.
+	 * 
+	 * @param toClass The class
+	 * @return The constant, or null if the class isn't one of the JDK types
+	 */
+	static NumberType of(Class<?> toClass)
+	{
+		return BY_CLASS.get(toClass);
+	}
+	
+	/**
+	 * Whether a number's {@code toString} is all zeros, with an optional
+	 * fraction of all zeros.
+	 * 
+	 * @param n The number
+	 * @return true or false if the class is known, otherwise null
+	 */
+	static Boolean isZeroString(Number n)
+	{
+		Class<?> c = n.getClass();
+		if (c == Integer.class || c == Long.class || c == Short.class || c == Byte.class
+			|| c == AtomicInteger.class || c == AtomicLong.class) {
+			return n.longValue() == 0L;
+		} else if (c == Double.class) {
+			// -0.0 prints with a sign
+			return Double.doubleToRawLongBits(n.doubleValue()) == 0L;
+		} else if (c == Float.class) {
+			return Float.floatToRawIntBits(n.floatValue()) == 0;
+		} else if (c == BigInteger.class) {
+			return ((BigInteger) n).signum() == 0;
+		} else if (c == BigDecimal.class) {
+			// zero prints in scientific notation outside these scales
+			BigDecimal bd = (BigDecimal) n;
+			return bd.signum() == 0 && bd.scale() >= 0 && bd.scale() <= 6;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import java.io.Serializable;
+
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Keeps the count, minimum, maximum, sum, mean, and variance of a stream of
+ * numbers in constant space.
+ * 
+ * <p>Each value is used once and then discarded. The sum is compensated
+ * (Neumaier's variant of Kahan summation), so it doesn't lose the small values
+ * the way a naive {@code double} sum does. The mean and variance use Welford's
+ * online algorithm, which avoids the cancellation of the textbook
+ * sum-of-squares formula.
+ * 
+ * <p>Two instances can be combined with {@link #merge(RunningStatistics)},
+ * which gives the same result as if one instance had seen every value (within
+ * rounding). This lets workers keep partial statistics that are combined
+ * afterward. This class is not thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class RunningStatistics implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private CompensatedSum sum = new CompensatedSum();
+	private double mean;
+	private double m2;
+	
+	/**
+	 * Adds a value.
+	 * 
+	 * @param value The value
+	 */
+	public void add(double value)
+	{
+		count++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		sum.add(value);
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+	}
+	
+	/**
+	 * Merges the values of another instance into this one.
+	 * 
+	 * @param other The other instance
+	 * @return This instance
+	 * @throws IllegalArgumentException if {@code other} is null
+	 */
+	public RunningStatistics merge(RunningStatistics other)
+	{
+		Arguments.checkNull(other);
+		if (other.count == 0) {
+			return this;
+		}
+		if (count == 0) {
+			copyFrom(other);
+			return this;
+		}
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		// Chan et al.'s pairwise update
+		mean += delta * other.count / total;
+		m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+		count = total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sum.merge(other.sum);
+		return this;
+	}
+	
+	/**
+	 * Creates an independent copy of this instance.
+	 * 
+	 * @return The copy
+	 */
+	public RunningStatistics copy()
+	{
+		RunningStatistics copy = new RunningStatistics();
+		copy.copyFrom(this);
+		return copy;
+	}
+	
+	/**
+	 * Gets the number of values added.
+	 * 
+	 * @return The count
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * Gets the smallest value added.
+	 * 
+	 * @return The minimum, or NaN if no values were added
+	 */
+	public double getMin()
+	{
+		return count == 0 ? Double.NaN : min;
+	}
+	
+	/**
+	 * Gets the largest value added.
+	 * 
+	 * @return The maximum, or NaN if no values were added
+	 */
+	public double getMax()
+	{
+		return count == 0 ? Double.NaN : max;
+	}
+	
+	/**
+	 * Gets the compensated sum of the values added.
+	 * 
+	 * @return The sum, or zero if no values were added
+	 */
+	public double getSum()
+	{
+		return sum.get();
+	}
+	
+	/**
+	 * Gets the arithmetic mean of the values added.
+	 * 
+	 * @return The mean, or NaN if no values were added
+	 */
+	public double getMean()
+	{
+		return count == 0 ? Double.NaN : mean;
+	}
+	
+	/**
+	 * Gets the sample variance of the values added, which divides by n - 1.
+	 * 
+	 * @return The variance, or NaN if fewer than two values were added
+	 */
+	public double getVariance()
+	{
+		return count < 2 ? Double.NaN : m2 / (count - 1);
+	}
+	
+	/**
+	 * Gets the population variance of the values added, which divides by n.
+	 * 
+	 * @return The variance, or NaN if no values were added
+	 */
+	public double getPopulationVariance()
+	{
+		return count == 0 ? Double.NaN : m2 / count;
+	}
+	
+	/**
+	 * Gets the sample standard deviation of the values added.
+	 * 
+	 * @return The standard deviation, or NaN if fewer than two values were added
+	 */
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RunningStatistics[count=" + count + ", min=" + getMin() + ", max=" + getMax() + ", sum=" + getSum() + ", mean=" + getMean() + ", variance=" + getVariance() + "]";
+	}
+	
+	private void copyFrom(RunningStatistics other)
+	{
+		count = other.count;
+		min = other.min;
+		max = other.max;
+		sum = other.sum.copy();
+		mean = other.mean;
+		m2 = other.m2;
+	}
+}
@@ -22,12 +22,24 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.springframework.util.NumberUtils;
 import org.springframework.util.ReflectionUtils;
 
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.libreworks.stellarbase.text.Strings;
 import com.libreworks.stellarbase.util.Arguments;
 
@@ -46,13 +58,21 @@ public class SafeMath
 	private static final String HexDigits = "(\\p{XDigit}+)";
 	private static final String Exp = "[eE][+-]?" + Digits;
 	/**
-	 * The regular expression is taken from the {@link Double#valueOf(String)} JavaDoc 
+	 * The regular expression is taken from the {@link Double#valueOf(String)} JavaDoc.
+	 * {@link #isNumber(CharSequence)} accepts the same strings without using it.
 	 */
 	protected static final Pattern FP_NUMBER = Pattern.compile(
 		"[+-]?(("+Digits+"(\\.)?("+Digits+"?)("+Exp+")?)|"+
 		"(\\.("+Digits+")("+Exp+")?)|"+
 		"(0[xX]" + HexDigits + "(\\.)?)|" +
 		"(0[xX]" + HexDigits + "?(\\.)" + HexDigits + "))");
+	
+	/**
+	 * Arrays smaller than this many elements per chunk aren't worth splitting
+	 */
+	private static final int MIN_CHUNK_SIZE = 8192;
+	
+	private static volatile LocaleSeparator separator;
 
 	/**
 	 * Gets a constant for zero if one exists.
@@ -164,6 +184,9 @@ public class SafeMath
 	 * otherwise it will be turned into a String and parsed. If the value cannot
 	 * be turned into the number for whatever reason, zero will be returned.
 	 * 
+	 * The JDK Number classes, and Strings of plain digits with an optional
+	 * fraction, are converted without regular expressions or formatters.
+	 * 
 	 * @param <T>
 	 *            The number class
 	 * @param value
@@ -177,38 +200,151 @@ public class SafeMath
 	public static <T extends Number> T value(Class<T> toClass, Object value)
 	{
 		Arguments.checkNull(toClass);
-		if (value == null || Boolean.FALSE.equals(value)
-			|| ZERO.matcher(value.toString()).matches()) {
+		if (value == null || Boolean.FALSE.equals(value)) {
+			return getZero(toClass);
+		}
+		NumberType type = NumberType.of(toClass);
+		if (value instanceof Number) {
+			// the JDK numbers can be checked for zero without printing them
+			Number n = (Number) value;
+			Boolean zero = NumberType.isZeroString(n);
+			if (zero == null ? ZERO.matcher(n.toString()).matches() : zero.booleanValue()) {
+				return getZero(toClass);
+			} else if (toClass.isInstance(n)) {
+				return toClass.cast(n);
+			}
+			return type == null ? NumberUtils.convertNumberToTargetClass(n, toClass)
+				: toClass.cast(type.convert(n));
+		}
+		String svalue = value.toString();
+		if (type != null) {
+			Number parsed = scan(type, svalue);
+			if (parsed != null) {
+				return toClass.cast(parsed);
+			}
+		}
+		if (ZERO.matcher(svalue).matches()) {
 			return getZero(toClass);
 		} else if (toClass.isInstance(value)) {
 			return toClass.cast(value);
-		} else if (value instanceof Number) {
-			return NumberUtils.convertNumberToTargetClass((Number) value,
-				toClass);
-		} else {
-			try {
-				String svalue = value.toString();
-				char dot = ((DecimalFormat) DecimalFormat.getInstance())
-					.getDecimalFormatSymbols().getDecimalSeparator();
-				if (svalue.indexOf(dot) > -1) {
-					// if the number is a decimal, integer decoding will barf
-					// decimals should be parsed into BigDecimal, then converted
-					return NumberUtils.convertNumberToTargetClass(
-						NumberUtils.parseNumber(svalue, BigDecimal.class),
-						toClass);
-				} else if (HEX.matcher(svalue).matches()) {
-					// if the number is hexadecimal, decimal decoding will barf
-					// hex numbers should be parsed into BigInteger, then
-					// converted
-					return NumberUtils.convertNumberToTargetClass(
-						NumberUtils.parseNumber(svalue, BigInteger.class),
-						toClass);
-				} else {
-					return NumberUtils.parseNumber(svalue, toClass);
-				}
-			} catch (Exception e) {
-				return getZero(toClass);
+		}
+		try {
+			char dot = ((DecimalFormat) DecimalFormat.getInstance())
+				.getDecimalFormatSymbols().getDecimalSeparator();
+			if (svalue.indexOf(dot) > -1) {
+				// if the number is a decimal, integer decoding will barf
+				// decimals should be parsed into BigDecimal, then converted
+				return NumberUtils.convertNumberToTargetClass(
+					NumberUtils.parseNumber(svalue, BigDecimal.class),
+					toClass);
+			} else if (HEX.matcher(svalue).matches()) {
+				// if the number is hexadecimal, decimal decoding will barf
+				// hex numbers should be parsed into BigInteger, then
+				// converted
+				return NumberUtils.convertNumberToTargetClass(
+					NumberUtils.parseNumber(svalue, BigInteger.class),
+					toClass);
+			} else {
+				return NumberUtils.parseNumber(svalue, toClass);
+			}
+		} catch (Exception e) {
+			return getZero(toClass);
+		}
+	}
+	
+	/**
+	 * Parses the common plain forms of numbers without regular expressions.
+	 * 
+	 * <p>Handles an optional minus sign followed by up to 18 digits, with an
+	 * optional fraction after a period. The result is the same as the general
+	 * path in {@link #value(Class, Object)} would give. Anything else (signs,
+	 * whitespace, exponents, hex, long integers) returns null so the general
+	 * path can deal with it.
+	 * 
+	 * @param type The target type
+	 * @param s The string
+	 * @return The number, or null if the string isn't in a plain form
+	 */
+	private static Number scan(NumberType type, String s)
+	{
+		int len = s.length();
+		int i = 0;
+		boolean negative = len > 0 && s.charAt(0) == '-';
+		if (negative) {
+			i++;
+		}
+		int start = i;
+		long v = 0;
+		boolean allZero = true;
+		char c;
+		while (i < len && (c = s.charAt(i)) >= '0' && c <= '9') {
+			if (i - start == 18) {
+				return null;
 			}
+			v = v * 10 + (c - '0');
+			allZero &= c == '0';
+			i++;
+		}
+		if (i == start) {
+			return null;
+		}
+		char dot = getDecimalSeparator();
+		if (dot >= '0' && dot <= '9' || dot == '-' || dot == 0) {
+			return null;
+		}
+		if (i == len) {
+			return !negative && allZero ? type.zero : type.fromLong(negative ? -v : v, negative);
+		} else if (s.charAt(i) != '.' || dot != '.') {
+			return null;
+		}
+		int fraction = ++i;
+		while (i < len && (c = s.charAt(i)) >= '0' && c <= '9') {
+			allZero &= c == '0';
+			i++;
+		}
+		if (i < len || i == fraction) {
+			return null;
+		} else if (!negative && allZero) {
+			return type.zero;
+		}
+		BigDecimal bd = new BigDecimal(s);
+		if (type == NumberType.BIG_DECIMAL) {
+			return bd;
+		}
+		try {
+			return type.convert(bd);
+		} catch (IllegalArgumentException e) {
+			return type.zero;
+		}
+	}
+	
+	/**
+	 * Gets the decimal separator of the default locale, cached until the default changes.
+	 * 
+	 * @return The separator, or 0 if the default locale doesn't use a DecimalFormat
+	 */
+	private static char getDecimalSeparator()
+	{
+		Locale locale = Locale.getDefault();
+		LocaleSeparator cached = separator;
+		if (cached == null || cached.locale != locale) {
+			NumberFormat format = DecimalFormat.getInstance();
+			cached = new LocaleSeparator(locale, format instanceof DecimalFormat
+				? ((DecimalFormat) format).getDecimalFormatSymbols().getDecimalSeparator() : 0);
+			separator = cached;
+		}
+		return cached.separator;
+	}
+	
+	private static class LocaleSeparator
+	{
+		final Locale locale;
+		final char separator;
+		
+		LocaleSeparator(Locale locale, char separator)
+		{
+			this.locale = locale;
+			this.separator = separator;
 		}
 	}
 
@@ -232,29 +368,20 @@ public class SafeMath
 			return getZero(toClass);
 		} else if (BigInteger.class.isAssignableFrom(toClass)
 			|| BigDecimal.class.isAssignableFrom(toClass)) {
-			BigDecimal sum = BigDecimal.ZERO;
+			// adds into a scaled long until it overflows, not a BigDecimal per value
+			DecimalAccumulator sum = new DecimalAccumulator();
 			for (Number v : values) {
-				if (v != null) {
-					if (v instanceof BigDecimal) {
-						sum = sum.add((BigDecimal) v);
-					} else if (v instanceof Short || v instanceof Long
-						|| v instanceof Integer) {
-						sum = sum.add(BigDecimal.valueOf(v.longValue()));
-					} else {
-						sum = sum.add(NumberUtils.convertNumberToTargetClass(v,
-							BigDecimal.class));
-					}
-				}
+				sum.add(v);
 			}
-			return NumberUtils.convertNumberToTargetClass(sum, toClass);
+			return NumberUtils.convertNumberToTargetClass(sum.get(), toClass);
 		} else {
-			double sum = 0.0;
+			CompensatedSum sum = new CompensatedSum();
 			for (Number v : values) {
 				if (v != null) {
-					sum += v.doubleValue();
+					sum.add(v.doubleValue());
 				}
 			}
-			return NumberUtils.convertNumberToTargetClass(sum, toClass);
+			return NumberUtils.convertNumberToTargetClass(sum.get(), toClass);
 		}
 	}
 
@@ -356,6 +483,264 @@ public class SafeMath
 		return value(toClass, product);
 	}
 
+	/**
+	 * Sums the values in an array returning zero if empty or null.
+	 * 
+	 * The sum is compensated (Kahan-Babuska), so it stays accurate for long
+	 * arrays and values of very different magnitudes.
+	 * 
+	 * @param values
+	 *            The values to sum
+	 * @return The sum of the values in the array
+	 */
+	public static double sum(double[] values)
+	{
+		if (values == null) {
+			return 0.0;
+		}
+		return new CompensatedSum().addAll(values, 0, values.length).get();
+	}
+	
+	/**
+	 * Sums the values in an array returning zero if empty or null.
+	 * 
+	 * @param values
+	 *            The values to sum
+	 * @return The sum of the values in the array
+	 * @throws ArithmeticException
+	 *             if the sum overflows a long
+	 */
+	public static long sum(long[] values)
+	{
+		return values == null ? 0L : sumRange(values, 0, values.length);
+	}
+	
+	/**
+	 * Sums the values in an array in parallel, returning zero if empty or null.
+	 * 
+	 * The array is split into at most {@code parallelism} contiguous chunks,
+	 * each summed on the executor, and the partial sums are combined in order.
+	 * Arrays too small to be worth splitting are summed on the current thread.
+	 * 
+	 * @param values
+	 *            The values to sum
+	 * @param executor
+	 *            The executor to run the chunks
+	 * @param parallelism
+	 *            The maximum number of chunks
+	 * @return The sum of the values in the array
+	 * @throws IllegalArgumentException
+	 *             if {@code parallelism} is less than 1
+	 */
+	public static double sum(final double[] values, ExecutorService executor, int parallelism)
+	{
+		int chunks = chunks(values == null ? 0 : values.length, executor, parallelism);
+		if (chunks < 2) {
+			return sum(values);
+		}
+		List<Future<CompensatedSum>> futures = new ArrayList<Future<CompensatedSum>>(chunks);
+		try {
+			for (int i = 0; i < chunks; i++) {
+				final int from = (int) ((long) values.length * i / chunks);
+				final int to = (int) ((long) values.length * (i + 1) / chunks);
+				futures.add(executor.submit(new Callable<CompensatedSum>() {
+					public CompensatedSum call()
+					{
+						return new CompensatedSum().addAll(values, from, to);
+					}
+				}));
+			}
+			CompensatedSum sum = new CompensatedSum();
+			for (Future<CompensatedSum> future : futures) {
+				sum.merge(Futures.getUnchecked(future));
+			}
+			return sum.get();
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} finally {
+			for (Future<CompensatedSum> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * Sums the values in an array in parallel, returning zero if empty or null.
+	 * 
+	 * @param values
+	 *            The values to sum
+	 * @param executor
+	 *            The executor to run the chunks
+	 * @param parallelism
+	 *            The maximum number of chunks
+	 * @return The sum of the values in the array
+	 * @throws IllegalArgumentException
+	 *             if {@code parallelism} is less than 1
+	 * @throws ArithmeticException
+	 *             if the sum overflows a long
+	 * @see #sum(double[], ExecutorService, int)
+	 */
+	public static long sum(final long[] values, ExecutorService executor, int parallelism)
+	{
+		int chunks = chunks(values == null ? 0 : values.length, executor, parallelism);
+		if (chunks < 2) {
+			return sum(values);
+		}
+		List<Future<Long>> futures = new ArrayList<Future<Long>>(chunks);
+		try {
+			for (int i = 0; i < chunks; i++) {
+				final int from = (int) ((long) values.length * i / chunks);
+				final int to = (int) ((long) values.length * (i + 1) / chunks);
+				futures.add(executor.submit(new Callable<Long>() {
+					public Long call()
+					{
+						return sumRange(values, from, to);
+					}
+				}));
+			}
+			long sum = 0L;
+			for (Future<Long> future : futures) {
+				sum = LongMath.checkedAdd(sum, Futures.getUnchecked(future).longValue());
+			}
+			return sum;
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} finally {
+			for (Future<Long> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * Sums a number extracted from each element, returning zero if empty or null.
+	 * 
+	 * If any element or extracted number is null, it will be ignored. The sum
+	 * is compensated, like {@link #sum(double[])}.
+	 * 
+	 * @param values
+	 *            The elements
+	 * @param extractor
+	 *            Gets the number to sum from each element
+	 * @return The sum of the extracted numbers
+	 */
+	public static <T> double sum(Iterable<? extends T> values, Function<? super T,? extends Number> extractor)
+	{
+		Arguments.checkNull(extractor);
+		CompensatedSum sum = new CompensatedSum();
+		if (values != null) {
+			for (T value : values) {
+				if (value != null) {
+					Number n = extractor.apply(value);
+					if (n != null) {
+						sum.add(n.doubleValue());
+					}
+				}
+			}
+		}
+		return sum.get();
+	}
+	
+	/**
+	 * Multiplies the values in an array returning zero if empty or null.
+	 * 
+	 * If any entry is zero, zero will be returned.
+	 * 
+	 * @param values
+	 *            The values to multiply
+	 * @return The product of the values in the array
+	 */
+	public static double product(double[] values)
+	{
+		if (values == null || values.length == 0) {
+			return 0.0;
+		}
+		double product = 1.0;
+		for (double v : values) {
+			if (v == 0.0) {
+				return 0.0;
+			}
+			product *= v;
+		}
+		return product;
+	}
+	
+	/**
+	 * Multiplies the values in an array returning zero if empty or null.
+	 * 
+	 * If any entry is zero, zero will be returned.
+	 * 
+	 * @param values
+	 *            The values to multiply
+	 * @return The product of the values in the array
+	 * @throws ArithmeticException
+	 *             if the product overflows a long
+	 */
+	public static long product(long[] values)
+	{
+		if (values == null || values.length == 0) {
+			return 0L;
+		}
+		for (long v : values) {
+			if (v == 0L) {
+				return 0L;
+			}
+		}
+		long product = 1L;
+		for (long v : values) {
+			product = LongMath.checkedMultiply(product, v);
+		}
+		return product;
+	}
+	
+	/**
+	 * Multiplies a number extracted from each element, returning zero if empty or null.
+	 * 
+	 * If any element or extracted number is null or zero, zero will be returned.
+	 * 
+	 * @param values
+	 *            The elements
+	 * @param extractor
+	 *            Gets the number to multiply from each element
+	 * @return The product of the extracted numbers
+	 */
+	public static <T> double product(Iterable<? extends T> values, Function<? super T,? extends Number> extractor)
+	{
+		Arguments.checkNull(extractor);
+		if (values == null) {
+			return 0.0;
+		}
+		double product = 1.0;
+		boolean empty = true;
+		for (T value : values) {
+			Number n = value == null ? null : extractor.apply(value);
+			if (n == null || n.doubleValue() == 0.0) {
+				return 0.0;
+			}
+			product *= n.doubleValue();
+			empty = false;
+		}
+		return empty ? 0.0 : product;
+	}
+	
+	private static long sumRange(long[] values, int from, int to)
+	{
+		long sum = 0L;
+		for (int i = from; i < to; i++) {
+			sum = LongMath.checkedAdd(sum, values[i]);
+		}
+		return sum;
+	}
+	
+	private static int chunks(int length, ExecutorService executor, int parallelism)
+	{
+		Arguments.checkNull(executor);
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		return Math.min(parallelism, length / MIN_CHUNK_SIZE);
+	}
+	
 	/**
 	 * Adds two objects together as Numbers in a null-safe way.
 	 * 
@@ -611,6 +996,67 @@ public class SafeMath
 	 */
 	public static boolean isNumber(CharSequence cs)
 	{
-		return cs != null && FP_NUMBER.matcher(cs).matches();
+		// accepts exactly what FP_NUMBER matches, in one pass
+		if (cs == null) {
+			return false;
+		}
+		int len = cs.length();
+		int i = 0;
+		if (i < len && (cs.charAt(i) == '+' || cs.charAt(i) == '-')) {
+			i++;
+		}
+		if (i + 1 < len && cs.charAt(i) == '0' && (cs.charAt(i + 1) == 'x' || cs.charAt(i + 1) == 'X')) {
+			i += 2;
+			int whole = i;
+			i = skipHexDigits(cs, i, len);
+			boolean digits = i > whole;
+			if (i < len && cs.charAt(i) == '.') {
+				int fraction = ++i;
+				i = skipHexDigits(cs, i, len);
+				digits |= i > fraction;
+			}
+			return digits && i == len;
+		}
+		int whole = i;
+		i = skipDigits(cs, i, len);
+		boolean digits = i > whole;
+		if (i < len && cs.charAt(i) == '.') {
+			int fraction = ++i;
+			i = skipDigits(cs, i, len);
+			digits |= i > fraction;
+		}
+		if (!digits) {
+			return false;
+		}
+		if (i < len && (cs.charAt(i) == 'e' || cs.charAt(i) == 'E')) {
+			i++;
+			if (i < len && (cs.charAt(i) == '+' || cs.charAt(i) == '-')) {
+				i++;
+			}
+			int exponent = i;
+			i = skipDigits(cs, i, len);
+			if (i == exponent) {
+				return false;
+			}
+		}
+		return i == len;
+	}
+	
+	private static int skipDigits(CharSequence cs, int i, int len)
+	{
+		while (i < len && cs.charAt(i) >= '0' && cs.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+	
+	private static int skipHexDigits(CharSequence cs, int i, int len)
+	{
+		char c;
+		while (i < len && (((c = cs.charAt(i)) >= '0' && c <= '9')
+			|| (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+			i++;
+		}
+		return i;
 	}
 }
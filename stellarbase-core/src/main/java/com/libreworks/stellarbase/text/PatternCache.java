@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.text;
+
+import java.util.regex.Pattern;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * A bounded, thread-safe cache of compiled regular expressions.
+ * 
+ * <p>Compiling a {@link Pattern} is far more expensive than matching one, and
+ * Patterns are immutable, so code that builds regular expressions at runtime
+ * can share them here instead of compiling one per use. When the cache is
+ * full, the least recently used Patterns are evicted.
+ * 
+ * <p>Hits and misses are counted; see {@link #stats()}.
+ * 
+ * <p>{@link #DEFAULT} is shared by the library, for instance to evaluate SQL
+ * {@code LIKE} predicates and validate {@code RegexRule}s.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class PatternCache
+{
+	/**
+	 * The default maximum number of Patterns
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+	
+	/**
+	 * A shared cache holding up to {@link #DEFAULT_MAXIMUM_SIZE} Patterns.
+	 */
+	public static final PatternCache DEFAULT = new PatternCache(DEFAULT_MAXIMUM_SIZE);
+	
+	private final LoadingCache<Object,Pattern> cache;
+	
+	/**
+	 * Creates a new PatternCache.
+	 * 
+	 * @param maximumSize The most Patterns to keep
+	 * @throws IllegalArgumentException if {@code maximumSize} is negative
+	 */
+	public PatternCache(int maximumSize)
+	{
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize cannot be negative");
+		}
+		cache = CacheBuilder.newBuilder()
+			.maximumSize(maximumSize)
+			.recordStats()
+			.build(new CacheLoader<Object,Pattern>()
+			{
+				@Override
+				public Pattern load(Object key)
+				{
+					if (key instanceof Key) {
+						Key k = (Key) key;
+						return Pattern.compile(k.regex, k.flags);
+					}
+					return Pattern.compile((String) key);
+				}
+			});
+	}
+	
+	/**
+	 * Gets a compiled Pattern with no flags.
+	 * 
+	 * @param regex The regular expression
+	 * @return The compiled Pattern
+	 * @throws IllegalArgumentException if {@code regex} is null
+	 * @throws java.util.regex.PatternSyntaxException if {@code regex} is invalid
+	 */
+	public Pattern get(String regex)
+	{
+		// the regex alone is the key when there are no flags, so no Key is allocated
+		return load(Arguments.checkNull(regex));
+	}
+	
+	/**
+	 * Gets a compiled Pattern.
+	 * 
+	 * @param regex The regular expression
+	 * @param flags The flags, for example {@link Pattern#CASE_INSENSITIVE}
+	 * @return The compiled Pattern
+	 * @throws IllegalArgumentException if {@code regex} is null or the flags are invalid
+	 * @throws java.util.regex.PatternSyntaxException if {@code regex} is invalid
+	 */
+	public Pattern get(String regex, int flags)
+	{
+		Arguments.checkNull(regex);
+		return flags == 0 ? load(regex) : load(new Key(regex, flags));
+	}
+	
+	/**
+	 * Gets the hit and miss statistics of this cache.
+	 * 
+	 * @return The statistics
+	 */
+	public CacheStats stats()
+	{
+		return cache.stats();
+	}
+	
+	/**
+	 * Gets the number of Patterns in the cache.
+	 * 
+	 * @return The approximate number of Patterns
+	 */
+	public long size()
+	{
+		return cache.size();
+	}
+	
+	/**
+	 * Removes all Patterns from the cache.
+	 */
+	public void clear()
+	{
+		cache.invalidateAll();
+	}
+	
+	private Pattern load(Object key)
+	{
+		try {
+			return cache.getUnchecked(key);
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+	
+	private static class Key
+	{
+		final String regex;
+		final int flags;
+		
+		Key(String regex, int flags)
+		{
+			this.regex = regex;
+			this.flags = flags;
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) {
+				return true;
+			} else if (obj instanceof Key) {
+				Key other = (Key) obj;
+				return flags == other.flags && regex.equals(other.regex);
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(regex, flags);
+		}
+	}
+}
@@ -21,6 +21,8 @@ import java.util.regex.Pattern;
 
 /**
  * Static class with some pretty common compiled regular expression patterns.
+ * 
+ * <p>Patterns built at runtime can be shared with {@link PatternCache}.
  *
  * @author Jonathan Hawk
  * @see {@link Strings}
@@ -17,7 +17,12 @@
  */
 package com.libreworks.stellarbase.text;
 
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Function;
 import com.libreworks.stellarbase.util.Arguments;
 
 /**
@@ -41,12 +46,21 @@ import com.libreworks.stellarbase.util.Arguments;
  * Simple answer: the ability to configure return null or empty, as well as the
  * ability to pass null to the {@link #trim(CharSequence)} method. 
  * 
+ * <p>Whether each ASCII character should be trimmed is looked up once when
+ * the Trimmer is created, so only non-ASCII characters are checked with the
+ * CharMatcher. {@link #trimView(CharSequence)} trims without copying
+ * characters, and the {@code trimAll} methods trim arrays, lists, and request
+ * parameter maps in place.
+ * 
  * @author Jonathan Hawk
  * @since 1.0.0
  */
 public class Trimmer
 {
+	private static final int ASCII = 128;
+	
 	private final CharMatcher matcher;
+	private final boolean[] ascii;
 	private final boolean returnNull;
 	private final boolean leading;
 	private final boolean trailing;
@@ -62,6 +76,10 @@ public class Trimmer
 	private Trimmer(CharMatcher matcher, boolean returnNull, boolean leading, boolean trailing)
 	{
 		this.matcher = Arguments.checkNull(matcher);
+		this.ascii = new boolean[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			ascii[c] = matcher.matches(c);
+		}
 		this.returnNull = returnNull;
 		this.leading = leading;
 		this.trailing = trailing;
@@ -141,20 +159,199 @@ public class Trimmer
 	
 	/**
 	 * Returns a trimmed String according to the configuration details.
+	 * 
+	 * <p>If nothing needs to be trimmed from a String, it is returned as-is.
 	 *  
 	 * @param value The CharSequence to trim
 	 * @return The trimmed String
 	 */
 	public String trim(final CharSequence value)
 	{
-		CharSequence trimmed = value == null ? "" : value;
-		if (leading && trailing) {
-			trimmed = matcher.trimFrom(trimmed);
-		} else if (leading) {
-			trimmed = matcher.trimLeadingFrom(trimmed);
-		} else if (trailing) {
-			trimmed = matcher.trimTrailingFrom(trimmed);
+		if (value == null) {
+			return returnNull ? null : "";
+		}
+		int start = start(value);
+		int end = end(value, start);
+		if (start == end) {
+			return returnNull ? null : "";
+		} else if (start == 0 && end == value.length() && value instanceof String) {
+			return (String) value;
+		}
+		return value.subSequence(start, end).toString();
+	}
+	
+	/**
+	 * Returns a trimmed CharSequence according to the configuration details, without copying.
+	 * 
+	 * <p>If nothing needs to be trimmed, {@code value} itself is returned.
+	 * Otherwise, the result is a view of the characters in {@code value}
+	 * that remain, so changing a mutable {@code value} afterward changes the
+	 * view. Call {@code toString()} on the result to get a copy.
+	 * 
+	 * @param value The CharSequence to trim
+	 * @return The trimmed CharSequence, or an empty String or null if nothing remains
+	 */
+	public CharSequence trimView(final CharSequence value)
+	{
+		if (value == null) {
+			return returnNull ? null : "";
+		}
+		int start = start(value);
+		int end = end(value, start);
+		if (start == end) {
+			return returnNull ? null : "";
+		} else if (start == 0 && end == value.length()) {
+			return value;
+		}
+		return new View(value, start, end - start);
+	}
+	
+	/**
+	 * Trims every element of an array in place.
+	 * 
+	 * @param values The values to trim, may be null
+	 * @return The {@code values} supplied
+	 */
+	public String[] trimAll(String[] values)
+	{
+		if (values != null) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = trim(values[i]);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Trims every element of a List in place.
+	 * 
+	 * @param values The values to trim, may be null
+	 * @return The {@code values} supplied
+	 * @throws UnsupportedOperationException if the List can't be modified
+	 */
+	public List<String> trimAll(List<String> values)
+	{
+		if (values != null) {
+			for (ListIterator<String> it = values.listIterator(); it.hasNext();) {
+				String value = it.next();
+				String trimmed = trim(value);
+				// avoid a write (and any copy-on-write) when nothing changed
+				if (trimmed != value) {
+					it.set(trimmed);
+				}
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Trims every value of a map of request parameters in place.
+	 * 
+	 * <p>The arrays in the map are modified, not replaced, so this works on
+	 * maps that can't be modified. Copy a map that is shared, such as
+	 * {@code ServletRequest.getParameterMap()}, before trimming it.
+	 * 
+	 * @param parameters The parameters to trim, may be null
+	 * @return The {@code parameters} supplied
+	 */
+	public Map<String,String[]> trimAll(Map<String,String[]> parameters)
+	{
+		if (parameters != null) {
+			for (String[] values : parameters.values()) {
+				trimAll(values);
+			}
+		}
+		return parameters;
+	}
+	
+	/**
+	 * Gets a Function that calls {@link #trim(CharSequence)}.
+	 * 
+	 * <p>This can be used to trim a series of fields lazily, for instance
+	 * with {@code Iterables.transform(fields, trimmer.asFunction())}.
+	 * 
+	 * @return The function
+	 */
+	public Function<CharSequence,String> asFunction()
+	{
+		return new Function<CharSequence,String>()
+		{
+			public String apply(CharSequence input)
+			{
+				return trim(input);
+			}
+		};
+	}
+	
+	private boolean matches(char c)
+	{
+		return c < ASCII ? ascii[c] : matcher.matches(c);
+	}
+	
+	private int start(CharSequence value)
+	{
+		int start = 0;
+		if (leading) {
+			int len = value.length();
+			while (start < len && matches(value.charAt(start))) {
+				start++;
+			}
+		}
+		return start;
+	}
+	
+	private int end(CharSequence value, int start)
+	{
+		int end = value.length();
+		if (trailing) {
+			while (end > start && matches(value.charAt(end - 1))) {
+				end--;
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * A read-only window on another CharSequence.
+	 */
+	private static class View implements CharSequence
+	{
+		private final CharSequence value;
+		private final int offset;
+		private final int length;
+		
+		View(CharSequence value, int offset, int length)
+		{
+			this.value = value;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public int length()
+		{
+			return length;
+		}
+
+		public char charAt(int index)
+		{
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+			}
+			return value.charAt(offset + index);
+		}
+
+		public CharSequence subSequence(int start, int end)
+		{
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+			}
+			return new View(value, offset + start, end - start);
+		}
+		
+		@Override
+		public String toString()
+		{
+			return value.subSequence(offset, offset + length).toString();
 		}
-		return trimmed.length() == 0 ? (returnNull ? null : "") : trimmed.toString();
 	}
 }
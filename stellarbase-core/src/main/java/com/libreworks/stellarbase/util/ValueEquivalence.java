@@ -0,0 +1,311 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.util;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.PropertyValues;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Compares values for equivalence using a strategy chosen by the pair of classes.
+ * 
+ * <p>This is the engine behind {@link ValueUtils#equivalent(Object, Object)}.
+ * Values that are {@code equals} are equivalent, as are two nulls. Values of
+ * the exact same class that aren't {@code equals} are not. Otherwise, the
+ * first rule that accepts both classes, in either order, decides. By default
+ * the rules are:
+ * <ol>
+ * <li>If either value is a {@link Date}, compare their times</li>
+ * <li>If either value is a {@link Number}, compare them as doubles</li>
+ * <li>Otherwise, compare their {@code toString} values</li>
+ * </ol>
+ * 
+ * <p>The strategy for a pair of classes is looked up once and cached, so
+ * comparing many values of the same types doesn't walk the rules again.
+ * The cache holds classes weakly, so it doesn't pin classes from a
+ * redeployed web application.
+ * Rules added with {@link #with(Class, Class, Equivalence)} are checked
+ * before the existing ones:
+ * <pre>
+ * ValueEquivalence custom = new ValueEquivalence()
+ *     .with(Money.class, Number.class, new MoneyEquivalence());
+ * </pre>
+ * 
+ * <p>This class is immutable and thread-safe.
+ * 
+ * @author Jonathan Hawk
+ * @since 1.0.0
+ */
+public class ValueEquivalence
+{
+	private static final Equivalence<Object> DATES = new Equivalence<Object>()
+	{
+		@Override
+		protected boolean doEquivalent(Object a, Object b)
+		{
+			return ValueUtils.equivalentDates(a, b);
+		}
+		@Override
+		protected int doHash(Object t)
+		{
+			return t instanceof Date ? Long.valueOf(((Date) t).getTime()).hashCode() : 0;
+		}
+	};
+	private static final Equivalence<Object> NUMBERS = new Equivalence<Object>()
+	{
+		@Override
+		protected boolean doEquivalent(Object a, Object b)
+		{
+			return ValueUtils.equivalentNumbers(a, b);
+		}
+		@Override
+		protected int doHash(Object t)
+		{
+			return Double.valueOf(ValueUtils.toDouble(t)).hashCode();
+		}
+	};
+	private static final Equivalence<Object> STRINGS = new Equivalence<Object>()
+	{
+		@Override
+		protected boolean doEquivalent(Object a, Object b)
+		{
+			return a.toString().equals(b.toString());
+		}
+		@Override
+		protected int doHash(Object t)
+		{
+			return t.toString().hashCode();
+		}
+	};
+	private static final List<Rule> DEFAULT_RULES = ImmutableList.of(
+		new Rule(Date.class, Object.class, DATES),
+		new Rule(Number.class, Object.class, NUMBERS),
+		new Rule(Object.class, Object.class, STRINGS));
+	
+	private final List<Rule> rules;
+	/**
+	 * Weak keys, so caching a class doesn't keep its ClassLoader from being unloaded
+	 */
+	private final ConcurrentMap<Class<?>,ConcurrentMap<Class<?>,Equivalence<Object>>> cache =
+		new MapMaker().weakKeys().makeMap();
+	
+	/**
+	 * Creates a new ValueEquivalence with the default rules.
+	 */
+	public ValueEquivalence()
+	{
+		this(DEFAULT_RULES);
+	}
+	
+	private ValueEquivalence(List<Rule> rules)
+	{
+		this.rules = rules;
+	}
+	
+	/**
+	 * Creates a new ValueEquivalence with an additional rule.
+	 * 
+	 * <p>The rule applies when one value is an instance of {@code a} and the
+	 * other is an instance of {@code b}. The equivalence is always called with
+	 * the instance of {@code a} first. New rules are checked before existing
+	 * ones.
+	 * 
+	 * @param a The class of one value
+	 * @param b The class of the other value
+	 * @param equivalence The strategy for values of those classes
+	 * @return A new ValueEquivalence
+	 * @throws IllegalArgumentException if any argument is null
+	 */
+	public ValueEquivalence with(Class<?> a, Class<?> b, Equivalence<Object> equivalence)
+	{
+		Arguments.checkNull(a);
+		Arguments.checkNull(b);
+		Arguments.checkNull(equivalence);
+		return new ValueEquivalence(ImmutableList.<Rule>builder()
+			.add(new Rule(a, b, equivalence)).addAll(rules).build());
+	}
+	
+	/**
+	 * Determines whether two values are equivalent.
+	 * 
+	 * @param a The first value
+	 * @param b The second value
+	 * @return Whether the values are considered equivalent
+	 */
+	public boolean equivalent(Object a, Object b)
+	{
+		if (a == b) {
+			return true;
+		} else if (a == null || b == null) {
+			return false;
+		} else if (a.equals(b)) {
+			return true;
+		}
+		Class<?> ca = a.getClass();
+		Class<?> cb = b.getClass();
+		// if they're not equal and they have the exact same class,
+		// skip remaining checks.
+		return ca != cb && getStrategy(ca, cb).equivalent(a, b);
+	}
+	
+	/**
+	 * Gets the keys whose values aren't equivalent between two maps.
+	 * 
+	 * <p>A key missing from one map is compared as if its value were null.
+	 * The keys are returned in the order of {@code before}, followed by the
+	 * keys only in {@code after}.
+	 * 
+	 * @param <K> The type of key
+	 * @param before The original values, null is treated as empty
+	 * @param after The updated values, null is treated as empty
+	 * @return The keys that changed, never null
+	 */
+	public <K> Set<K> diff(Map<? extends K,?> before, Map<? extends K,?> after)
+	{
+		Set<K> changed = new LinkedHashSet<K>();
+		if (before != null) {
+			for (Map.Entry<? extends K,?> entry : before.entrySet()) {
+				Object other = after == null ? null : after.get(entry.getKey());
+				if (!equivalent(entry.getValue(), other)) {
+					changed.add(entry.getKey());
+				}
+			}
+		}
+		if (after != null) {
+			for (Map.Entry<? extends K,?> entry : after.entrySet()) {
+				if ((before == null || !before.containsKey(entry.getKey())) && entry.getValue() != null) {
+					changed.add(entry.getKey());
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Gets the names of properties whose values aren't equivalent.
+	 * 
+	 * <p>A property missing from one set is compared as if its value were null.
+	 * 
+	 * @param before The original values, null is treated as empty
+	 * @param after The updated values, null is treated as empty
+	 * @return The names of the properties that changed, never null
+	 */
+	public Set<String> diff(PropertyValues before, PropertyValues after)
+	{
+		Set<String> changed = new LinkedHashSet<String>();
+		if (before != null) {
+			for (PropertyValue pv : before.getPropertyValues()) {
+				PropertyValue other = after == null ? null : after.getPropertyValue(pv.getName());
+				if (!equivalent(pv.getValue(), other == null ? null : other.getValue())) {
+					changed.add(pv.getName());
+				}
+			}
+		}
+		if (after != null) {
+			for (PropertyValue pv : after.getPropertyValues()) {
+				if ((before == null || !before.contains(pv.getName())) && pv.getValue() != null) {
+					changed.add(pv.getName());
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Gets the strategy for a pair of classes, walking the rules only once per pair.
+	 */
+	private Equivalence<Object> getStrategy(Class<?> a, Class<?> b)
+	{
+		ConcurrentMap<Class<?>,Equivalence<Object>> byB = cache.get(a);
+		if (byB == null) {
+			byB = new MapMaker().weakKeys().makeMap();
+			ConcurrentMap<Class<?>,Equivalence<Object>> existing = cache.putIfAbsent(a, byB);
+			if (existing != null) {
+				byB = existing;
+			}
+		}
+		Equivalence<Object> strategy = byB.get(b);
+		if (strategy == null) {
+			// resolving twice in a race is harmless; both get the same answer
+			strategy = resolve(a, b);
+			byB.put(b, strategy);
+		}
+		return strategy;
+	}
+	
+	private Equivalence<Object> resolve(Class<?> a, Class<?> b)
+	{
+		for (Rule rule : rules) {
+			if (rule.a.isAssignableFrom(a) && rule.b.isAssignableFrom(b)) {
+				return rule.equivalence;
+			} else if (rule.a.isAssignableFrom(b) && rule.b.isAssignableFrom(a)) {
+				return new Swapped(rule.equivalence);
+			}
+		}
+		return STRINGS;
+	}
+	
+	private static class Rule
+	{
+		final Class<?> a;
+		final Class<?> b;
+		final Equivalence<Object> equivalence;
+		
+		Rule(Class<?> a, Class<?> b, Equivalence<Object> equivalence)
+		{
+			this.a = a;
+			this.b = b;
+			this.equivalence = equivalence;
+		}
+	}
+	
+	/**
+	 * Calls an equivalence with its arguments reversed.
+	 */
+	private static class Swapped extends Equivalence<Object>
+	{
+		private final Equivalence<Object> delegate;
+		
+		Swapped(Equivalence<Object> delegate)
+		{
+			this.delegate = delegate;
+		}
+		
+		@Override
+		protected boolean doEquivalent(Object a, Object b)
+		{
+			return delegate.equivalent(b, a);
+		}
+		
+		@Override
+		protected int doHash(Object t)
+		{
+			return delegate.hash(t);
+		}
+	}
+}
@@ -19,7 +19,10 @@ package com.libreworks.stellarbase.util;
 
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.beans.PropertyValues;
 import org.springframework.util.NumberUtils;
 
 import com.google.common.base.Objects;
@@ -33,6 +36,8 @@ import com.google.common.base.Optional;
  */
 public class ValueUtils
 {
+	private static final ValueEquivalence EQUIVALENCE = new ValueEquivalence();
+	
 	/**
 	 * Method for comparing value equivalence between objects.
 	 *  
@@ -49,24 +54,36 @@ public class ValueUtils
 	 */
 	public static boolean equivalent(Object a, Object b)
 	{
-		if ( a == b ) {
-			return true;
-		} else if ( a == null || b == null ) {
-			return false;
-		}
-		if ( a.equals(b) ) {
-			return true;
-		} else if ( a.getClass().equals(b.getClass())) {
-			// if they're not equal and they have the exact same class,
-			// skip remaining checks.
-			return false;
-		} else if ( a instanceof Date || b instanceof Date ) {
-			return equivalentDates(a, b);
-		} else if ( a instanceof Number || b instanceof Number ) {
-			return equivalentNumbers(a, b);
-		}
-		
-		return a.toString().equals(b.toString());
+		return EQUIVALENCE.equivalent(a, b);
+	}
+	
+	/**
+	 * Gets the keys whose values aren't {@link #equivalent(Object, Object)}
+	 * between two maps.
+	 * 
+	 * @param <K> The type of key
+	 * @param before The original values, null is treated as empty
+	 * @param after The updated values, null is treated as empty
+	 * @return The keys that changed, never null
+	 * @see ValueEquivalence#diff(Map, Map)
+	 */
+	public static <K> Set<K> diff(Map<? extends K,?> before, Map<? extends K,?> after)
+	{
+		return EQUIVALENCE.diff(before, after);
+	}
+	
+	/**
+	 * Gets the names of properties whose values aren't
+	 * {@link #equivalent(Object, Object)}.
+	 * 
+	 * @param before The original values, null is treated as empty
+	 * @param after The updated values, null is treated as empty
+	 * @return The names of the properties that changed, never null
+	 * @see ValueEquivalence#diff(PropertyValues, PropertyValues)
+	 */
+	public static Set<String> diff(PropertyValues before, PropertyValues after)
+	{
+		return EQUIVALENCE.diff(before, after);
 	}
 	
 	/**
@@ -85,7 +102,8 @@ public class ValueUtils
 		if ( a == null || b == null ) {
 			return false;
 		}
-		return (a.equals(b) || toNumberOrNan(a, Double.class).equals(toNumberOrNan(b, Double.class)));
+		// the same test as Double.equals, without boxing either side
+		return a.equals(b) || Double.doubleToLongBits(toDouble(a)) == Double.doubleToLongBits(toDouble(b));
 	}
 	
 	/**
@@ -104,6 +122,9 @@ public class ValueUtils
 		if ( a == null || b == null ) {
 			return false;
 		}
+		if ( a instanceof Date && b instanceof Date ) {
+			return ((Date)a).getTime() == ((Date)b).getTime();
+		}
 		return Objects.equal(toDate(a), toDate(b));
 	}
 	
@@ -136,6 +157,18 @@ public class ValueUtils
 		return null;
 	}
 	
+	/**
+	 * Turns an object into a double, or {@link Double#NaN} if there's a problem
+	 * 
+	 * @param value The value to convert
+	 * @return The number
+	 */
+	static double toDouble(Object value)
+	{
+		return value instanceof Number ? ((Number)value).doubleValue()
+			: toNumberOrNan(value, Double.class).doubleValue();
+	}
+	
 	/**
 	 * Turns an object into a Number, or {@link Double#NaN} if there's a problem
 	 * 
@@ -17,8 +17,6 @@
  */
 package com.libreworks.stellarbase.validation;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.validation.Errors;
 
 import com.libreworks.stellarbase.text.Characters;
@@ -34,6 +32,7 @@ import com.libreworks.stellarbase.util.Arguments;
 public abstract class AbstractOneFieldRule<T> extends AbstractRule
 {
 	protected String field;
+	private volatile PropertyReader reader;
 
 	/**
 	 * @param field The field to validate
@@ -41,6 +40,7 @@ public abstract class AbstractOneFieldRule<T> extends AbstractRule
 	public AbstractOneFieldRule(String field)
 	{
 		this.field = Arguments.checkBlank(field);
+		this.reader = new PropertyReader(field);
 	}
 	
 	@Override
@@ -75,7 +75,12 @@ public abstract class AbstractOneFieldRule<T> extends AbstractRule
 	@SuppressWarnings("unchecked")
     public final void validate(Object target, Errors errors)
 	{
-		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(target);
-		validateField((T)bw.getPropertyValue(field), errors);
+		PropertyReader r = reader;
+		if (!r.getField().equals(field)) {
+			// a subclass changed the field
+			r = new PropertyReader(field);
+			reader = r;
+		}
+		validateField((T)r.read(target), errors);
 	}
 }
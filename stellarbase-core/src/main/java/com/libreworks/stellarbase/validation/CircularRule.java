@@ -17,8 +17,6 @@
  */
 package com.libreworks.stellarbase.validation;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.validation.Errors;
 
 import com.google.common.base.Objects;
@@ -37,7 +35,8 @@ public class CircularRule extends AbstractRule
 {
 	private static final String LABEL = "Circular";
 	
-	private String field;
+	private final String field;
+	private final PropertyReader reader;
 	
 	/**
 	 * Creates a new CircularRule
@@ -47,6 +46,7 @@ public class CircularRule extends AbstractRule
 	public CircularRule(String field)
 	{
 		this.field = Arguments.checkNull(field);
+		this.reader = new PropertyReader(field);
 	}
 
 	@Override
@@ -63,8 +63,7 @@ public class CircularRule extends AbstractRule
 
 	public void validate(Object target, Errors errors)
 	{
-		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(target);
-		if ( Objects.equal(target, bw.getPropertyValue(field)) ) {
+		if ( Objects.equal(target, reader.read(target)) ) {
 			errors.rejectValue(field, FIELD_INVALID);
 		}
 	}
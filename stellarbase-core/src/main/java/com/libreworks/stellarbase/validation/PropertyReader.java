@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.validation;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.InvalidPropertyException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.util.ReflectionUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.libreworks.stellarbase.util.Arguments;
+
+/**
+ * Reads one property from beans, resolving its getter once per bean class.
+ * 
+ * Creating a {@link org.springframework.beans.BeanWrapper} for every value
+ * read is costly when a {@link RuleValidator} checks many rules against a
+ * large batch of objects. This class looks up the read method the first time
+ * it sees a class and reuses it afterward. Nested or indexed property paths,
+ * and properties without a getter, still go through a BeanWrapper so they
+ * behave exactly as before.
+ * 
+ * @author Jonathan Hawk
+ * @version $Id$
+ */
+class PropertyReader
+{
+	/**
+	 * Stands in for classes whose property needs a BeanWrapper
+	 */
+	private static final Method NO_GETTER = ReflectionUtils.findMethod(Object.class, "toString");
+	
+	private final String field;
+	private final boolean simple;
+	/**
+	 * Rules usually live as long as the application, so this mustn't pin the
+	 * classes they validate. A Method refers to its class, so weak keys alone
+	 * would never be cleared; the values are soft as well.
+	 */
+	private final Cache<Class<?>,Method> getters = CacheBuilder.newBuilder().weakKeys().softValues().build();
+	
+	/**
+	 * @param field The property path
+	 */
+	PropertyReader(String field)
+	{
+		this.field = Arguments.checkNull(field);
+		this.simple = field.indexOf('.') < 0 && field.indexOf('[') < 0;
+	}
+	
+	/**
+	 * Gets the property path.
+	 * 
+	 * @return The property path
+	 */
+	String getField()
+	{
+		return field;
+	}
+	
+	/**
+	 * Gets the value of the property.
+	 * 
+	 * @param target The bean
+	 * @return The property value
+	 * @throws org.springframework.beans.BeansException if the property can't be read
+	 */
+	Object read(Object target)
+	{
+		Method getter = target == null || !simple ? NO_GETTER : getGetter(target.getClass());
+		if (getter == NO_GETTER) {
+			return PropertyAccessorFactory.forBeanPropertyAccess(target).getPropertyValue(field);
+		}
+		try {
+			return getter.invoke(target);
+		} catch (InvocationTargetException e) {
+			throw new InvalidPropertyException(target.getClass(), field, "Getter for property '" + field + "' threw exception", e);
+		} catch (IllegalAccessException e) {
+			throw new InvalidPropertyException(target.getClass(), field, "Getter for property '" + field + "' isn't accessible", e);
+		}
+	}
+	
+	private Method getGetter(Class<?> clazz)
+	{
+		Method getter = getters.getIfPresent(clazz);
+		if (getter == null) {
+			PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(clazz, field);
+			getter = pd == null || pd.getReadMethod() == null ? NO_GETTER : pd.getReadMethod();
+			if (getter != NO_GETTER) {
+				ReflectionUtils.makeAccessible(getter);
+			}
+			getters.put(clazz, getter);
+		}
+		return getter;
+	}
+}
@@ -20,6 +20,8 @@ package com.libreworks.stellarbase.validation;
 import java.util.regex.Pattern;
 import org.springframework.validation.Errors;
 
+import com.libreworks.stellarbase.text.PatternCache;
+
 /**
  * Rule for matching a regular expression against a field value.
  * 
@@ -34,11 +36,12 @@ public class RegexRule extends AbstractOneFieldRule<String>
 	
 	/**
 	 * @param field The field to validate
-	 * @param pattern The pattern to match (will be compiled using default settings)
+	 * @param pattern The pattern to match (will be compiled using default
+	 *     settings, and shared through {@link PatternCache#DEFAULT})
 	 */
 	public RegexRule(String field, String pattern)
 	{
-		this(field, Pattern.compile(pattern));
+		this(field, PatternCache.DEFAULT.get(pattern));
 	}
 	
 	/**
@@ -30,7 +30,22 @@ import org.junit.runners.Suite;
 	MapsTest.class,
 	SingleGrouperTest.class,
 	SingleGroupTotalTest.class,
-	DoubleGroupTotalTest.class
+	DoubleGroupTotalTest.class,
+	PrimitiveGroupTotalTest.class,
+	ConcurrentGroupTotalTest.class,
+	ConcurrentDoubleGroupTotalTest.class,
+	GroupersTest.class,
+	FlatDoubleGrouperTest.class,
+	FlatTripleGrouperTest.class,
+	TopGroupTotalTest.class,
+	HyperLogLogTest.class,
+	DistinctGroupCountTest.class,
+	GroupStatisticsTest.class,
+	TDigestTest.class,
+	GroupQuantilesTest.class,
+	WindowedGroupTotalTest.class,
+	SpillingGrouperTest.class,
+	DecimalGroupTotalTest.class
 })
 public class AllTests
 {
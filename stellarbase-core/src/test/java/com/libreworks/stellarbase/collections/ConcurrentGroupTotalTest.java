@@ -0,0 +1,103 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentGroupTotalTest
+{
+	private ConcurrentGroupTotal object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new ConcurrentGroupTotal();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		object.add("foo", 3.0);
+		object.add("bar", 4.0);
+		object.add("foo", 5.0);
+		assertEquals(8.0, object.getTotal("foo"), 0);
+		assertEquals(4.0, object.getTotal("bar"), 0);
+		assertEquals(0.0, object.getTotal("baz"), 0);
+		assertTrue(object.containsKey("foo"));
+		assertFalse(object.containsKey(null));
+		assertEquals(2, object.size());
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(4.0, 3.0, 2.0));
+		object.addAll("foo", Arrays.asList(1.0));
+		assertEquals(10.0, object.getTotal("foo"), 0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testAddNull()
+	{
+		object.add(null, 1.0);
+	}
+	
+	@Test
+	public void testSnapshot()
+	{
+		object.add("foo", 3.0);
+		object.add(1, 4.0);
+		SingleGroupTotal expected = new SingleGroupTotal();
+		expected.add("foo", 3.0);
+		expected.add(1, 4.0);
+		assertEquals(expected, object.snapshot());
+		object.clear();
+		assertTrue(object.snapshot().isEmpty());
+	}
+	
+	@Test
+	public void testConcurrent() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			executor.execute(new Runnable() {
+				public void run()
+				{
+					for (int i = 0; i < 40000; i++) {
+						object.add(i % 4, 1.0);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		SingleGroupTotal snapshot = object.snapshot();
+		assertEquals(4, snapshot.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(40000.0, snapshot.get(i).doubleValue(), 0);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DecimalGroupTotalTest
+{
+	@Test
+	public void testAdd()
+	{
+		DecimalGroupTotal object = new DecimalGroupTotal();
+		object.add("USD", 1999, 2);
+		object.add("USD", new BigDecimal("0.01"));
+		object.add("EUR", 5);
+		object.addAll("EUR", Arrays.asList(new BigDecimal("0.5"), null, 2L));
+		assertEquals(2, object.size());
+		assertEquals(new BigDecimal("20.00"), object.getTotal("USD"));
+		assertEquals(new BigDecimal("7.5"), object.getTotal("EUR"));
+		assertEquals(BigDecimal.ZERO, object.getTotal("GBP"));
+		assertEquals(new BigDecimal("7.5"), object.getTotals().get("EUR"));
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		DecimalGroupTotal a = new DecimalGroupTotal();
+		a.add("x", 1, 1);
+		DecimalGroupTotal b = new DecimalGroupTotal();
+		b.add("x", 2, 2);
+		b.add("y", 3);
+		a.merge(b);
+		assertEquals(new BigDecimal("0.12"), a.getTotal("x"));
+		assertEquals(new BigDecimal("3"), a.getTotal("y"));
+		a.add("y", 1);
+		assertEquals(new BigDecimal("3"), b.getTotal("y"));
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPut()
+	{
+		new DecimalGroupTotal().put("x", null);
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistinctGroupCountTest
+{
+	private DistinctGroupCount object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new DistinctGroupCount();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		object.add("foo", "alice");
+		object.add("foo", "bob");
+		object.add("foo", "alice");
+		object.add("bar", "carol");
+		assertEquals(2, object.getCount("foo"));
+		assertEquals(Long.valueOf(1), object.get("bar"));
+		assertEquals(0, object.getCount("baz"));
+		assertNull(object.get("baz"));
+		assertNull(object.getSketch("baz"));
+		assertEquals(3, object.getTotalCount());
+		Iterator<Comparable<?>> it = object.keySet().iterator();
+		assertEquals("foo", it.next());
+		assertEquals("bar", it.next());
+	}
+	
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(1, 2, 3, 2, 1));
+		assertEquals(3, object.getCount("foo"));
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		DistinctGroupCount other = new DistinctGroupCount();
+		object.addAll("foo", Arrays.asList(1, 2, 3));
+		other.addAll("foo", Arrays.asList(3, 4));
+		other.add("bar", 1);
+		object.merge(other);
+		assertEquals(4, object.getCount("foo"));
+		assertEquals(1, object.getCount("bar"));
+		other.add("bar", 2);
+		assertEquals(1, object.getCount("bar"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentPrecision()
+	{
+		object.merge(new DistinctGroupCount(8));
+	}
+	
+	@Test
+	public void testEntrySet()
+	{
+		object.add("foo", 1);
+		for (Map.Entry<Comparable<?>,Long> entry : object.entrySet()) {
+			assertEquals("foo", entry.getKey());
+			assertEquals(Long.valueOf(1), entry.getValue());
+		}
+		assertEquals(1, object.remove("foo").longValue());
+		assertTrue(object.isEmpty());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("foo", 1L);
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class FlatDoubleGrouperTest
+{
+	private FlatDoubleGrouper<String,Integer,Double> object; 
+	
+	@Before
+	public void setUp()
+	{
+		object = new FlatDoubleGrouper<String,Integer,Double>();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		DoubleGrouper<String,Integer,Double> expected = new DoubleGrouper<String,Integer,Double>();
+		for (int i = 0; i < 10; i++) {
+			object.add(i % 3 == 0 ? "foo" : "bar", i / 2, (double) i / 10);
+			expected.add(i % 3 == 0 ? "foo" : "bar", i / 2, (double) i / 10);
+		}
+		assertTrue(object.containsKey("foo"));
+		assertEquals(expected, object);
+		assertEquals(Lists.newArrayList(expected.keySet()), Lists.newArrayList(object.keySet()));
+		assertEquals(Lists.newArrayList(expected.get("bar").keySet()), Lists.newArrayList(object.get("bar").keySet()));
+		assertEquals(Arrays.asList(0.4, 0.5), object.get("bar", 2));
+		assertNull(object.get("bar", 99));
+	}
+	
+	@Test
+	public void testViewInvalidated()
+	{
+		object.add("foo", 1, 1.0);
+		Map<Integer,Collection<Double>> foo = object.get("foo");
+		object.add("foo", 1, 2.0);
+		assertEquals(Arrays.asList(1.0, 2.0), foo.get(1));
+		object.add("foo", 2, 3.0);
+		assertEquals(2, object.get("foo").size());
+		assertEquals(1, object.size());
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testViewReadOnly()
+	{
+		object.add("foo", 1, 1.0);
+		object.get("foo").remove(1);
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		Collection<Double> data = Arrays.asList(0.2, 0.3, 0.4);
+		object.addAll("2-4", 0, data);
+		assertEquals(data, object.get("2-4").get(0));
+		HashMap<Integer,Collection<Double>> map = new HashMap<Integer,Collection<Double>>();
+		map.put(10, data);
+		object.addAll("bar", map);
+		assertEquals(data, object.get("bar", 10));
+		assertEquals(2, object.size());
+	}
+	
+	@Test
+	public void testClear()
+	{
+		object.add("foo", 1, 1.0);
+		object.clear();
+		assertTrue(object.isEmpty());
+		assertFalse(object.containsKey("foo"));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("thing", null);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPutAll()
+	{
+		object.putAll(null);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlatTripleGrouperTest
+{
+	private FlatTripleGrouper<String,Integer,Boolean,Double> object; 
+	
+	@Before
+	public void setUp()
+	{
+		object = new FlatTripleGrouper<String,Integer,Boolean,Double>();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		TripleGrouper<String,Integer,Boolean,Double> expected = new TripleGrouper<String,Integer,Boolean,Double>();
+		for (int i = 0; i < 30; i++) {
+			object.add(i % 3 == 0 ? "foo" : "bar", i % 4, i % 2 == 0, (double) i);
+			expected.add(i % 3 == 0 ? "foo" : "bar", i % 4, i % 2 == 0, (double) i);
+		}
+		assertEquals(expected, object);
+		assertEquals(Arrays.asList(0.0, 12.0, 24.0), object.get("foo", 0, true));
+		assertEquals(object.get("foo", 0, true), object.get("foo").get(0).get(true));
+		object.add(null, null, null, 1.0);
+		assertEquals(Arrays.asList(1.0), object.get(null).get(null).get(null));
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", 1, true, Arrays.asList(1.0, 2.0));
+		object.addAll("foo", 1, true, Arrays.asList(3.0));
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0), object.get("foo", 1, true));
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("thing", null);
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupQuantilesTest
+{
+	private GroupQuantiles object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new GroupQuantiles();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		for (int i = 1; i <= 1000; i++) {
+			object.add("foo", i);
+			object.add("bar", i * 2);
+		}
+		assertEquals(500.5, object.getQuantile("foo", 0.5), 5);
+		assertEquals(990, object.getQuantile("foo", 0.99), 2);
+		assertEquals(1980, object.getQuantiles(0.99).get("bar"), 4);
+		assertTrue(Double.isNaN(object.getQuantile("baz", 0.5)));
+		assertEquals(2, object.size());
+	}
+	
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(1, null, 2.0, 3L));
+		assertEquals(3, object.get("foo").getCount());
+		assertEquals(2.0, object.getQuantile("foo", 0.5), 0);
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		GroupQuantiles other = new GroupQuantiles();
+		object.addAll("foo", Arrays.asList(1, 2));
+		other.addAll("foo", Arrays.asList(3, 4, 5));
+		other.add("bar", 5.0);
+		object.merge(other);
+		assertEquals(5, object.get("foo").getCount());
+		assertEquals(3.0, object.getQuantile("foo", 0.5), 0);
+		assertEquals(1, object.get("bar").getCount());
+		other.add("bar", 6.0);
+		assertEquals(1, object.get("bar").getCount());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("foo", new TDigest());
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.libreworks.stellarbase.math.RunningStatistics;
+
+public class GroupStatisticsTest
+{
+	private GroupStatistics object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new GroupStatistics();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		object.add("foo", 3.0);
+		object.add("bar", 4.0);
+		object.add("foo", 5.0);
+		RunningStatistics foo = object.get("foo");
+		assertEquals(2, foo.getCount());
+		assertEquals(8.0, foo.getSum(), 0);
+		assertEquals(4.0, foo.getMean(), 0);
+		assertEquals(3.0, foo.getMin(), 0);
+		assertEquals(5.0, foo.getMax(), 0);
+		assertEquals(2, object.size());
+	}
+	
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(1.0, null, 2, 3L));
+		assertEquals(3, object.get("foo").getCount());
+		assertEquals(2.0, object.getMeans().get("foo"), 0);
+		assertEquals(6.0, object.getSums().get("foo"), 0);
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		GroupStatistics other = new GroupStatistics();
+		object.addAll("foo", Arrays.asList(1.0, 2.0));
+		other.addAll("foo", Arrays.asList(3.0, 4.0));
+		other.add("bar", 5.0);
+		object.merge(other);
+		assertEquals(4, object.get("foo").getCount());
+		assertEquals(2.5, object.get("foo").getMean(), 0);
+		assertEquals(1, object.get("bar").getCount());
+		other.add("bar", 6.0);
+		assertEquals(1, object.get("bar").getCount());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("foo", new RunningStatistics());
+	}
+}
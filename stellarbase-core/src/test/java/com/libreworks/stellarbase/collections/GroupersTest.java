@@ -0,0 +1,231 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+@SuppressWarnings("deprecation")
+public class GroupersTest
+{
+	private ExecutorService executor;
+	private List<Integer> numbers;
+	
+	private static final Function<Integer,Integer> MOD_7 = new Function<Integer,Integer>()
+	{
+		public Integer apply(Integer input)
+		{
+			return input % 7;
+		}
+	};
+	private static final Function<Integer,String> EVEN = new Function<Integer,String>()
+	{
+		public String apply(Integer input)
+		{
+			return input % 2 == 0 ? "even" : "odd";
+		}
+	};
+	private static final Function<Integer,Integer> MOD_3 = new Function<Integer,Integer>()
+	{
+		public Integer apply(Integer input)
+		{
+			return input % 3;
+		}
+	};
+	private static final Function<Integer,Integer> SELF = new Function<Integer,Integer>()
+	{
+		public Integer apply(Integer input)
+		{
+			return input;
+		}
+	};
+	
+	@Before
+	public void setUp()
+	{
+		executor = Executors.newFixedThreadPool(4);
+		numbers = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			numbers.add((i * 31) % 10007);
+		}
+	}
+	
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void testSingleGrouper()
+	{
+		GroupCollector<Integer,SingleGrouper<Integer,Integer>> collector =
+			Groupers.toSingleGrouper(MOD_7);
+		SingleGrouper<Integer,Integer> sequential = Groupers.collect(numbers, collector);
+		SingleGrouper<Integer,Integer> parallel = Groupers.collect(numbers, collector, executor, 4);
+		assertEquals(7, parallel.size());
+		assertEquals(Lists.newArrayList(sequential.entrySet()), Lists.newArrayList(parallel.entrySet()));
+	}
+	
+	@Test
+	public void testSingleGrouperFactory()
+	{
+		SingleGrouperFactory<Integer,Integer> factory = new SingleGrouperFactory<Integer,Integer>()
+		{
+			public Collection<Integer> getContainer()
+			{
+				return new TreeSet<Integer>();
+			}
+			public Map<Integer,Collection<Integer>> getGroupContainer()
+			{
+				return new TreeMap<Integer,Collection<Integer>>();
+			}
+		};
+		SingleGrouper<Integer,Integer> parallel = Groupers.collect(numbers, Groupers.toSingleGrouper(MOD_7, factory), executor, 4);
+		assertEquals(TreeSet.class, parallel.get(3).getClass());
+		assertEquals(Lists.newArrayList(0, 1, 2, 3, 4, 5, 6), Lists.newArrayList(parallel.keySet()));
+	}
+	
+	@Test
+	public void testDoubleGrouper()
+	{
+		GroupCollector<Integer,DoubleGrouper<String,Integer,Integer>> collector =
+			Groupers.toDoubleGrouper(EVEN, MOD_7);
+		DoubleGrouper<String,Integer,Integer> sequential = Groupers.collect(numbers, collector);
+		DoubleGrouper<String,Integer,Integer> parallel = Groupers.collect(numbers, collector, executor, 3);
+		assertEquals(sequential, parallel);
+		assertEquals(Lists.newArrayList(sequential.get("odd").keySet()), Lists.newArrayList(parallel.get("odd").keySet()));
+	}
+	
+	@Test
+	public void testTripleGrouper()
+	{
+		GroupCollector<Integer,TripleGrouper<String,Integer,Integer,Integer>> collector =
+			Groupers.toTripleGrouper(EVEN, MOD_3, MOD_7);
+		assertEquals(Groupers.collect(numbers, collector), Groupers.collect(numbers, collector, executor, 4));
+	}
+	
+	@Test
+	public void testGroupTotals()
+	{
+		GroupCollector<Integer,SingleGroupTotal> single = Groupers.toSingleGroupTotal(MOD_7, SELF);
+		assertEquals(Groupers.collect(numbers, single), Groupers.collect(numbers, single, executor, 4));
+		GroupCollector<Integer,PrimitiveGroupTotal> primitive = Groupers.toPrimitiveGroupTotal(MOD_7, SELF);
+		assertEquals(Groupers.collect(numbers, single), Groupers.collect(numbers, primitive, executor, 4));
+		GroupCollector<Integer,DoubleGroupTotal> dbl = Groupers.toDoubleGroupTotal(EVEN, MOD_7, SELF);
+		assertEquals(Groupers.collect(numbers, dbl), Groupers.collect(numbers, dbl, executor, 4));
+	}
+	
+	@Test
+	public void testDistinctGroupCount()
+	{
+		GroupCollector<Integer,DistinctGroupCount> distinct = Groupers.toDistinctGroupCount(MOD_7, SELF, 10);
+		DistinctGroupCount expected = Groupers.collect(numbers, distinct);
+		assertEquals(expected, Groupers.collect(numbers, distinct, executor, 4));
+		assertEquals(7, expected.size());
+	}
+	
+	@Test
+	public void testDecimalGroupTotal()
+	{
+		GroupCollector<Integer,DecimalGroupTotal> decimal = Groupers.toDecimalGroupTotal(MOD_7, SELF);
+		DecimalGroupTotal expected = Groupers.collect(numbers, decimal);
+		DecimalGroupTotal actual = Groupers.collect(numbers, decimal, executor, 4);
+		assertEquals(expected.getTotals(), actual.getTotals());
+		assertEquals(Groupers.collect(numbers, Groupers.toSingleGroupTotal(MOD_7, SELF)).get(3).longValue(),
+			actual.getTotal(3).longValueExact());
+	}
+	
+	@Test
+	public void testGroupStatistics()
+	{
+		GroupCollector<Integer,GroupStatistics> stats = Groupers.toGroupStatistics(MOD_7, SELF);
+		GroupStatistics expected = Groupers.collect(numbers, stats);
+		GroupStatistics actual = Groupers.collect(numbers, stats, executor, 4);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Comparable<?> key : expected.keySet()) {
+			assertEquals(expected.get(key).getCount(), actual.get(key).getCount());
+			assertEquals(expected.get(key).getSum(), actual.get(key).getSum(), 0);
+			assertEquals(expected.get(key).getMean(), actual.get(key).getMean(), 1e-9);
+		}
+	}
+	
+	@Test
+	public void testGroupQuantiles()
+	{
+		GroupCollector<Integer,GroupQuantiles> quantiles = Groupers.toGroupQuantiles(MOD_7, SELF, 100);
+		GroupQuantiles expected = Groupers.collect(numbers, quantiles);
+		GroupQuantiles actual = Groupers.collect(numbers, quantiles, executor, 4);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Comparable<?> key : expected.keySet()) {
+			assertEquals(expected.get(key).getCount(), actual.get(key).getCount());
+			assertEquals(expected.getQuantile(key, 0.9), actual.getQuantile(key, 0.9), 100);
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistinctGroupCountBadPrecision()
+	{
+		Groupers.toDistinctGroupCount(MOD_7, SELF, 1);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testGroupQuantilesBadCompression()
+	{
+		Groupers.toGroupQuantiles(MOD_7, SELF, 5);
+	}
+	
+	@Test
+	public void testSmallList()
+	{
+		List<Integer> small = numbers.subList(0, 10);
+		GroupCollector<Integer,SingleGroupTotal> single = Groupers.toSingleGroupTotal(MOD_7, SELF);
+		assertEquals(Groupers.collect(small, single), Groupers.collect(small, single, executor, 4));
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testException()
+	{
+		Function<Integer,Integer> bad = new Function<Integer,Integer>()
+		{
+			public Integer apply(Integer input)
+			{
+				if (input.intValue() == 7) {
+					throw new IllegalStateException();
+				}
+				return input;
+			}
+		};
+		Groupers.collect(numbers, Groupers.toSingleGroupTotal(bad, SELF), executor, 4);
+	}
+}
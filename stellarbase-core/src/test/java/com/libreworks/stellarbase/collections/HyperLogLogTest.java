@@ -0,0 +1,113 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class HyperLogLogTest
+{
+	@Test
+	public void testEmpty()
+	{
+		assertEquals(0, new HyperLogLog().cardinality());
+	}
+	
+	@Test
+	public void testSmall()
+	{
+		HyperLogLog object = new HyperLogLog();
+		assertTrue(object.offer("foo"));
+		assertFalse(object.offer("foo"));
+		object.offer("bar");
+		object.offer(null);
+		object.offer(1);
+		object.offer(1L);
+		assertEquals(4, object.cardinality());
+	}
+	
+	@Test
+	public void testLarge()
+	{
+		HyperLogLog object = new HyperLogLog(12);
+		for (int i = 0; i < 100000; i++) {
+			object.offer("user" + i);
+			object.offer("user" + (i / 2));
+		}
+		// four standard errors
+		assertEquals(100000, object.cardinality(), 100000 * 0.065);
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		HyperLogLog a = new HyperLogLog(10);
+		HyperLogLog b = new HyperLogLog(10);
+		HyperLogLog all = new HyperLogLog(10);
+		for (int i = 0; i < 20000; i++) {
+			(i % 2 == 0 ? a : b).offer(i);
+			all.offer(i);
+		}
+		HyperLogLog copy = a.copy();
+		assertEquals(all, a.merge(b));
+		assertEquals(all.cardinality(), a.cardinality());
+		assertFalse(copy.equals(a));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentPrecision()
+	{
+		new HyperLogLog(10).merge(new HyperLogLog(11));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadPrecision()
+	{
+		new HyperLogLog(3);
+	}
+	
+	@Test
+	public void testClear()
+	{
+		HyperLogLog object = new HyperLogLog(8);
+		object.offer("foo");
+		object.clear();
+		assertEquals(0, object.cardinality());
+	}
+	
+	@Test
+	public void testSerialize() throws Exception
+	{
+		HyperLogLog object = new HyperLogLog(8);
+		for (int i = 0; i < 1000; i++) {
+			object.offer(i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(object, in.readObject());
+	}
+}
@@ -19,6 +19,7 @@ package com.libreworks.stellarbase.collections;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -88,6 +89,63 @@ public class MapsTest
 		assertEquals(ImmutableMap.copyOf(expected), object.toImmutableMap());
 	}
 	
+	@Test
+	public void testCompact()
+	{
+		LinkedHashMap<String,Integer> expected = new LinkedHashMap<String, Integer>();
+		expected.put("foo", 1);
+		expected.put(null, 2);
+		expected.put("baz", null);
+		
+		Map<String,Integer> actual = Maps.<String,Integer>newLinked()
+			.add("foo", 1, null, 2, "baz", null)
+			.toCompactMap();
+		assertEquals(expected, actual);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+		assertEquals(Integer.valueOf(2), actual.get(null));
+		assertTrue(actual.containsKey("baz"));
+		assertFalse(actual.containsKey("bar"));
+		assertNull(actual.get("bar"));
+		assertTrue(Maps.newLinked().toCompactMap().isEmpty());
+	}
+	
+	@Test
+	public void testFrozen()
+	{
+		LinkedHashMap<Integer,String> expected = new LinkedHashMap<Integer, String>();
+		Maps.MapBuilder<Integer,String> builder = Maps.newLinked();
+		for (int i = 0; i < 1000; i++) {
+			// multiples of 1024 would all collide without spreading
+			expected.put(i * 1024, "v" + i);
+			builder.add(i * 1024, "v" + i);
+		}
+		expected.put(null, null);
+		builder.add(null, null);
+		
+		Map<Integer,String> actual = builder.toFrozenMap();
+		assertEquals(expected, actual);
+		assertEquals(new ArrayList<Integer>(expected.keySet()), new ArrayList<Integer>(actual.keySet()));
+		assertEquals("v999", actual.get(999 * 1024));
+		assertTrue(actual.containsKey(null));
+		assertNull(actual.get(1));
+		assertFalse(actual.containsKey(1));
+		assertTrue(Maps.newLinked().toFrozenMap().isEmpty());
+		assertEquals(ImmutableMap.of(Color.RED, "x"), Maps.newEnum(Color.RED, "x").toFrozenMap());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCompactReadOnly()
+	{
+		Maps.newLinked("foo", 1).toCompactMap().put("bar", 2);
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFrozenReadOnly()
+	{
+		Maps.newLinked("foo", 1).toFrozenMap().remove("foo");
+	}
+	
 	enum Color
 	{
 		RED, ORANGE, YELLOW, GREEN, BLUE, INDIGO, VIOLET;
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrimitiveGroupTotalTest
+{
+	private PrimitiveGroupTotal object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new PrimitiveGroupTotal();
+	}
+
+	@Test
+	public void testAdd()
+	{
+		object.add("foo", 3.0);
+		object.add("bar", 4.0);
+		object.add("foo", 5.0);
+		assertEquals(8.0, object.get("foo").doubleValue(), 0);
+		assertEquals(4.0, object.getTotal("bar"), 0);
+		assertEquals(0.0, object.getTotal("baz"), 0);
+		assertNull(object.get("baz"));
+		assertEquals(2, object.size());
+	}
+	
+	@Test
+	public void testAddNullKey()
+	{
+		object.add(null, 1.5);
+		object.add(null, 1.5);
+		assertTrue(object.containsKey(null));
+		assertEquals(3.0, object.get(null).doubleValue(), 0);
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(4.0, 3.0, 2.0));
+		object.addAll("bar", Arrays.asList(1.0, 18.0, 0.5));
+		assertEquals(9.0, object.get("foo").doubleValue(), 0);
+		assertEquals(19.5, object.get("bar").doubleValue(), 0);
+	}
+	
+	@Test
+	public void testGrow()
+	{
+		SingleGroupTotal expected = new SingleGroupTotal();
+		for (int i = 0; i < 10000; i++) {
+			object.add(i % 3000, i);
+			expected.add(i % 3000, (double) i);
+		}
+		assertEquals(3000, object.size());
+		assertEquals(expected, object);
+		assertEquals(object, expected);
+		assertEquals(expected.hashCode(), object.hashCode());
+	}
+	
+	@Test
+	public void testRemove()
+	{
+		for (int i = 0; i < 100; i++) {
+			object.add(i, 1.0);
+		}
+		for (int i = 0; i < 100; i += 2) {
+			assertEquals(1.0, object.remove(i).doubleValue(), 0);
+		}
+		assertNull(object.remove(0));
+		assertEquals(50, object.size());
+		assertFalse(object.containsKey(0));
+		assertTrue(object.containsKey(1));
+		object.add(0, 2.0);
+		assertEquals(2.0, object.getTotal(0), 0);
+		assertEquals(51, object.size());
+	}
+	
+	@Test
+	public void testIteratorRemove()
+	{
+		for (int i = 0; i < 100; i++) {
+			object.add(i, i);
+		}
+		Iterator<Map.Entry<Comparable<?>,Double>> it = object.entrySet().iterator();
+		int seen = 0;
+		while (it.hasNext()) {
+			Map.Entry<Comparable<?>,Double> e = it.next();
+			seen++;
+			if (((Integer) e.getKey()).intValue() % 2 == 1) {
+				it.remove();
+			}
+		}
+		assertEquals(100, seen);
+		assertEquals(50, object.size());
+		assertTrue(object.containsKey(98));
+		assertFalse(object.containsKey(99));
+	}
+	
+	@Test
+	public void testClear()
+	{
+		object.add("foo", 1.0);
+		object.clear();
+		assertTrue(object.isEmpty());
+		assertFalse(object.containsKey("foo"));
+	}
+	
+	@Test
+	public void testSerialize() throws Exception
+	{
+		object.add("foo", 3.0);
+		object.add(null, 4.0);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		PrimitiveGroupTotal copy = (PrimitiveGroupTotal) in.readObject();
+		assertEquals(object, copy);
+		assertEquals(4.0, copy.getTotal(null), 0);
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("test", 0.0);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPutAll()
+	{
+		object.putAll(new HashMap<String,Double>());
+	}
+}
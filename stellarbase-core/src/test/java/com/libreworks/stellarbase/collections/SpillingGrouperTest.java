@@ -0,0 +1,199 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillingGrouperTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private File directory;
+	private SpillingGrouper<Integer,String> object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = folder.newFolder();
+		object = new SpillingGrouper<Integer,String>(Collections.<Integer>reverseOrder(), 10, directory);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		object.close();
+	}
+
+	@Test
+	public void testInMemory()
+	{
+		object.add(1, "a");
+		object.add(2, "b");
+		object.add(1, "c");
+		assertEquals(0, object.getSpillCount());
+		Iterator<Map.Entry<Integer,List<String>>> it = object.iterator();
+		Map.Entry<Integer,List<String>> entry = it.next();
+		assertEquals(Integer.valueOf(2), entry.getKey());
+		assertEquals(Arrays.asList("b"), entry.getValue());
+		entry = it.next();
+		assertEquals(Integer.valueOf(1), entry.getKey());
+		assertEquals(Arrays.asList("a", "c"), entry.getValue());
+		assertFalse(it.hasNext());
+	}
+	
+	@Test
+	public void testSpill()
+	{
+		TreeMap<Integer,List<String>> expected = new TreeMap<Integer,List<String>>(Collections.<Integer>reverseOrder());
+		Random random = new Random(3);
+		for (int i = 0; i < 1005; i++) {
+			Integer key = random.nextInt(50);
+			String value = "v" + i;
+			object.add(key, value);
+			if (!expected.containsKey(key)) {
+				expected.put(key, new ArrayList<String>());
+			}
+			expected.get(key).add(value);
+		}
+		assertEquals(100, object.getSpillCount());
+		assertEquals(100, directory.list().length);
+		assertEquals(1005, object.size());
+		LinkedHashMap<Integer,List<String>> actual = new LinkedHashMap<Integer,List<String>>();
+		for (Map.Entry<Integer,List<String>> entry : object) {
+			assertNull(actual.put(entry.getKey(), entry.getValue()));
+		}
+		assertEquals(expected, actual);
+		assertEquals(new ArrayList<Integer>(expected.keySet()), new ArrayList<Integer>(actual.keySet()));
+		object.close();
+		assertEquals(0, directory.list().length);
+		assertFalse(object.iterator().hasNext());
+	}
+	
+	@Test
+	public void testMergeManyRuns()
+	{
+		SpillingGrouper<Integer,String> grouper = new SpillingGrouper<Integer,String>(Collections.<Integer>reverseOrder(), 1, directory);
+		try {
+			TreeMap<Integer,List<String>> expected = new TreeMap<Integer,List<String>>(Collections.<Integer>reverseOrder());
+			Random random = new Random(7);
+			for (int i = 0; i < 300; i++) {
+				Integer key = random.nextInt(20);
+				String value = "v" + i;
+				grouper.add(key, value);
+				if (!expected.containsKey(key)) {
+					expected.put(key, new ArrayList<String>());
+				}
+				expected.get(key).add(value);
+			}
+			assertEquals(300, grouper.getSpillCount());
+			for (int pass = 0; pass < 2; pass++) {
+				LinkedHashMap<Integer,List<String>> actual = new LinkedHashMap<Integer,List<String>>();
+				for (Map.Entry<Integer,List<String>> entry : grouper) {
+					assertNull(actual.put(entry.getKey(), entry.getValue()));
+				}
+				assertEquals(expected, actual);
+				assertEquals(new ArrayList<Integer>(expected.keySet()), new ArrayList<Integer>(actual.keySet()));
+				assertTrue(grouper.getSpillCount() <= SpillingGrouper.MAX_FAN_IN);
+				assertEquals(grouper.getSpillCount(), directory.list().length);
+			}
+		} finally {
+			grouper.close();
+		}
+		assertEquals(0, directory.list().length);
+	}
+	
+	@Test
+	public void testCorruptRun() throws Exception
+	{
+		SpillingGrouper<Integer,String> grouper = new SpillingGrouper<Integer,String>(Collections.<Integer>reverseOrder(), 1, directory);
+		try {
+			grouper.add(1, "a");
+			List<String> before = Arrays.asList(directory.list());
+			grouper.add(2, "b");
+			for (String name : directory.list()) {
+				if (!before.contains(name)) {
+					ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(directory, name)));
+					out.writeBoolean(true);
+					out.writeInt(42);
+					out.close();
+				}
+			}
+			try {
+				grouper.iterator();
+				fail("Expected RuntimeException");
+			} catch (RuntimeException e) {
+			}
+			assertEquals(0, grouper.getOpenCount());
+		} finally {
+			grouper.close();
+		}
+	}
+	
+	@Test
+	public void testCloseWhileIterating()
+	{
+		object.addAll(1, Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k"));
+		object.add(2, "z");
+		Iterator<Map.Entry<Integer,List<String>>> it = object.iterator();
+		assertEquals(Integer.valueOf(2), it.next().getKey());
+		object.close();
+		assertEquals(0, directory.list().length);
+	}
+	
+	@Test
+	public void testNaturalOrder()
+	{
+		SpillingGrouper<String,Integer> grouper = new SpillingGrouper<String,Integer>(2);
+		try {
+			grouper.add("b", 1);
+			grouper.add("a", 2);
+			grouper.add("b", 3);
+			Iterator<Map.Entry<String,List<Integer>>> it = grouper.iterator();
+			assertEquals("a", it.next().getKey());
+			assertEquals(Arrays.asList(1, 3), it.next().getValue());
+		} finally {
+			grouper.close();
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNull()
+	{
+		object.add(null, "a");
+	}
+}
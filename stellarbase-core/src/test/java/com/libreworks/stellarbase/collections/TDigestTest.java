@@ -0,0 +1,137 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TDigestTest
+{
+	@Test
+	public void testEmpty()
+	{
+		TDigest object = new TDigest();
+		assertEquals(0, object.getCount());
+		assertTrue(Double.isNaN(object.quantile(0.5)));
+		assertTrue(Double.isNaN(object.cdf(0)));
+		assertTrue(Double.isNaN(object.getMin()));
+	}
+	
+	@Test
+	public void testSmall()
+	{
+		TDigest object = new TDigest();
+		object.add(1);
+		assertEquals(1.0, object.quantile(0.5), 0);
+		object.add(3);
+		assertEquals(2.0, object.quantile(0.5), 0);
+		assertEquals(1.0, object.quantile(0), 0);
+		assertEquals(3.0, object.quantile(1), 0);
+		object.add(5);
+		assertEquals(3.0, object.quantile(0.5), 0);
+		assertEquals(0.0, object.cdf(0), 0);
+		assertEquals(1.0, object.cdf(5), 0);
+	}
+	
+	@Test
+	public void testAccuracy()
+	{
+		TDigest object = new TDigest();
+		Random random = new Random(7);
+		double[] values = new double[100000];
+		for (int i = 0; i < values.length; i++) {
+			// skewed, like latencies
+			values[i] = -Math.log(1 - random.nextDouble()) * 20;
+			object.add(values[i]);
+		}
+		Arrays.sort(values);
+		assertEquals(values.length, object.getCount());
+		assertEquals(values[0], object.getMin(), 0);
+		assertEquals(values[values.length - 1], object.getMax(), 0);
+		assertTrue(object.getCentroidCount() <= 2 * object.getCompression());
+		for (double q : new double[] { 0.01, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999 }) {
+			double estimate = object.quantile(q);
+			double rank = rank(values, estimate);
+			double tolerance = Math.max(0.001, q * (1 - q) * 0.04);
+			assertEquals("q=" + q, q, rank, tolerance);
+			assertEquals("cdf q=" + q, q, object.cdf(values[(int) (q * values.length)]), tolerance);
+		}
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		TDigest all = new TDigest();
+		TDigest[] parts = { new TDigest(), new TDigest(), new TDigest() };
+		Random random = new Random(11);
+		for (int i = 0; i < 30000; i++) {
+			double d = random.nextGaussian();
+			parts[i % 3].add(d);
+			all.add(d);
+		}
+		TDigest merged = new TDigest();
+		for (TDigest part : parts) {
+			merged.merge(part);
+		}
+		assertEquals(all.getCount(), merged.getCount());
+		assertEquals(all.getMin(), merged.getMin(), 0);
+		assertEquals(all.getMax(), merged.getMax(), 0);
+		for (double q : new double[] { 0.01, 0.5, 0.99 }) {
+			assertEquals(all.quantile(q), merged.quantile(q), 0.05);
+		}
+		assertEquals(10000, parts[0].getCount());
+	}
+	
+	@Test
+	public void testCopy()
+	{
+		TDigest object = new TDigest();
+		object.add(1);
+		TDigest copy = object.copy();
+		object.add(2);
+		assertEquals(1, copy.getCount());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNaN()
+	{
+		new TDigest().add(Double.NaN);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadQuantile()
+	{
+		new TDigest().quantile(1.5);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadCompression()
+	{
+		new TDigest(5);
+	}
+	
+	private static double rank(double[] sorted, double value)
+	{
+		int i = Arrays.binarySearch(sorted, value);
+		return (i < 0 ? -i - 1 : i) / (double) sorted.length;
+	}
+}
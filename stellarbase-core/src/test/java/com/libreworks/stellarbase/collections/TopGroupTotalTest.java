@@ -0,0 +1,181 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopGroupTotalTest
+{
+	private TopGroupTotal object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		object = new TopGroupTotal(3);
+	}
+
+	@Test
+	public void testAddExactUnderCapacity()
+	{
+		object.add("foo", 3.0);
+		object.add("bar", 4.0);
+		object.add("foo", 5.0);
+		object.add(null, 1.0);
+		assertEquals(8.0, object.getTotal("foo"), 0);
+		assertEquals(4.0, object.get("bar").doubleValue(), 0);
+		assertEquals(1.0, object.getTotal(null), 0);
+		assertEquals(0.0, object.getError("foo"), 0);
+		assertEquals(0.0, object.getMaxError(), 0);
+		assertEquals(13.0, object.getTotalWeight(), 0);
+		assertEquals(3, object.size());
+		assertNull(object.get("baz"));
+	}
+	
+	@Test
+	public void testEviction()
+	{
+		object.add("a", 10.0);
+		object.add("b", 5.0);
+		object.add("c", 1.0);
+		object.add("d", 2.0);
+		assertFalse(object.containsKey("c"));
+		assertTrue(object.containsKey("d"));
+		assertEquals(3.0, object.getTotal("d"), 0);
+		assertEquals(1.0, object.getError("d"), 0);
+		assertEquals(3.0, object.getMaxError(), 0);
+		assertEquals(3, object.size());
+	}
+	
+	@Test
+	public void testAddAll()
+	{
+		object.addAll("foo", Arrays.asList(1.0, 2.0, 3.5));
+		assertEquals(6.5, object.getTotal("foo"), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegative()
+	{
+		object.add("foo", -1.0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNaN()
+	{
+		object.add("foo", Double.NaN);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadCapacity()
+	{
+		new TopGroupTotal(0);
+	}
+	
+	@Test
+	public void testTop()
+	{
+		object.add("a", 1.0);
+		object.add("b", 7.0);
+		object.add("c", 4.0);
+		Map<Comparable<?>,Double> top = object.top(2);
+		assertEquals(2, top.size());
+		Iterator<Map.Entry<Comparable<?>,Double>> it = top.entrySet().iterator();
+		assertEquals("b", it.next().getKey());
+		assertEquals("c", it.next().getKey());
+		assertEquals(3, object.top(10).size());
+		assertTrue(object.top(-1).isEmpty());
+	}
+	
+	@Test
+	public void testErrorBounds()
+	{
+		TopGroupTotal sketch = new TopGroupTotal(20);
+		HashMap<Integer,Double> exact = new HashMap<Integer,Double>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			// a skewed distribution with a long tail
+			int key = random.nextInt(4) == 0 ? random.nextInt(1000) : random.nextInt(5);
+			double value = random.nextInt(10);
+			sketch.add(key, value);
+			Double old = exact.get(key);
+			exact.put(key, old == null ? value : old + value);
+		}
+		double bound = sketch.getTotalWeight() / sketch.getCapacity();
+		assertTrue(sketch.getMaxError() <= bound);
+		for (Map.Entry<Integer,Double> e : exact.entrySet()) {
+			double truth = e.getValue();
+			if (sketch.containsKey(e.getKey())) {
+				double estimate = sketch.getTotal(e.getKey());
+				assertTrue(estimate >= truth);
+				assertTrue(estimate - sketch.getError(e.getKey()) <= truth);
+				assertTrue(sketch.getError(e.getKey()) <= sketch.getMaxError());
+			} else {
+				assertTrue(truth <= sketch.getMaxError());
+			}
+			if (truth > bound) {
+				assertTrue(sketch.containsKey(e.getKey()));
+			}
+		}
+		for (int i = 0; i < 5; i++) {
+			assertTrue(sketch.top(5).containsKey(i));
+		}
+	}
+	
+	@Test
+	public void testClear()
+	{
+		object.add("foo", 1.0);
+		object.clear();
+		assertTrue(object.isEmpty());
+		assertEquals(0.0, object.getTotalWeight(), 0);
+		object.add("bar", 2.0);
+		assertEquals(2.0, object.getTotal("bar"), 0);
+	}
+	
+	@Test
+	public void testEntrySet()
+	{
+		object.add("foo", 1.0);
+		object.add("bar", 2.0);
+		HashMap<Comparable<?>,Double> copy = new HashMap<Comparable<?>,Double>(object);
+		assertEquals(2.0, copy.get("bar"), 0);
+		assertEquals(2, copy.size());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		object.put("foo", 1.0);
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemove()
+	{
+		object.add("foo", 1.0);
+		object.remove("foo");
+	}
+}
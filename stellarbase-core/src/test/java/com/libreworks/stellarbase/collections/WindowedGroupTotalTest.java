@@ -0,0 +1,155 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class WindowedGroupTotalTest
+{
+	private FakeTicker ticker;
+	private WindowedGroupTotal object;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		ticker = new FakeTicker();
+		object = new WindowedGroupTotal(60, TimeUnit.SECONDS, 6, ticker);
+	}
+
+	@Test
+	public void testAdd()
+	{
+		object.add("foo", 3.0);
+		object.add("bar", 4.0);
+		object.add("foo", 5.0);
+		object.addAll("bar", Arrays.asList(1.0, 2.0));
+		assertEquals(8.0, object.getTotal("foo"), 0);
+		assertEquals(7.0, object.getTotal("bar"), 0);
+		assertEquals(0.0, object.getTotal("baz"), 0);
+		assertEquals(0.0, object.getTotal(null), 0);
+		assertEquals(10, object.getBucketDuration(TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testSliding()
+	{
+		object.add("foo", 1.0);
+		ticker.advance(25);
+		object.add("foo", 2.0);
+		ticker.advance(30);
+		object.add("foo", 4.0);
+		assertEquals(7.0, object.getTotal("foo"), 0);
+		// the first bucket is now out of the window
+		ticker.advance(10);
+		assertEquals(6.0, object.getTotal("foo"), 0);
+		ticker.advance(20);
+		assertEquals(4.0, object.getTotal("foo"), 0);
+		object.add("foo", 8.0);
+		assertEquals(12.0, object.getTotal("foo"), 0);
+		ticker.advance(60);
+		assertEquals(0.0, object.getTotal("foo"), 0);
+	}
+	
+	@Test
+	public void testRingReuse()
+	{
+		object.add("foo", 1.0);
+		ticker.advance(60);
+		// the same slot in the ring, one lap later
+		object.add("foo", 2.0);
+		assertEquals(2.0, object.getTotal("foo"), 0);
+	}
+	
+	@Test
+	public void testSnapshotAndPurge()
+	{
+		object.add("foo", 1.0);
+		ticker.advance(30);
+		object.add("bar", 2.0);
+		assertEquals(2, object.snapshot().size());
+		ticker.advance(35);
+		SingleGroupTotal snapshot = object.snapshot();
+		assertEquals(1, snapshot.size());
+		assertEquals(2.0, snapshot.get("bar"), 0);
+		assertEquals(2, object.keySet().size());
+		assertEquals(1, object.purge());
+		assertFalse(object.keySet().contains("foo"));
+		object.clear();
+		assertTrue(object.keySet().isEmpty());
+	}
+	
+	@Test
+	public void testConcurrent() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int t = 0; t < 4; t++) {
+				executor.execute(new Runnable()
+				{
+					public void run()
+					{
+						for (int i = 0; i < 10000; i++) {
+							object.add("foo", 1.0);
+						}
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(40000.0, object.getTotal("foo"), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNull()
+	{
+		object.add(null, 1.0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadBuckets()
+	{
+		new WindowedGroupTotal(1, TimeUnit.SECONDS, 0);
+	}
+	
+	private static class FakeTicker extends Ticker
+	{
+		private volatile long nanos = 123456789L;
+		
+		public long read()
+		{
+			return nanos;
+		}
+		
+		void advance(long seconds)
+		{
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+}
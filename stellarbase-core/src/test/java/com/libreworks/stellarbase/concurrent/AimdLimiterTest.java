@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AimdLimiterTest
+{
+	@Test
+	public void testLimit()
+	{
+		AimdLimiter object = new AimdLimiter(2, 1, 10);
+		assertTrue(object.tryAcquire());
+		assertTrue(object.tryAcquire());
+		assertFalse(object.tryAcquire());
+		assertEquals(2, object.getInFlight());
+		assertEquals(2, object.getAcquiredCount());
+		assertEquals(1, object.getRejectedCount());
+	}
+	
+	@Test
+	public void testIncrease()
+	{
+		AimdLimiter object = new AimdLimiter(2, 1, 4);
+		for (int i = 0; i < 100; i++) {
+			int limit = object.getLimit();
+			for (int j = 0; j < limit; j++) {
+				assertTrue(object.tryAcquire());
+			}
+			for (int j = 0; j < limit; j++) {
+				object.release(1, true);
+			}
+		}
+		assertEquals(4, object.getLimit());
+		assertEquals(0, object.getInFlight());
+	}
+	
+	@Test
+	public void testNoIncreaseWhenIdle()
+	{
+		AimdLimiter object = new AimdLimiter(10, 1, 100);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(object.tryAcquire());
+			object.release(1, true);
+		}
+		assertEquals(10, object.getLimit());
+	}
+	
+	@Test
+	public void testDecrease()
+	{
+		AimdLimiter object = new AimdLimiter(10, 2, 10, 0.5, 0, TimeUnit.NANOSECONDS);
+		assertTrue(object.tryAcquire());
+		object.release(1, false);
+		assertEquals(5, object.getLimit());
+		assertTrue(object.tryAcquire());
+		object.release(1, false);
+		assertTrue(object.tryAcquire());
+		object.release(1, false);
+		assertEquals(2, object.getLimit());
+		assertEquals(3, object.getDroppedCount());
+	}
+	
+	@Test
+	public void testSlowCountsAsDrop()
+	{
+		AimdLimiter object = new AimdLimiter(10, 1, 10, 0.5, 100, TimeUnit.MILLISECONDS);
+		assertTrue(object.tryAcquire());
+		object.release(TimeUnit.MILLISECONDS.toNanos(50), true);
+		assertEquals(10, object.getLimit());
+		assertTrue(object.tryAcquire());
+		object.release(TimeUnit.MILLISECONDS.toNanos(150), true);
+		assertEquals(5, object.getLimit());
+		assertEquals(1, object.getDroppedCount());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadLimits()
+	{
+		new AimdLimiter(5, 6, 10);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadRatio()
+	{
+		new AimdLimiter(5, 1, 10, 1.0, 0, TimeUnit.SECONDS);
+	}
+}
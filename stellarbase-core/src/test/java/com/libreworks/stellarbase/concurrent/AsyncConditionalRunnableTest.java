@@ -0,0 +1,280 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.libreworks.stellarbase.text.Strings;
+
+public class AsyncConditionalRunnableTest
+{
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+	private CountingRunnable r1;
+	private CountingRunnable r2;
+	
+	@Before
+	public void setUp()
+	{
+		executor = Executors.newCachedThreadPool();
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		r1 = new CountingRunnable();
+		r2 = new CountingRunnable();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+		scheduler.shutdownNow();
+	}
+	
+	@Test
+	public void testTrue() throws Exception
+	{
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(new Conditional(true), r1, r2, executor, scheduler, 1, TimeUnit.SECONDS);
+		assertTrue(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(1, r1.count.get());
+		assertEquals(0, r2.count.get());
+	}
+
+	@Test
+	public void testFalse() throws Exception
+	{
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(new Conditional(false), r1, r2, executor, scheduler, 1, TimeUnit.SECONDS);
+		assertFalse(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(0, r1.count.get());
+		assertEquals(1, r2.count.get());
+	}
+	
+	@Test
+	public void testException() throws Exception
+	{
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(new Conditional(null), r1, r2, executor, scheduler, 1, TimeUnit.SECONDS);
+		assertFalse(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(0, r1.count.get());
+		assertEquals(1, r2.count.get());
+	}
+	
+	@Test
+	public void testRun() throws Exception
+	{
+		final CountDownLatch latch = new CountDownLatch(1);
+		Runnable ifTrue = new Runnable()
+		{
+			public void run()
+			{
+				latch.countDown();
+			}
+		};
+		new AsyncConditionalRunnable(new Conditional(true), ifTrue, r2, executor, scheduler, 1, TimeUnit.SECONDS).run();
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals(0, r2.count.get());
+	}
+	
+	@Test
+	public void testTimeout() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		Callable<Boolean> slow = new Callable<Boolean>()
+		{
+			public Boolean call() throws Exception
+			{
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+				return true;
+			}
+		};
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(slow, r1, r2, executor, scheduler, 50, TimeUnit.MILLISECONDS);
+		assertFalse(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(0, r1.count.get());
+		assertEquals(1, r2.count.get());
+		assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+		assertTrue(object.onTimeout(true).evaluate().get(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testCoalesce() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		Callable<Boolean> slow = new Callable<Boolean>()
+		{
+			public Boolean call() throws Exception
+			{
+				calls.incrementAndGet();
+				release.await();
+				return true;
+			}
+		};
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(slow, r1, r2, executor, scheduler, 1, TimeUnit.SECONDS);
+		ListenableFuture<Boolean> a = object.evaluate();
+		ListenableFuture<Boolean> b = object.evaluate();
+		assertSame(a, b);
+		release.countDown();
+		assertTrue(a.get(1, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+	}
+	
+	@Test
+	public void testMemoize() throws Exception
+	{
+		FakeTicker ticker = new FakeTicker();
+		Conditional condition = new Conditional(true);
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(condition, r1, r2, executor, scheduler, 1, TimeUnit.SECONDS)
+			.memoize(10, TimeUnit.SECONDS, ticker);
+		assertTrue(object.evaluate().get(1, TimeUnit.SECONDS));
+		condition.result = false;
+		ticker.nanos += TimeUnit.SECONDS.toNanos(9);
+		assertTrue(object.evaluate().get(1, TimeUnit.SECONDS));
+		assertTrue(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(1, condition.calls.get());
+		ticker.nanos += TimeUnit.SECONDS.toNanos(1);
+		assertFalse(object.evaluate().get(1, TimeUnit.SECONDS));
+		assertEquals(2, condition.calls.get());
+	}
+	
+	@Test
+	public void testMemoizeIgnoresException() throws Exception
+	{
+		Conditional condition = new Conditional(null);
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(condition, r1, r2, executor, scheduler, 1, TimeUnit.SECONDS)
+			.memoize(10, TimeUnit.SECONDS, new FakeTicker());
+		assertFalse(object.evaluate().get(1, TimeUnit.SECONDS));
+		condition.result = true;
+		assertTrue(object.evaluate().get(1, TimeUnit.SECONDS));
+		assertEquals(2, condition.calls.get());
+	}
+	
+	@Test
+	public void testTimeoutWithSingleThreads() throws Exception
+	{
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			final CountDownLatch release = new CountDownLatch(1);
+			Callable<Boolean> slow = new Callable<Boolean>()
+			{
+				public Boolean call() throws Exception
+				{
+					release.await(5, TimeUnit.SECONDS);
+					return true;
+				}
+			};
+			AsyncConditionalRunnable object = new AsyncConditionalRunnable(slow, r1, r2, single, scheduler, 100, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			assertFalse(object.evaluate().get(2, TimeUnit.SECONDS));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		} finally {
+			single.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testRejected() throws Exception
+	{
+		ExecutorService stopped = Executors.newSingleThreadExecutor();
+		stopped.shutdown();
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(new Conditional(true), r1, r2, stopped, scheduler, 1, TimeUnit.SECONDS);
+		assertFalse(object.evaluate().get(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testSchedulerShutDown() throws Exception
+	{
+		ScheduledExecutorService stopped = Executors.newSingleThreadScheduledExecutor();
+		stopped.shutdown();
+		Conditional condition = new Conditional(true);
+		AsyncConditionalRunnable object = new AsyncConditionalRunnable(condition, r1, r2, executor, stopped, 1, TimeUnit.SECONDS);
+		assertFalse(object.evaluate().get(1, TimeUnit.SECONDS));
+		assertFalse(object.submit().get(1, TimeUnit.SECONDS));
+		assertEquals(0, condition.calls.get());
+		assertEquals(1, r2.count.get());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeTimeout()
+	{
+		new AsyncConditionalRunnable(new Conditional(true), r1, r2, executor, scheduler, -1, TimeUnit.SECONDS);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullExecutor()
+	{
+		new AsyncConditionalRunnable(new Conditional(true), r1, r2, null, scheduler, 1, TimeUnit.SECONDS);
+	}
+
+	private class Conditional implements Callable<Boolean>
+	{
+		private volatile Boolean result;
+		private final AtomicInteger calls = new AtomicInteger();
+		
+		Conditional(Boolean result)
+		{
+			this.result = result;
+		}
+		
+		public Boolean call() throws Exception
+		{
+			calls.incrementAndGet();
+			if (result == null) {
+				throw new Exception(Strings.POO);
+			}
+			return result;
+		}
+	}
+	
+	private class CountingRunnable implements Runnable
+	{
+		final AtomicInteger count = new AtomicInteger();
+		
+		public void run()
+		{
+			count.incrementAndGet();
+		}
+	}
+	
+	private class FakeTicker extends Ticker
+	{
+		volatile long nanos = 0;
+		
+		@Override
+		public long read()
+		{
+			return nanos;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BatchingExecutorTest
+{
+	@Test
+	public void testBySize() throws InterruptedException
+	{
+		Recorder recorder = new Recorder();
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(recorder, 4, 1, TimeUnit.HOURS, 100);
+		for (int i = 0; i < 10; i++) {
+			object.add(i);
+		}
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+		List<Object> all = new ArrayList<Object>();
+		for (List<Object> batch : recorder.batches) {
+			assertTrue(batch.size() <= 4);
+			all.addAll(batch);
+		}
+		assertEquals(Lists.<Object>newArrayList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), all);
+		assertEquals(3, object.getBatchCount());
+		assertEquals(10, object.getItemCount());
+		assertEquals(4, object.getLargestBatchSize());
+		assertEquals(2, object.getLastBatchSize());
+		assertEquals(10 / 3.0, object.getAverageBatchSize(), 1e-9);
+		assertEquals(0, object.getQueueDepth());
+	}
+	
+	@Test
+	public void testByLinger() throws InterruptedException
+	{
+		Recorder recorder = new Recorder();
+		recorder.expected = new CountDownLatch(1);
+		BatchingExecutor<String> object = new BatchingExecutor<String>(recorder, 100, 50, TimeUnit.MILLISECONDS, 100);
+		object.add("a");
+		object.add("b");
+		assertTrue(recorder.expected.await(5, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(Lists.<Object>newArrayList("a", "b")), recorder.batches);
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testBackPressure() throws InterruptedException
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch handling = new CountDownLatch(1);
+		BatchHandler<Integer> blocked = new BatchHandler<Integer>() {
+			public void handle(List<Integer> batch) {
+				handling.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(blocked, 1, 0, TimeUnit.MILLISECONDS, 2);
+		assertTrue(object.offer(1));
+		assertTrue(handling.await(5, TimeUnit.SECONDS));
+		assertTrue(object.offer(2));
+		assertTrue(object.offer(3, 1, TimeUnit.SECONDS));
+		assertEquals(2, object.getQueueDepth());
+		assertFalse(object.offer(4));
+		assertFalse(object.offer(5, 10, TimeUnit.MILLISECONDS));
+		assertEquals(2, object.getRejectedCount());
+		release.countDown();
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(3, object.getItemCount());
+	}
+	
+	@Test
+	public void testHandlerException() throws InterruptedException
+	{
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(new BatchHandler<Integer>() {
+			public void handle(List<Integer> batch) {
+				throw new IllegalStateException();
+			}
+		}, 2, 0, TimeUnit.MILLISECONDS, 10);
+		object.add(1);
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, object.getFailedBatchCount());
+	}
+	
+	@Test
+	public void testHandlerError() throws InterruptedException
+	{
+		final List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(new BatchHandler<Integer>() {
+			public void handle(List<Integer> batch) {
+				if (batch.contains(1)) {
+					throw new AssertionError();
+				}
+				handled.addAll(batch);
+			}
+		}, 1, 0, TimeUnit.MILLISECONDS, 2);
+		for (int i = 1; i <= 5; i++) {
+			assertTrue(object.offer(i, 5, TimeUnit.SECONDS));
+		}
+		assertFalse(object.awaitTermination(50, TimeUnit.MILLISECONDS));
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, object.getFailedBatchCount());
+		assertEquals(Lists.newArrayList(2, 3, 4, 5), handled);
+	}
+	
+	@Test
+	public void testWorkerInterrupted() throws InterruptedException
+	{
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		Recorder recorder = new Recorder();
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(recorder, 1, 0, TimeUnit.MILLISECONDS, 10, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				threads.add(t);
+				return t;
+			}
+		});
+		recorder.expected = new CountDownLatch(1);
+		object.add(1);
+		assertTrue(recorder.expected.await(5, TimeUnit.SECONDS));
+		threads.get(0).interrupt();
+		threads.get(0).join(5000);
+		assertFalse(object.awaitTermination(10, TimeUnit.MILLISECONDS));
+		recorder.expected = new CountDownLatch(1);
+		object.add(2);
+		assertTrue(recorder.expected.await(5, TimeUnit.SECONDS));
+		assertEquals(2, threads.size());
+		object.shutdown();
+		assertTrue(object.awaitTermination(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testWorkerInterruptedMidBatch() throws InterruptedException
+	{
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		Recorder recorder = new Recorder();
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(recorder, 10, 1, TimeUnit.HOURS, 10, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				threads.add(t);
+				return t;
+			}
+		});
+		recorder.expected = new CountDownLatch(1);
+		object.add(1);
+		object.add(2);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (object.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		threads.get(0).interrupt();
+		assertTrue(recorder.expected.await(5, TimeUnit.SECONDS));
+		assertEquals(Lists.<Object>newArrayList(1, 2), recorder.batches.get(0));
+		assertEquals(2, object.getItemCount());
+	}
+	
+	@Test(expected=RejectedExecutionException.class)
+	public void testShutdown() throws InterruptedException
+	{
+		BatchingExecutor<Integer> object = new BatchingExecutor<Integer>(new Recorder(), 2, 0, TimeUnit.MILLISECONDS, 10);
+		object.shutdown();
+		assertTrue(object.isShutdown());
+		assertTrue(object.awaitTermination(1, TimeUnit.SECONDS));
+		object.add(1);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadBatchSize()
+	{
+		new BatchingExecutor<Integer>(new Recorder(), 0, 0, TimeUnit.MILLISECONDS, 10);
+	}
+	
+	private static class Recorder implements BatchHandler<Object>
+	{
+		final List<List<Object>> batches = Collections.synchronizedList(new ArrayList<List<Object>>());
+		volatile CountDownLatch expected = new CountDownLatch(0);
+		
+		public void handle(List<Object> batch)
+		{
+			batches.add(new ArrayList<Object>(batch));
+			expected.countDown();
+		}
+	}
+}
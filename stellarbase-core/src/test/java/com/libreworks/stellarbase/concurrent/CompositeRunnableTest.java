@@ -17,13 +17,39 @@
  */
 package com.libreworks.stellarbase.concurrent;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import com.libreworks.stellarbase.concurrent.CompositeRunnable.ErrorPolicy;
+
 public class CompositeRunnableTest
 {
+	private ExecutorService executor;
+	
+	@Before
+	public void setUp()
+	{
+		executor = Executors.newFixedThreadPool(3);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+	
 	@Test
 	public void testBasic()
 	{
@@ -37,9 +63,99 @@ public class CompositeRunnableTest
 		assertTrue(r2.called);
 	}
 	
+	@Test
+	public void testConcurrent()
+	{
+		// each child waits for the others, so this only finishes if they run at the same time
+		final CountDownLatch latch = new CountDownLatch(3);
+		Runnable r = new Runnable()
+		{
+			public void run()
+			{
+				latch.countDown();
+				try {
+					if (!latch.await(5, TimeUnit.SECONDS)) {
+						throw new IllegalStateException("Not concurrent");
+					}
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		CompositeRunnable object = new CompositeRunnable(executor, ErrorPolicy.FAIL_FAST, r, r, r);
+		object.run();
+		for (long d : object.getDurations(TimeUnit.NANOSECONDS)) {
+			assertTrue(d >= 0);
+		}
+	}
+	
+	@Test
+	public void testFailFast()
+	{
+		CalledRunnable after = new CalledRunnable();
+		CompositeRunnable object = new CompositeRunnable(new FailingRunnable("a"), after);
+		try {
+			object.run();
+			fail("Expected exception");
+		} catch (IllegalStateException e) {
+			assertEquals("a", e.getMessage());
+		}
+		assertFalse(after.called);
+		assertEquals(-1, object.getDurations(TimeUnit.MILLISECONDS)[1]);
+		
+		object = new CompositeRunnable(executor, ErrorPolicy.FAIL_FAST, new FailingRunnable("b"), new CalledRunnable());
+		try {
+			object.run();
+			fail("Expected exception");
+		} catch (IllegalStateException e) {
+			assertEquals("b", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCollectAll()
+	{
+		for (CompositeRunnable object : new CompositeRunnable[] {
+			new CompositeRunnable(null, ErrorPolicy.COLLECT_ALL, new FailingRunnable("a"), new CalledRunnable(), new FailingRunnable("b")),
+			new CompositeRunnable(executor, ErrorPolicy.COLLECT_ALL, new FailingRunnable("a"), new CalledRunnable(), new FailingRunnable("b"))
+		}) {
+			try {
+				object.run();
+				fail("Expected exception");
+			} catch (CompositeException e) {
+				assertEquals(2, e.getCauses().size());
+				assertSame(e.getCauses().get(0), e.getCause());
+			}
+			for (long d : object.getDurations(TimeUnit.NANOSECONDS)) {
+				assertTrue(d >= 0);
+			}
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullPolicy()
+	{
+		new CompositeRunnable(executor, null, new CalledRunnable());
+	}
+	
+	private static class FailingRunnable implements Runnable
+	{
+		private final String message;
+		
+		FailingRunnable(String message)
+		{
+			this.message = message;
+		}
+		
+		public void run()
+		{
+			throw new IllegalStateException(message);
+		}
+	}
+	
 	private class CalledRunnable implements Runnable
 	{
-		boolean called = false;
+		volatile boolean called = false;
 		
 		public void run()
 		{
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class SingleFlightTest
+{
+	private static final int THREADS = 8;
+	
+	private ExecutorService executor;
+	private SingleFlight<String,Integer> object;
+	
+	@Before
+	public void setUp()
+	{
+		executor = Executors.newFixedThreadPool(THREADS);
+		object = new SingleFlight<String,Integer>();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void testCoalesce() throws Exception
+	{
+		final AtomicInteger calls = new AtomicInteger();
+		List<Future<Integer>> futures = submitAll(new Callable<Integer>()
+		{
+			public Integer call() throws Exception
+			{
+				calls.incrementAndGet();
+				awaitFollowers();
+				return 42;
+			}
+		});
+		for (Future<Integer> f : futures) {
+			assertEquals(Integer.valueOf(42), f.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1, object.getLoadCount());
+		assertEquals(THREADS - 1, object.getCoalescedCount());
+		assertEquals(0, object.getInFlightCount());
+		// nothing is cached afterward
+		assertEquals(Integer.valueOf(7), object.load("key", constant(7)));
+	}
+	
+	@Test
+	public void testException() throws Exception
+	{
+		List<Future<Integer>> futures = submitAll(new Callable<Integer>()
+		{
+			public Integer call() throws Exception
+			{
+				awaitFollowers();
+				throw new IOException("boom");
+			}
+		});
+		for (Future<Integer> f : futures) {
+			try {
+				f.get(5, TimeUnit.SECONDS);
+				fail("Expected exception");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof UncheckedExecutionException);
+				assertEquals("boom", e.getCause().getCause().getMessage());
+			}
+		}
+		assertEquals(0, object.getInFlightCount());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testRuntimeException()
+	{
+		object.load("key", new Callable<Integer>()
+		{
+			public Integer call()
+			{
+				throw new IllegalStateException();
+			}
+		});
+	}
+	
+	@Test
+	public void testTimeout() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<Integer> leader = executor.submit(new Callable<Integer>()
+		{
+			public Integer call() throws Exception
+			{
+				return object.load("key", new Callable<Integer>()
+				{
+					public Integer call() throws Exception
+					{
+						started.countDown();
+						release.await();
+						return 1;
+					}
+				});
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		try {
+			object.load("key", constant(2), 10, TimeUnit.MILLISECONDS);
+			fail("Expected timeout");
+		} catch (TimeoutException e) {
+			// expected
+		}
+		release.countDown();
+		assertEquals(Integer.valueOf(1), leader.get(5, TimeUnit.SECONDS));
+	}
+	
+	private List<Future<Integer>> submitAll(final Callable<Integer> loader)
+	{
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(new Callable<Integer>()
+			{
+				public Integer call() throws Exception
+				{
+					return object.load("key", loader);
+				}
+			}));
+		}
+		return futures;
+	}
+	
+	private void awaitFollowers() throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (object.getCoalescedCount() < THREADS - 1 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+	
+	private static Callable<Integer> constant(final int value)
+	{
+		return new Callable<Integer>()
+		{
+			public Integer call()
+			{
+				return value;
+			}
+		};
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StripedDoubleTest
+{
+	@Test
+	public void testAdd()
+	{
+		StripedDouble object = new StripedDouble();
+		object.add(1.5);
+		object.add(2.5);
+		assertEquals(4.0, object.sum(), 0);
+		assertEquals(4, object.intValue());
+		assertEquals("4.0", object.toString());
+	}
+	
+	@Test
+	public void testReset()
+	{
+		StripedDouble object = new StripedDouble();
+		object.add(3.0);
+		assertEquals(3.0, object.sumThenReset(), 0);
+		assertEquals(0.0, object.sum(), 0);
+		object.add(2.0);
+		object.reset();
+		assertEquals(0.0, object.sum(), 0);
+	}
+	
+	@Test
+	public void testConcurrent() throws Exception
+	{
+		final StripedDouble object = new StripedDouble();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(new Runnable() {
+				public void run()
+				{
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					for (int i = 0; i < 100000; i++) {
+						object.add(1.0);
+					}
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(800000.0, object.sum(), 0);
+	}
+}
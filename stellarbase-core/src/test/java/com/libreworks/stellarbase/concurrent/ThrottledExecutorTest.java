@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+public class ThrottledExecutorTest
+{
+	private ExecutorService pool;
+	
+	@Before
+	public void setUp()
+	{
+		pool = Executors.newFixedThreadPool(4);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		pool.shutdownNow();
+	}
+	
+	@Test
+	public void testExecute() throws Exception
+	{
+		AimdLimiter limiter = new AimdLimiter(2, 1, 2);
+		ThrottledExecutor object = new ThrottledExecutor(pool, limiter);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(2);
+		Runnable task = new Runnable()
+		{
+			public void run()
+			{
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		};
+		object.execute(task);
+		object.execute(task);
+		try {
+			object.execute(task);
+			fail("Expected TaskRejectedException");
+		} catch (TaskRejectedException e) {
+		}
+		assertEquals(1, object.getRejectedCount());
+		release.countDown();
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+		assertEquals(0, limiter.getInFlight());
+	}
+	
+	@Test
+	public void testDelegateRejects()
+	{
+		AimdLimiter limiter = new AimdLimiter(2, 1, 2);
+		ThrottledExecutor object = new ThrottledExecutor(new Executor()
+		{
+			public void execute(Runnable command)
+			{
+				throw new RejectedExecutionException();
+			}
+		}, limiter);
+		try {
+			object.execute(new Runnable()
+			{
+				public void run()
+				{
+				}
+			});
+			fail("Expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+		}
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(1, limiter.getDroppedCount());
+	}
+	
+	@Test
+	public void testSynchronousDelegate()
+	{
+		AimdLimiter limiter = new AimdLimiter(2, 1, 10);
+		ThrottledExecutor object = new ThrottledExecutor(new SyncTaskExecutor(), limiter);
+		try {
+			object.execute(new Runnable()
+			{
+				public void run()
+				{
+					throw new IllegalStateException();
+				}
+			});
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+		}
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(1, limiter.getDroppedCount());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+	}
+}
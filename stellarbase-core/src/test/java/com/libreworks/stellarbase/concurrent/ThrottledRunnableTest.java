@@ -0,0 +1,75 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ThrottledRunnableTest
+{
+	@Test
+	public void testRun()
+	{
+		CountingRunnable delegate = new CountingRunnable();
+		CountingRunnable fallback = new CountingRunnable();
+		AimdLimiter limiter = new AimdLimiter(1, 1, 1);
+		ThrottledRunnable object = new ThrottledRunnable(limiter, delegate, fallback);
+		object.run();
+		assertEquals(1, delegate.count.get());
+		assertEquals(0, limiter.getInFlight());
+		assertTrue(limiter.tryAcquire());
+		object.run();
+		assertEquals(1, delegate.count.get());
+		assertEquals(1, fallback.count.get());
+		assertEquals(1, object.getSkippedCount());
+	}
+	
+	@Test
+	public void testException()
+	{
+		AimdLimiter limiter = new AimdLimiter(4, 1, 4, 0.5, 0, TimeUnit.SECONDS);
+		ThrottledRunnable object = new ThrottledRunnable(limiter, new Runnable()
+		{
+			public void run()
+			{
+				throw new IllegalStateException();
+			}
+		});
+		try {
+			object.run();
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+		}
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(2, limiter.getLimit());
+	}
+	
+	private class CountingRunnable implements Runnable
+	{
+		final AtomicInteger count = new AtomicInteger();
+		
+		public void run()
+		{
+			count.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class TokenBucketTest
+{
+	@Test
+	public void testBurstAndRefill()
+	{
+		FakeTicker ticker = new FakeTicker();
+		TokenBucket object = new TokenBucket(10, 1, TimeUnit.SECONDS, 3, ticker);
+		assertEquals(3, object.getAvailablePermits());
+		assertTrue(object.tryAcquire());
+		assertTrue(object.tryAcquire());
+		assertTrue(object.tryAcquire());
+		assertFalse(object.tryAcquire());
+		assertEquals(0, object.getAvailablePermits());
+		ticker.nanos += TimeUnit.MILLISECONDS.toNanos(100);
+		assertEquals(1, object.getAvailablePermits());
+		assertTrue(object.tryAcquire());
+		assertFalse(object.tryAcquire());
+		ticker.nanos += TimeUnit.SECONDS.toNanos(10);
+		assertEquals(3, object.getAvailablePermits());
+		assertEquals(4, object.getAcquiredCount());
+		assertEquals(2, object.getRejectedCount());
+	}
+	
+	@Test
+	public void testTryAcquireMany()
+	{
+		FakeTicker ticker = new FakeTicker();
+		TokenBucket object = new TokenBucket(1, 1, TimeUnit.SECONDS, 5, ticker);
+		assertFalse(object.tryAcquire(6));
+		assertTrue(object.tryAcquire(4));
+		assertFalse(object.tryAcquire(2));
+		assertTrue(object.tryAcquire(1));
+		assertEquals(5, object.getAcquiredCount());
+	}
+	
+	@Test
+	public void testConcurrent() throws Exception
+	{
+		final TokenBucket object = new TokenBucket(1, 1, TimeUnit.HOURS, 1000, new FakeTicker());
+		final AtomicInteger granted = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(8);
+		for (int i = 0; i < 8; i++) {
+			new Thread(new Runnable()
+			{
+				public void run()
+				{
+					for (int j = 0; j < 500; j++) {
+						if (object.tryAcquire()) {
+							granted.incrementAndGet();
+						}
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(1000, granted.get());
+		assertEquals(3000, object.getRejectedCount());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadBurst()
+	{
+		new TokenBucket(1, 1, TimeUnit.SECONDS, 0);
+	}
+	
+	private class FakeTicker extends Ticker
+	{
+		volatile long nanos = 123456789L;
+		
+		@Override
+		public long read()
+		{
+			return nanos;
+		}
+	}
+}
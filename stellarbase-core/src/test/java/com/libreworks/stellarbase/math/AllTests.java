@@ -27,7 +27,9 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	BinaryMultiplierTest.class,
 	DecimalMultiplierTest.class,
-	SafeMathTest.class
+	SafeMathTest.class,
+	RunningStatisticsTest.class,
+	DecimalAccumulatorTest.class
 })
 public class AllTests
 {
@@ -2,11 +2,19 @@ package com.libreworks.stellarbase.math;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 public class BinaryMultiplierTest
 {
 	@Test
@@ -94,4 +102,36 @@ public class BinaryMultiplierTest
 	{
 		assertEquals("1.6 MiB", PrettyNumbers.bytes(1024 * 1024 * 1.6).format(new DecimalFormat("0.#")).toString());
 	}	
+	
+	@Test
+	public void testFastPathMatchesBigDecimal()
+	{
+		Random random = new Random(11);
+		List<Number> numbers = Lists.<Number>newArrayList(0, -0.0, 1, -1, 999, 1000, 1023, 1024, 1536, 1048576,
+			Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1, 9999999.0, 1e7, 1024.0f, (short) -5, (byte) 7);
+		for (int i = 0; i < 10000; i++) {
+			numbers.add(random.nextLong() >> random.nextInt(64));
+			numbers.add((double) (random.nextInt(20000000) - 10000000));
+		}
+		for (Number n : numbers) {
+			BinaryMultiplier fast = BinaryMultiplier.from(n);
+			BinaryMultiplier slow = BinaryMultiplier.from(new BigDecimal(n.toString()));
+			assertEquals(n.toString(), slow.getValue(), fast.getValue());
+			assertEquals(n.toString(), slow.getReduced(), fast.getReduced());
+			assertEquals(n.toString(), slow.getMultiplier(), fast.getMultiplier());
+		}
+	}
+	
+	@Test
+	public void testAppendTo() throws IOException
+	{
+		BinaryMultiplier object = BinaryMultiplier.from(1536);
+		StringBuilder sb = new StringBuilder("x=");
+		assertSame(sb, object.appendTo(sb));
+		assertEquals("x=" + object.toString(), sb.toString());
+		NumberFormat format = NumberFormat.getInstance(Locale.US);
+		format.setMinimumFractionDigits(3);
+		assertEquals("1.500 Ki", object.appendTo(new StringWriter(), format).toString());
+		assertEquals(object.format(format), object.appendTo(new StringBuilder(), format).toString());
+	}
 }
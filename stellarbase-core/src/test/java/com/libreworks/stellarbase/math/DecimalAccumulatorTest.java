@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecimalAccumulatorTest
+{
+	@Test
+	public void testEmpty()
+	{
+		DecimalAccumulator object = new DecimalAccumulator();
+		assertEquals(BigDecimal.ZERO, object.get());
+		assertEquals(0, object.scale());
+		assertEquals(0L, object.longValue());
+	}
+	
+	@Test
+	public void testAddScaled()
+	{
+		DecimalAccumulator object = new DecimalAccumulator();
+		object.add(1999, 2).add(1).add(5, 1);
+		assertEquals(new BigDecimal("21.49"), object.get());
+		object.add(1, 3);
+		assertEquals(new BigDecimal("21.491"), object.get());
+		object.add(-21491, 3);
+		assertEquals(new BigDecimal("0.000"), object.get());
+		object.add(7, -2);
+		assertEquals(new BigDecimal("700.000"), object.get());
+	}
+	
+	@Test
+	public void testOverflow()
+	{
+		DecimalAccumulator object = new DecimalAccumulator();
+		object.add(Long.MAX_VALUE).add(Long.MAX_VALUE).add(1, 2);
+		BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)).add(new BigDecimal("0.01"));
+		assertEquals(expected, object.get());
+		object.add(Long.MIN_VALUE);
+		assertEquals(expected.add(BigDecimal.valueOf(Long.MIN_VALUE)), object.get());
+		
+		DecimalAccumulator rescale = new DecimalAccumulator();
+		rescale.add(Long.MAX_VALUE / 10).add(1, 5).add(Long.MIN_VALUE, 0).add(1, 25);
+		assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 10).add(new BigDecimal("0.00001"))
+			.add(BigDecimal.valueOf(Long.MIN_VALUE)).add(new BigDecimal("1E-25")), rescale.get());
+	}
+	
+	@Test
+	public void testMatchesBigDecimal()
+	{
+		Random random = new Random(42);
+		DecimalAccumulator object = new DecimalAccumulator();
+		BigDecimal expected = BigDecimal.ZERO;
+		for (int i = 0; i < 5000; i++) {
+			BigDecimal value = BigDecimal.valueOf(random.nextLong() >> random.nextInt(64), random.nextInt(24) - 4);
+			object.add(value);
+			expected = expected.add(value);
+			assertEquals(expected, object.get());
+		}
+	}
+	
+	@Test
+	public void testAddNumber()
+	{
+		DecimalAccumulator object = new DecimalAccumulator();
+		object.add(Integer.valueOf(3)).add(Byte.valueOf((byte) 2)).add(Double.valueOf(0.1))
+			.add(BigInteger.TEN).add((Number) null).add(Float.valueOf(0.25f));
+		assertEquals(new BigDecimal("15.35"), object.get());
+	}
+	
+	@Test
+	public void testAddString()
+	{
+		DecimalAccumulator object = new DecimalAccumulator();
+		object.add("12.50").add("-0.125").add("7").add("foo").add((CharSequence) null).add("0.0000");
+		assertEquals(new BigDecimal("19.375"), object.get());
+		object.add("1e2").add("123456789012345678901234.5");
+		assertEquals(new BigDecimal("123456789012345678901353.875"), object.get());
+	}
+	
+	@Test
+	public void testAddNegativeZeroString()
+	{
+		for (String zero : new String[] { "-0.00", "0.00", "-0", "0", "-0.0000" }) {
+			BigDecimal expected = BigDecimal.ZERO.add(SafeMath.value(BigDecimal.class, zero));
+			assertEquals(zero, expected, new DecimalAccumulator().add(zero).get());
+		}
+		assertEquals(2, new DecimalAccumulator().add("-0.00").scale());
+		assertEquals(0, new DecimalAccumulator().add("0.00").scale());
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		DecimalAccumulator a = new DecimalAccumulator().add(150, 2);
+		DecimalAccumulator b = new DecimalAccumulator().add(Long.MAX_VALUE).add(Long.MAX_VALUE);
+		DecimalAccumulator copy = a.copy();
+		a.merge(b);
+		assertEquals(new BigDecimal("1.50"), copy.get());
+		assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)).add(new BigDecimal("1.50")), a.get());
+		a.reset();
+		assertEquals(BigDecimal.ZERO, a.get());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testMergeNull()
+	{
+		new DecimalAccumulator().merge(null);
+	}
+}
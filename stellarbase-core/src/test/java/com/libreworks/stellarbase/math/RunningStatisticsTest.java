@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.math;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RunningStatisticsTest
+{
+	@Test
+	public void testEmpty()
+	{
+		RunningStatistics object = new RunningStatistics();
+		assertEquals(0, object.getCount());
+		assertEquals(0.0, object.getSum(), 0);
+		assertTrue(Double.isNaN(object.getMin()));
+		assertTrue(Double.isNaN(object.getMax()));
+		assertTrue(Double.isNaN(object.getMean()));
+		assertTrue(Double.isNaN(object.getVariance()));
+	}
+	
+	@Test
+	public void testAdd()
+	{
+		RunningStatistics object = new RunningStatistics();
+		for (double d : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+			object.add(d);
+		}
+		assertEquals(8, object.getCount());
+		assertEquals(2.0, object.getMin(), 0);
+		assertEquals(9.0, object.getMax(), 0);
+		assertEquals(40.0, object.getSum(), 0);
+		assertEquals(5.0, object.getMean(), 0);
+		assertEquals(4.0, object.getPopulationVariance(), 1e-12);
+		assertEquals(32.0 / 7, object.getVariance(), 1e-12);
+		assertEquals(Math.sqrt(32.0 / 7), object.getStandardDeviation(), 1e-12);
+	}
+	
+	@Test
+	public void testCompensatedSum()
+	{
+		RunningStatistics object = new RunningStatistics();
+		object.add(1e16);
+		for (int i = 0; i < 1000; i++) {
+			object.add(1.0);
+		}
+		object.add(-1e16);
+		assertEquals(1000.0, object.getSum(), 0);
+	}
+	
+	@Test
+	public void testStableVariance()
+	{
+		RunningStatistics object = new RunningStatistics();
+		object.add(1e9 + 4);
+		object.add(1e9 + 7);
+		object.add(1e9 + 13);
+		object.add(1e9 + 16);
+		assertEquals(30.0, object.getVariance(), 1e-6);
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		RunningStatistics a = new RunningStatistics();
+		RunningStatistics b = new RunningStatistics();
+		RunningStatistics all = new RunningStatistics();
+		for (int i = 0; i < 100; i++) {
+			double d = Math.sin(i) * 100;
+			(i < 30 ? a : b).add(d);
+			all.add(d);
+		}
+		RunningStatistics merged = a.copy().merge(b);
+		assertEquals(all.getCount(), merged.getCount());
+		assertEquals(all.getMin(), merged.getMin(), 0);
+		assertEquals(all.getMax(), merged.getMax(), 0);
+		assertEquals(all.getSum(), merged.getSum(), 1e-10);
+		assertEquals(all.getMean(), merged.getMean(), 1e-10);
+		assertEquals(all.getVariance(), merged.getVariance(), 1e-9);
+		assertEquals(30, a.getCount());
+		assertEquals(b.getMean(), new RunningStatistics().merge(b).getMean(), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeNull()
+	{
+		new RunningStatistics().merge(null);
+	}
+}
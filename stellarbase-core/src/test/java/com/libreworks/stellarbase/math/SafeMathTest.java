@@ -24,15 +24,23 @@ import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
+import org.springframework.util.NumberUtils;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.UnsignedInteger;
 import com.google.common.util.concurrent.AtomicDouble;
 
@@ -115,6 +123,28 @@ public class SafeMathTest
 		}
 	}
 	
+	@Test
+	public void testIsNumberMatchesPattern()
+	{
+		List<String> corpus = Lists.newArrayList("", "+", "-", ".", "e", "0x", "0X", "0x.", "-0x", "+0x.f",
+			"0x.f", "0xf.", "0xF.a", "0xg", "0x1e5", "1.", ".1", "-.1", "+1.e5", "1.e", "1e+", "1e-5",
+			"1E+05", ".e5", "1.2.3", "1e5.0", "0x1p3", "1f", "1d", "NaN", "Infinity", " 1", "1 ",
+			"\u0661", "\uff11", "00x1", "x1", "--1", "+-1", "1ee5", "123456789012345678901234567890");
+		Random random = new Random(7);
+		char[] alphabet = "0123456789abcdefxX.eE+- ".toCharArray();
+		for (int i = 0; i < 100000; i++) {
+			char[] chars = new char[random.nextInt(8)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			corpus.add(new String(chars));
+		}
+		for (String v : corpus) {
+			assertEquals(v, SafeMath.FP_NUMBER.matcher(v).matches(), SafeMath.isNumber(v));
+			assertEquals(v, SafeMath.isNumber(v), SafeMath.isNumber(new StringBuilder(v)));
+		}
+	}
+	
 	@Test
 	public void testGetZero()
 	{
@@ -133,6 +163,74 @@ public class SafeMathTest
 				1.0, 1.0, 0.0), Double.class));
 	}
 
+	@Test
+	public void testSumArrays()
+	{
+		assertEquals(0.0, SafeMath.sum((double[]) null), 0);
+		assertEquals(0.0, SafeMath.sum(new double[0]), 0);
+		assertEquals(2.5, SafeMath.sum(new double[] { 0.5, 0.0, 1.0, 1.0, 0.0 }), 0);
+		assertEquals(1.0, SafeMath.sum(new double[] { 1e100, 1.0, -1e100 }), 0);
+		assertEquals(Double.POSITIVE_INFINITY, SafeMath.sum(new double[] { Double.POSITIVE_INFINITY, 1.0 }), 0);
+		assertEquals(0L, SafeMath.sum((long[]) null));
+		assertEquals(20L, SafeMath.sum(new long[] { 3, 3, 4, 3, 7 }));
+		assertEquals(7.0, SafeMath.sum(Arrays.asList("a", null, "bbbb", "ccc"), new Function<String,Integer>()
+		{
+			public Integer apply(String input)
+			{
+				return input.length() == 1 ? null : input.length();
+			}
+		}), 0);
+	}
+	
+	@Test(expected = ArithmeticException.class)
+	public void testSumLongOverflow()
+	{
+		SafeMath.sum(new long[] { Long.MAX_VALUE, 1 });
+	}
+	
+	@Test
+	public void testSumParallel()
+	{
+		double[] doubles = new double[100000];
+		long[] longs = new long[100000];
+		for (int i = 0; i < doubles.length; i++) {
+			doubles[i] = 0.1;
+			longs[i] = i;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertEquals(SafeMath.sum(doubles), SafeMath.sum(doubles, executor, 4), 1e-9);
+			assertEquals(10000.0, SafeMath.sum(doubles, executor, 4), 1e-9);
+			assertEquals(4999950000L, SafeMath.sum(longs, executor, 4));
+			assertEquals(0.0, SafeMath.sum((double[]) null, executor, 4), 0);
+			assertEquals(3L, SafeMath.sum(new long[] { 1, 2 }, executor, 4));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testProductArrays()
+	{
+		assertEquals(0.0, SafeMath.product((double[]) null), 0);
+		assertEquals(0.0, SafeMath.product(new double[0]), 0);
+		assertEquals(30.0, SafeMath.product(new double[] { 1.0, 3.0, 10.0 }), 0);
+		assertEquals(0.0, SafeMath.product(new double[] { 1.0, 3.0, 0.0 }), 0);
+		assertEquals(0L, SafeMath.product(new long[0]));
+		assertEquals(30L, SafeMath.product(new long[] { 1, 3, 10 }));
+		assertEquals(0L, SafeMath.product(new long[] { Long.MAX_VALUE, 3, 0 }));
+		Function<Integer,Integer> self = new Function<Integer,Integer>()
+		{
+			public Integer apply(Integer input)
+			{
+				return input;
+			}
+		};
+		assertEquals(30.0, SafeMath.product(Arrays.asList(1, 3, 10), self), 0);
+		assertEquals(0.0, SafeMath.product(Arrays.asList(1, null, 10), self), 0);
+		assertEquals(0.0, SafeMath.product(Collections.<Integer>emptyList(), self), 0);
+	}
+
 	@Test
 	public void testProduct()
 	{
@@ -283,6 +381,97 @@ public class SafeMathTest
 		assertEquals(Float.valueOf(0f), SafeMath.value(Float.class, "foo"));
 	}
 	
+	@Test
+	public void testValueMatchesGeneralPath()
+	{
+		List<Object> inputs = new ArrayList<Object>(Arrays.<Object>asList(
+			0, 1, -1, 127, 128, -129, 32768, Integer.MAX_VALUE, Integer.MIN_VALUE,
+			0L, 5L, Long.MAX_VALUE, Long.MIN_VALUE, (short) 0, (short) -7, (byte) 0, (byte) 9,
+			0.0, -0.0, 0.5, -2.75, 1e300, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+			0.0f, -0.0f, 1.25f, 3e38f, Float.NaN,
+			BigInteger.ZERO, BigInteger.TEN, new BigInteger("-99999999999999999999999"),
+			BigDecimal.ZERO, new BigDecimal("0.000"), new BigDecimal("0.000000"),
+			new BigDecimal("0.0000000"), new BigDecimal("0E+3"), new BigDecimal("12.5"),
+			new BigDecimal("-1E+40"), new AtomicInteger(0), new AtomicInteger(12),
+			new AtomicDouble(0.0), new AtomicDouble(3.5), UnsignedInteger.valueOf(4),
+			"", " ", "0", "00", "-0", "+0", "0.0", "000.000", "-0.0", "0.", ".0", "5.",
+			".5", "1", "-1", "+1", "007", "127", "128", "-128", "-129", "32767", "32768",
+			"2147483647", "2147483648", "-2147483649", "123456789012345678",
+			"1234567890123456789", "-999999999999999999", "99999999999999999999",
+			"1.5", "-1.5", "22.0", "9876.54321", "1e5", "1E-3", "0x16", "0X0", "#FF",
+			"-0x10", " 12 ", "1 000", "1,5", "1,000.25", "NaN", "Infinity", "-Infinity",
+			"abc", "12abc", "--1", "1-", "1.2.3", "\u0661", "true", Boolean.TRUE,
+			new StringBuilder("42"), new StringBuilder("0.00")));
+		for (int i = -3; i < 40; i++) {
+			inputs.add(Integer.toString(i * 37 - 100));
+			inputs.add(new BigDecimal(i).movePointLeft(i % 7).toPlainString());
+		}
+		List<Class<? extends Number>> types = Arrays.<Class<? extends Number>>asList(
+			Byte.class, Short.class, Integer.class, Long.class, BigInteger.class,
+			Float.class, Double.class, BigDecimal.class, Number.class);
+		Locale locale = Locale.getDefault();
+		try {
+			for (Locale l : new Locale[] { Locale.US, Locale.GERMANY, Locale.FRANCE }) {
+				Locale.setDefault(l);
+				for (Object input : inputs) {
+					for (Class<? extends Number> type : types) {
+						String message = l + " " + type.getSimpleName() + " <- " + input
+							+ (input == null ? "" : " (" + input.getClass().getSimpleName() + ")");
+						Object expected, actual;
+						try {
+							expected = generalValue(type, input);
+						} catch (RuntimeException e) {
+							expected = e.getClass();
+						}
+						try {
+							actual = SafeMath.value(type, input);
+						} catch (RuntimeException e) {
+							actual = e.getClass();
+						}
+						assertEquals(message, expected, actual);
+						if (expected != null) {
+							assertEquals(message, expected.getClass(), actual.getClass());
+						}
+					}
+				}
+			}
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+	
+	/**
+	 * The conversion {@link SafeMath#value(Class, Object)} did before its fast paths.
+	 */
+	private static <T extends Number> T generalValue(Class<T> toClass, Object value)
+	{
+		if (value == null || Boolean.FALSE.equals(value)
+			|| SafeMath.ZERO.matcher(value.toString()).matches()) {
+			return SafeMath.getZero(toClass);
+		} else if (toClass.isInstance(value)) {
+			return toClass.cast(value);
+		} else if (value instanceof Number) {
+			return NumberUtils.convertNumberToTargetClass((Number) value, toClass);
+		} else {
+			try {
+				String svalue = value.toString();
+				char dot = ((DecimalFormat) DecimalFormat.getInstance())
+					.getDecimalFormatSymbols().getDecimalSeparator();
+				if (svalue.indexOf(dot) > -1) {
+					return NumberUtils.convertNumberToTargetClass(
+						NumberUtils.parseNumber(svalue, BigDecimal.class), toClass);
+				} else if (SafeMath.HEX.matcher(svalue).matches()) {
+					return NumberUtils.convertNumberToTargetClass(
+						NumberUtils.parseNumber(svalue, BigInteger.class), toClass);
+				} else {
+					return NumberUtils.parseNumber(svalue, toClass);
+				}
+			} catch (Exception e) {
+				return SafeMath.getZero(toClass);
+			}
+		}
+	}
+	
 	@Test
 	public void testIsZero()
 	{
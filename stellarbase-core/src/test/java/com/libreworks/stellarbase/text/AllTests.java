@@ -25,7 +25,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-	StringsTest.class
+	StringsTest.class,
+	PatternCacheTest.class
 })
 public class AllTests
 {
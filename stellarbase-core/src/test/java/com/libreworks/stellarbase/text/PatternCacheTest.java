@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.text;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class PatternCacheTest
+{
+	@Test
+	public void testGet()
+	{
+		PatternCache object = new PatternCache(10);
+		Pattern p = object.get("a+b");
+		assertSame(p, object.get("a+b"));
+		assertTrue(p.matcher("aab").matches());
+		Pattern i = object.get("a+b", Pattern.CASE_INSENSITIVE);
+		assertNotSame(p, i);
+		assertSame(i, object.get("a+b", Pattern.CASE_INSENSITIVE));
+		assertTrue(i.matcher("AAB").matches());
+		assertSame(p, object.get("a+b", 0));
+		assertEquals(2, object.size());
+		assertEquals(3, object.stats().hitCount());
+		assertEquals(2, object.stats().missCount());
+		object.clear();
+		assertEquals(0, object.size());
+	}
+	
+	@Test
+	public void testBounded()
+	{
+		PatternCache object = new PatternCache(5);
+		for (int i = 0; i < 100; i++) {
+			object.get("x" + i);
+		}
+		assertTrue(object.size() <= 5);
+		assertTrue(object.stats().evictionCount() >= 95);
+	}
+	
+	@Test(expected=PatternSyntaxException.class)
+	public void testInvalid()
+	{
+		new PatternCache(5).get("a(");
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNull()
+	{
+		PatternCache.DEFAULT.get(null);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeSize()
+	{
+		new PatternCache(-1);
+	}
+}
@@ -1,10 +1,20 @@
 package com.libreworks.stellarbase.text;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
 public class TrimmerTest
 {
 	// as specified by unicode standard
@@ -66,4 +76,67 @@ public class TrimmerTest
     	assertEquals(WHITESPACE, object.trim(WHITESPACE));
     	assertEquals(WHITESPACE + "ao eu" + WHITESPACE, object.trim(WHITESPACE + "ao eu" + WHITESPACE));
 	}
+	
+	@Test
+	public void testUntrimmedIsSame()
+	{
+		String value = "ao eu";
+		assertSame(value, Trimmer.WHITESPACE.trim(value));
+		StringBuilder sb = new StringBuilder(value);
+		assertSame(sb, Trimmer.WHITESPACE.trimView(sb));
+	}
+	
+	@Test
+	public void testTrimView()
+	{
+		StringBuilder sb = new StringBuilder(" \t ao eu\n");
+		CharSequence view = Trimmer.WHITESPACE.trimView(sb);
+		assertEquals(5, view.length());
+		assertEquals('a', view.charAt(0));
+		assertEquals("ao eu", view.toString());
+		assertEquals("o e", view.subSequence(1, 4).toString());
+		assertEquals("", Trimmer.WHITESPACE.trimView(WHITESPACE));
+		assertNull(Trimmer.WHITESPACE.toNull().trimView(WHITESPACE));
+		assertEquals("ao eu" + WHITESPACE, Trimmer.WHITESPACE.leading().trimView(WHITESPACE + "ao eu" + WHITESPACE).toString());
+	}
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testTrimViewBounds()
+	{
+		Trimmer.WHITESPACE.trimView(" ab ").charAt(2);
+	}
+	
+	@Test
+	public void testTrimAll()
+	{
+		Trimmer object = Trimmer.WHITESPACE.toNull();
+		String[] values = { " a ", null, "b", WHITESPACE };
+		assertSame(values, object.trimAll(values));
+		assertArrayEquals(new String[] { "a", null, "b", null }, values);
+		
+		List<String> list = Lists.newArrayList(" a", "b ", "c");
+		assertSame(list, object.trimAll(list));
+		assertEquals(Lists.newArrayList("a", "b", "c"), list);
+		
+		Map<String,String[]> params = new HashMap<String,String[]>();
+		params.put("q", new String[] { " foo ", "bar\t" });
+		params.put("empty", new String[0]);
+		object.trimAll(params);
+		assertArrayEquals(new String[] { "foo", "bar" }, params.get("q"));
+		assertNull(object.trimAll((Map<String,String[]>) null));
+		
+		assertEquals(Lists.newArrayList("x", null), Lists.newArrayList(
+			Iterables.transform(Lists.newArrayList(" x ", "  "), object.asFunction())));
+	}
+	
+	@Test
+	public void testAsciiMatchesCharMatcher()
+	{
+		Trimmer object = Trimmer.on(".0 ");
+		for (char c = 0; c < 256; c++) {
+			String value = c + "1" + c;
+			String expected = CharMatcher.anyOf(".0 ").trimFrom(value);
+			assertEquals(expected, object.trim(value));
+		}
+	}
 }
@@ -26,7 +26,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-	ValueUtilsTest.class
+	ValueUtilsTest.class,
+	ValueEquivalenceTest.class
 })
 public class AllTests
 {
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.util;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.beans.MutablePropertyValues;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableSet;
+
+public class ValueEquivalenceTest
+{
+	private static final Equivalence<Object> IGNORE_CASE = new Equivalence<Object>()
+	{
+		@Override
+		protected boolean doEquivalent(Object a, Object b)
+		{
+			return a.toString().equalsIgnoreCase(b.toString());
+		}
+		@Override
+		protected int doHash(Object t)
+		{
+			return t.toString().toLowerCase().hashCode();
+		}
+	};
+	
+	@Test
+	public void testDefaults()
+	{
+		ValueEquivalence object = new ValueEquivalence();
+		assertTrue(object.equivalent(null, null));
+		assertFalse(object.equivalent(null, 1));
+		assertTrue(object.equivalent(1, 1.0));
+		assertTrue(object.equivalent(1.0, 1));
+		assertTrue(object.equivalent("2.5", new BigDecimal("2.50")));
+		assertFalse(object.equivalent(0.0, -0.0f));
+		assertFalse(object.equivalent(new BigDecimal("2.5"), new BigDecimal("2.50")));
+		long now = System.currentTimeMillis();
+		assertTrue(object.equivalent(new Timestamp(now), new Date(now)));
+		assertTrue(object.equivalent(new Date(now), new Timestamp(now)));
+		assertFalse(object.equivalent(new Date(now), new Timestamp(now + 1)));
+		assertTrue(object.equivalent('C', "C"));
+		assertFalse(object.equivalent(new StringBuilder("c"), "C"));
+	}
+	
+	@Test
+	public void testWith()
+	{
+		ValueEquivalence object = new ValueEquivalence().with(StringBuilder.class, String.class, IGNORE_CASE);
+		assertTrue(object.equivalent(new StringBuilder("c"), "C"));
+		assertTrue(object.equivalent("C", new StringBuilder("c")));
+		assertFalse(object.equivalent("C", new StringBuilder("d")));
+		// other pairs still use the defaults
+		assertFalse(object.equivalent("C", 'c'));
+		assertFalse(new ValueEquivalence().equivalent(new StringBuilder("c"), "C"));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testWithNull()
+	{
+		new ValueEquivalence().with(String.class, null, IGNORE_CASE);
+	}
+	
+	@Test
+	public void testDiffMaps()
+	{
+		Map<String,Object> before = new LinkedHashMap<String,Object>();
+		before.put("id", 1);
+		before.put("name", "Adam");
+		before.put("born", new Date(0));
+		before.put("gone", "x");
+		before.put("empty", null);
+		Map<String,Object> after = new HashMap<String,Object>();
+		after.put("id", 1L);
+		after.put("name", "Eve");
+		after.put("born", new Timestamp(0));
+		after.put("added", 5);
+		after.put("nothing", null);
+		assertEquals(ImmutableSet.of("name", "gone", "added"), new ValueEquivalence().diff(before, after));
+		assertEquals(ImmutableSet.of("id", "name", "born", "gone"), ValueUtils.diff(before, null));
+		assertTrue(ValueUtils.diff(before, before).isEmpty());
+	}
+	
+	@Test
+	public void testDiffPropertyValues()
+	{
+		MutablePropertyValues before = new MutablePropertyValues();
+		before.add("id", 1).add("name", "Adam").add("gone", "x");
+		MutablePropertyValues after = new MutablePropertyValues();
+		after.add("id", "1").add("name", "Eve").add("added", 5);
+		assertEquals(ImmutableSet.of("name", "gone", "added"), ValueUtils.diff(before, after));
+	}
+}
@@ -55,6 +55,25 @@ public class AbstractOneFieldRuleTest
 		object.validate(this, null);
 	}
 	
+	/**
+	 * Test that a subclass changing the field reads the new property
+	 */
+	@Test
+	public void testValidateChangedField()
+	{
+		AwesomeRule object = new AwesomeRule();
+		object.validate(this, null);
+		object.field = "otherValue";
+		object.validate(new Object()
+		{
+			@SuppressWarnings("unused")
+			public String getOtherValue()
+			{
+				return "awesome";
+			}
+		}, null);
+	}
+	
 	/**
 	 * Test for getConstraints
 	 */
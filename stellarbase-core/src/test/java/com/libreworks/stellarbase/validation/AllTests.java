@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
 	AbstractOneFieldRuleTest.class,
 	CircularRuleTest.class,
 	OneOfRuleTest.class,
+	PropertyReaderTest.class,
 	RequiredRuleTest.class,
 	RuleValidatorTest.class,
 	RegexRuleTest.class,
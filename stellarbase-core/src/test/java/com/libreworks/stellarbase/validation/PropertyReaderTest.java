@@ -0,0 +1,112 @@
+/**
+ * Copyright 2014 LibreWorks contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author Jonathan Hawk
+ */
+package com.libreworks.stellarbase.validation;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.beans.InvalidPropertyException;
+import org.springframework.beans.NotReadablePropertyException;
+
+/**
+ * @author Jonathan Hawk
+ * @version $Id$
+ */
+public class PropertyReaderTest
+{
+	@Test
+	public void testRead()
+	{
+		PropertyReader object = new PropertyReader("name");
+		assertEquals("foo", object.read(new TestBean("foo")));
+		assertEquals("bar", object.read(new TestBean("bar")));
+		assertEquals("baz", object.read(new OtherBean("baz")));
+	}
+	
+	@Test
+	public void testReadNested()
+	{
+		TestBean bean = new TestBean("child");
+		bean.setParent(new TestBean("parent"));
+		assertEquals("parent", new PropertyReader("parent.name").read(bean));
+	}
+	
+	@Test(expected=NotReadablePropertyException.class)
+	public void testReadMissing()
+	{
+		new PropertyReader("missing").read(new TestBean("foo"));
+	}
+	
+	@Test
+	public void testReadThrows()
+	{
+		try {
+			new PropertyReader("broken").read(new TestBean("foo"));
+			fail("Expected InvalidPropertyException");
+		} catch (InvalidPropertyException e) {
+			assertEquals("broken", e.getPropertyName());
+		}
+	}
+	
+	protected static class TestBean
+	{
+		private String name;
+		private TestBean parent;
+		
+		public TestBean(String name)
+		{
+			this.name = name;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+		
+		public TestBean getParent()
+		{
+			return parent;
+		}
+		
+		public void setParent(TestBean parent)
+		{
+			this.parent = parent;
+		}
+		
+		public String getBroken()
+		{
+			throw new IllegalStateException();
+		}
+	}
+	
+	private static class OtherBean
+	{
+		private String name;
+		
+		OtherBean(String name)
+		{
+			this.name = name;
+		}
+		
+		@SuppressWarnings("unused")
+		public String getName()
+		{
+			return name;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.springframework.util.ObjectUtils;
 
 import com.google.common.base.Objects;
 import com.libreworks.stellarbase.text.Characters;
+import com.libreworks.stellarbase.text.PatternCache;
 import com.libreworks.stellarbase.text.Strings;
 import com.libreworks.stellarbase.util.Arguments;
 
@@ -36,9 +37,15 @@ import com.libreworks.stellarbase.util.Arguments;
 public class LikePredicate extends AbstractPredicate
 {
 	private static final long serialVersionUID = 1L;
+	
+	private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL;
 
 	private final Expression<?> inner;
 	private final Expression<?> pattern;
+	/**
+	 * The last pattern compiled, since the pattern is usually the same for every object
+	 */
+	private transient volatile Compiled last;
 
 	/**
 	 * Creates a new LikePredicate
@@ -120,8 +127,23 @@ public class LikePredicate extends AbstractPredicate
 		if (a.equalsIgnoreCase(p)) {
 			return !isNegated();
 		} else {
+			boolean match = compile(p).matcher(a).matches();
+			return isNegated() ? !match : match;
+		}
+	}
+	
+	/**
+	 * Gets the compiled regular expression for a LIKE pattern.
+	 * 
+	 * @param p The LIKE pattern
+	 * @return The compiled pattern
+	 */
+	private Pattern compile(String p)
+	{
+		Compiled c = last;
+		if (c == null || !c.like.equals(p)) {
 			StringTokenizer st = new StringTokenizer(p, "%_", true);
-			StringBuilder sb = new StringBuilder("(?ius)").append(Characters.CARET);
+			StringBuilder sb = new StringBuilder().append(Characters.CARET);
 			while (st.hasMoreTokens()) {
 				String token = st.nextToken();
 				if (Strings.PERCENT.equals(token)) {
@@ -132,8 +154,21 @@ public class LikePredicate extends AbstractPredicate
 					sb.append(Pattern.quote(token));
 				}
 			}
-			boolean match = a.matches(sb.append(Characters.DOLLAR).toString());
-			return isNegated() ? !match : match;
+			c = new Compiled(p, PatternCache.DEFAULT.get(sb.append(Characters.DOLLAR).toString(), FLAGS));
+			last = c;
+		}
+		return c.pattern;
+	}
+	
+	private static class Compiled
+	{
+		final String like;
+		final Pattern pattern;
+		
+		Compiled(String like, Pattern pattern)
+		{
+			this.like = like;
+			this.pattern = pattern;
 		}
 	}
 }
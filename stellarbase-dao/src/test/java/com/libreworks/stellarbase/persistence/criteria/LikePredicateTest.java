@@ -1,9 +1,12 @@
 package com.libreworks.stellarbase.persistence.criteria;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -37,4 +40,26 @@ public class LikePredicateTest
     		assertTrue("Doesn't match pattern " + pattern, new LikePredicate(knife, ValueExpression.of(pattern), true).evaluate(null));
     	}
     }
+    
+    @Test
+    public void testEvaluatePerRow()
+    {
+    	FieldImpl<String> name = new FieldImpl<String>("name", String.class);
+    	FieldImpl<String> like = new FieldImpl<String>("like", String.class);
+    	LikePredicate object = new LikePredicate(name, like, false);
+    	String[][] rows = {
+    		{ "SPATULA", "spat%", "true" },
+    		{ "Knife", "spat%", "false" },
+    		{ "two\nlines", "two_lines", "true" },
+    		{ "a.b", "a_b", "true" },
+    		{ "axb", "a.b", "false" },
+    		{ "Spatula", "%ULA", "true" }
+    	};
+    	for (String[] row : rows) {
+    		Map<String,String> values = new HashMap<String,String>();
+    		values.put("name", row[0]);
+    		values.put("like", row[1]);
+    		assertEquals(row[0] + " LIKE " + row[1], Boolean.valueOf(row[2]), object.evaluate(values));
+    	}
+    }
 }